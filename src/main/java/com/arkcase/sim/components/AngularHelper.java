@@ -27,11 +27,15 @@
 package com.arkcase.sim.components;
 
 import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.support.ui.ExpectedCondition;
 
 import com.arkcase.sim.components.html.WaitHelper;
+import com.arkcase.sim.tools.ScriptTools;
 
 public class AngularHelper extends WaitHelper {
 
@@ -63,18 +67,35 @@ public class AngularHelper extends WaitHelper {
 			"    return null;" + //
 			"}";
 
-	private static final ExpectedCondition<Boolean> IS_STABLE = (d) -> {
-		Boolean ret = AngularHelper.isAngularStable(d);
-		if (ret != null) { return ret; }
-		throw new RuntimeException("AngularJS is not present");
+	private static final ScriptTools.Library LIBRARY;
+	static {
+		Map<String, String> functions = new LinkedHashMap<>();
+		functions.put("isPresent", AngularHelper.IS_PRESENT_JS);
+		functions.put("isStable", AngularHelper.IS_STABLE_JS);
+		LIBRARY = new ScriptTools.Library("angularHelper", functions);
+	}
+
+	private static final ExpectedCondition<Boolean> IS_STABLE = new ExpectedCondition<Boolean>() {
+		@Override
+		public Boolean apply(WebDriver d) {
+			Boolean ret = AngularHelper.isAngularStable(d);
+			if (ret != null) { return ret; }
+			throw new RuntimeException("AngularJS is not present");
+		}
+
+		@Override
+		public String toString() {
+			// Shows up in the timeout messages, and the JFR wait events
+			return "AngularJS to be stable";
+		}
 	};
 
 	public static final boolean isAngularPresent(WebDriver d) {
-		return Boolean.class.cast(WebDriverHelper.runJavaScript(d, AngularHelper.IS_PRESENT_JS));
+		return Boolean.class.cast(AngularHelper.LIBRARY.call(d, "isPresent"));
 	}
 
 	public static final Boolean isAngularStable(WebDriver d) {
-		Object ret = WebDriverHelper.runJavaScript(d, AngularHelper.IS_STABLE_JS);
+		Object ret = AngularHelper.LIBRARY.call(d, "isStable");
 		if (ret == null) { return null; }
 		if (Boolean.class.isInstance(ret)) { return Boolean.class.cast(ret); }
 		return Boolean.valueOf(ret.toString());
@@ -125,6 +146,42 @@ public class AngularHelper extends WaitHelper {
 				.until(AngularHelper.angularIsStable()) //
 			;
 		}
+		if (HttpRequestLog.isEnabled()) {
+			// The click's backend calls are done, so this is a good time to collect them
+			try {
+				collectHttpRequests();
+			} catch (RuntimeException e) {
+				WebDriverHelper.LOG.debug("Failed to collect the recorded HTTP requests", e);
+			}
+		}
+		if (AngularProfiler.isEnabled()) {
+			try {
+				collectClientProfile();
+			} catch (RuntimeException e) {
+				WebDriverHelper.LOG.debug("Failed to collect the AngularJS profile", e);
+			}
+		}
+		try {
+			BrowserMemory.sampleIfDue(this.browser);
+		} catch (RuntimeException e) {
+			WebDriverHelper.LOG.debug("Failed to sample the browser's memory", e);
+		}
+	}
+
+	/**
+	 * Collects the backend requests recorded by the page since the previous collection (see
+	 * {@link HttpRequestLog}), installing the recorder in the current document if necessary.
+	 */
+	public final List<HttpRequestLog.Request> collectHttpRequests() {
+		return HttpRequestLog.collect(this.browser);
+	}
+
+	/**
+	 * Collects the client-side activity (digests and long tasks) since the previous collection
+	 * (see {@link AngularProfiler}), installing the profiler in the current document if necessary.
+	 */
+	public final AngularProfiler.Profile collectClientProfile() {
+		return AngularProfiler.collect(this.browser);
 	}
 
 	public final boolean isAngularPresent() {
@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.components;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.jmeter.samplers.SampleResult;
+import org.openqa.selenium.WebDriver;
+
+import com.arkcase.sim.tools.ScriptTools;
+import com.arkcase.sim.tools.SubResults;
+import com.arkcase.sim.tools.StepTimings;
+
+/**
+ * <p>
+ * Profiles the time the browser spends running the application itself, as opposed to waiting
+ * for the backend: the AngularJS digests (how many, how long they took, and how many watchers
+ * they have to go through) and the long tasks reported by the browser. The profiler is installed
+ * in the page (once per document) and its counters are {@link #collect(WebDriver) collected} with
+ * a single script execution, which also resets them.
+ * </p>
+ * <p>
+ * Profiling is disabled by default, and is enabled per thread via {@link #setEnabled(boolean)}.
+ * Once enabled, the {@link AngularHelper} collects the counters whenever it's done waiting for
+ * AngularJS, and accounts them to the step being executed. The profiles can be attached to the
+ * Gherkin sampler's result as sub-results by way of a JSR223 PostProcessor:
+ * </p>
+ *
+ * <pre>
+ * com.arkcase.sim.components.AngularProfiler.attachTo(prev)
+ * </pre>
+ */
+public final class AngularProfiler {
+
+	public static final int MAX_PROFILES = 1024;
+	public static final String NO_STEP = "(no step)";
+
+	private static final ScriptTools.Library LIBRARY = ScriptTools.loadLibrary("angularProfiler", "collect",
+		"angularProfiler.js");
+
+	/**
+	 * The client-side activity during a step
+	 */
+	public static final class Profile {
+		public final String step;
+		private int digests = 0;
+		private int applies = 0;
+		private double digestMillis = 0;
+		private double maxDigestMillis = 0;
+		private int watchers = 0;
+		private int scopes = 0;
+		private int longTasks = 0;
+		private double longTaskMillis = 0;
+		private double maxLongTaskMillis = 0;
+
+		private Profile(String step) {
+			this.step = step;
+		}
+
+		private void add(Map<?, ?> data) {
+			this.digests += (int) AngularProfiler.toDouble(data.get("digests"));
+			this.applies += (int) AngularProfiler.toDouble(data.get("applies"));
+			this.digestMillis += AngularProfiler.toDouble(data.get("digestTime"));
+			this.maxDigestMillis = Math.max(this.maxDigestMillis, AngularProfiler.toDouble(data.get("maxDigest")));
+			// Watchers and scopes are a snapshot, so keep the largest
+			this.watchers = Math.max(this.watchers, (int) AngularProfiler.toDouble(data.get("watchers")));
+			this.scopes = Math.max(this.scopes, (int) AngularProfiler.toDouble(data.get("scopes")));
+			this.longTasks += (int) AngularProfiler.toDouble(data.get("longTasks"));
+			this.longTaskMillis += AngularProfiler.toDouble(data.get("longTaskTime"));
+			this.maxLongTaskMillis = Math.max(this.maxLongTaskMillis,
+				AngularProfiler.toDouble(data.get("maxLongTask")));
+		}
+
+		public int getDigests() {
+			return this.digests;
+		}
+
+		public int getApplies() {
+			return this.applies;
+		}
+
+		public double getDigestMillis() {
+			return this.digestMillis;
+		}
+
+		public double getMaxDigestMillis() {
+			return this.maxDigestMillis;
+		}
+
+		public int getWatchers() {
+			return this.watchers;
+		}
+
+		public int getScopes() {
+			return this.scopes;
+		}
+
+		public int getLongTasks() {
+			return this.longTasks;
+		}
+
+		public double getLongTaskMillis() {
+			return this.longTaskMillis;
+		}
+
+		public double getMaxLongTaskMillis() {
+			return this.maxLongTaskMillis;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+				"%s (digests=%d/%.0fms max=%.0fms, applies=%d, watchers=%d, scopes=%d, longTasks=%d/%.0fms max=%.0fms)",
+				this.step, this.digests, this.digestMillis, this.maxDigestMillis, this.applies, this.watchers,
+				this.scopes, this.longTasks, this.longTaskMillis, this.maxLongTaskMillis);
+		}
+	}
+
+	private static final class State {
+		private boolean enabled = false;
+		private final Deque<Profile> profiles = new ArrayDeque<>();
+	}
+
+	private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+	private AngularProfiler() {
+	}
+
+	private static double toDouble(Object o) {
+		return (Number.class.isInstance(o) ? Number.class.cast(o).doubleValue() : 0);
+	}
+
+	public static boolean isEnabled() {
+		return AngularProfiler.STATE.get().enabled;
+	}
+
+	/**
+	 * Enables or disables profiling for the current thread. Disabling it also discards any
+	 * profiles collected so far.
+	 */
+	public static void setEnabled(boolean enabled) {
+		if (enabled) {
+			AngularProfiler.STATE.get().enabled = true;
+		} else {
+			AngularProfiler.STATE.remove();
+		}
+	}
+
+	/**
+	 * Installs the profiler in the browser's current document if it isn't there yet, and
+	 * collects (and resets) its counters, accounting them to the step being executed (consecutive
+	 * collections within the same step are merged). Returns the step's profile so far.
+	 */
+	public static Profile collect(WebDriver browser) {
+		Objects.requireNonNull(browser, "Must provide a WebDriver instance");
+		Object ret = AngularProfiler.LIBRARY.call(browser, "collect");
+		if (!Map.class.isInstance(ret)) {
+			throw new IllegalStateException("The AngularJS profiler script returned an unexpected result: " + ret);
+		}
+		return AngularProfiler.keep(StepTimings.getCurrentStep(), Map.class.cast(ret));
+	}
+
+	static Profile keep(String step, Map<?, ?> data) {
+		if (step == null) {
+			step = AngularProfiler.NO_STEP;
+		}
+		final Deque<Profile> profiles = AngularProfiler.STATE.get().profiles;
+		Profile profile = profiles.peekLast();
+		if ((profile == null) || !profile.step.equals(step)) {
+			profile = new Profile(step);
+			SubResults.keep(profiles, profile, AngularProfiler.MAX_PROFILES);
+		}
+		profile.add(data);
+		return profile;
+	}
+
+	/**
+	 * Returns (and removes) the profiles collected for the current thread.
+	 */
+	public static List<Profile> drain() {
+		return SubResults.drain(AngularProfiler.STATE.get().profiles);
+	}
+
+	private static SampleResult newSubResult(SampleResult parent, String label, double millis, String message) {
+		SampleResult r = SubResults.newSubResult(parent, label, parent.getStartTime(), Math.round(millis));
+		r.setResponseMessage(message);
+		return r;
+	}
+
+	/**
+	 * Drains the current thread's profiles, and attaches two sub-results to the given sample for
+	 * each one: {@code "<step> [digest]"} with the time spent in digests, and
+	 * {@code "<step> [long tasks]"} with the time spent in long tasks, so the client's CPU time
+	 * gets its own percentiles in the JMeter reports. Returns the number of profiles attached.
+	 */
+	public static int attachTo(SampleResult parent) {
+		if (parent == null) { return 0; }
+		List<Profile> profiles = AngularProfiler.drain();
+		for (Profile p : profiles) {
+			final String message = p.toString();
+			parent.addRawSubResult(
+				AngularProfiler.newSubResult(parent, p.step + " [digest]", p.digestMillis, message));
+			parent.addRawSubResult(
+				AngularProfiler.newSubResult(parent, p.step + " [long tasks]", p.longTaskMillis, message));
+		}
+		return profiles.size();
+	}
+
+	/**
+	 * Attaches the current thread's profiles to the thread's previous sample result (i.e. the
+	 * Gherkin sampler's, when invoked from a PostProcessor).
+	 */
+	public static int attachToPrevious() {
+		return SubResults.attachToPrevious(AngularProfiler::attachTo);
+	}
+}
@@ -0,0 +1,306 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.components;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.SessionId;
+
+import com.arkcase.sim.tools.ScriptTools;
+import com.arkcase.sim.tools.SubResults;
+import com.arkcase.sim.tools.Wrapper;
+
+/**
+ * <p>
+ * Samples the browser's memory footprint, to detect leaks within long-lived browser sessions
+ * (i.e. during soak tests): the used JavaScript heap (only reported by Chromium-based browsers),
+ * the number of DOM elements, and (approximately) the number of event listeners added to the
+ * current document. Each sample is taken with a single, cheap script execution.
+ * </p>
+ * <p>
+ * The samples are kept per virtual user (i.e. per thread name) in a compact, bounded time series,
+ * which can be {@link #export(Path) exported} as CSV (i.e. next to the
+ * {@link com.arkcase.sim.tools.MetricsLog metrics log}). Periodic sampling is disabled by default,
+ * and is enabled per thread via {@link #setInterval(Duration)}; once enabled, the
+ * {@link AngularHelper} takes a sample whenever it's done waiting for AngularJS, if the previous
+ * one is older than the interval.
+ * </p>
+ */
+public final class BrowserMemory {
+
+	public static final int MAX_SAMPLES = 4096;
+	public static final int MAX_CHECKPOINTS = 1024;
+
+	private static final ScriptTools.Library LIBRARY = ScriptTools.loadLibrary("browserMemory", "sample",
+		"browserMemory.js");
+
+	public static final class Sample {
+		public final long timestamp;
+		/** The used JavaScript heap in bytes, or -1 if the browser doesn't report it */
+		public final long usedHeap;
+		/** The allocated JavaScript heap in bytes, or -1 if the browser doesn't report it */
+		public final long totalHeap;
+		public final int nodes;
+		/** The listeners added to the current document, or -1 if they can't be counted */
+		public final int listeners;
+
+		Sample(long timestamp, long usedHeap, long totalHeap, int nodes, int listeners) {
+			this.timestamp = timestamp;
+			this.usedHeap = usedHeap;
+			this.totalHeap = totalHeap;
+			this.nodes = nodes;
+			this.listeners = listeners;
+		}
+
+		public boolean hasHeap() {
+			return (this.usedHeap >= 0);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Sample [timestamp=%d, usedHeap=%d, totalHeap=%d, nodes=%d, listeners=%d]",
+				this.timestamp, this.usedHeap, this.totalHeap, this.nodes, this.listeners);
+		}
+	}
+
+	/**
+	 * A bounded time series of samples, kept as parallel primitive arrays (the oldest samples are
+	 * overwritten once it's full).
+	 */
+	public static final class Series {
+		private final long[] timestamps;
+		private final long[] usedHeaps;
+		private final long[] totalHeaps;
+		private final int[] nodes;
+		private final int[] listeners;
+		private int next = 0;
+		private int size = 0;
+
+		private Series(int capacity) {
+			this.timestamps = new long[capacity];
+			this.usedHeaps = new long[capacity];
+			this.totalHeaps = new long[capacity];
+			this.nodes = new int[capacity];
+			this.listeners = new int[capacity];
+		}
+
+		private synchronized void add(Sample s) {
+			this.timestamps[this.next] = s.timestamp;
+			this.usedHeaps[this.next] = s.usedHeap;
+			this.totalHeaps[this.next] = s.totalHeap;
+			this.nodes[this.next] = s.nodes;
+			this.listeners[this.next] = s.listeners;
+			this.next = (this.next + 1) % this.timestamps.length;
+			this.size = Math.min(this.size + 1, this.timestamps.length);
+		}
+
+		public synchronized int size() {
+			return this.size;
+		}
+
+		/**
+		 * Returns the i-th oldest sample.
+		 */
+		public synchronized Sample get(int i) {
+			if ((i < 0) || (i >= this.size)) {
+				throw new IndexOutOfBoundsException("No sample #" + i + " (size=" + this.size + ")");
+			}
+			final int idx = (this.next - this.size + i + this.timestamps.length) % this.timestamps.length;
+			return new Sample(this.timestamps[idx], this.usedHeaps[idx], this.totalHeaps[idx], this.nodes[idx],
+				this.listeners[idx]);
+		}
+
+		public synchronized List<Sample> getSamples() {
+			List<Sample> ret = new ArrayList<>(this.size);
+			for (int i = 0; i < this.size; i++) {
+				ret.add(get(i));
+			}
+			return ret;
+		}
+	}
+
+	private static final class State {
+		private Duration interval = null;
+		private long lastSample = 0;
+		// The browser session the checkpoints were taken in
+		private Object session = null;
+		private final Deque<Sample> checkpoints = new ArrayDeque<>();
+	}
+
+	private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+	private static final ConcurrentMap<String, Series> SERIES = new ConcurrentHashMap<>();
+
+	private static final Function<String, Series> NEW_SERIES = (k) -> new Series(BrowserMemory.MAX_SAMPLES);
+
+	private BrowserMemory() {
+	}
+
+	private static long toLong(Object o) {
+		return (Number.class.isInstance(o) ? Number.class.cast(o).longValue() : -1);
+	}
+
+	/**
+	 * Enables periodic sampling for the current thread, at most once per {@code interval}, or
+	 * disables it if {@code interval} is {@code null}.
+	 */
+	public static void setInterval(Duration interval) {
+		if ((interval != null) && (interval.isNegative() || interval.isZero())) {
+			throw new IllegalArgumentException("The sampling interval must be positive");
+		}
+		BrowserMemory.STATE.get().interval = interval;
+	}
+
+	public static Duration getInterval() {
+		return BrowserMemory.STATE.get().interval;
+	}
+
+	/**
+	 * Takes a sample and adds it to the current virtual user's series.
+	 */
+	public static Sample sample(WebDriver browser) {
+		Objects.requireNonNull(browser, "Must provide a WebDriver instance");
+		Object ret = BrowserMemory.LIBRARY.call(browser, "sample");
+		if (!Map.class.isInstance(ret)) {
+			throw new IllegalStateException("The browser memory script returned an unexpected result: " + ret);
+		}
+		final Map<?, ?> data = Map.class.cast(ret);
+		return BrowserMemory.keep(new Sample(System.currentTimeMillis(), BrowserMemory.toLong(data.get("usedHeap")),
+			BrowserMemory.toLong(data.get("totalHeap")), (int) BrowserMemory.toLong(data.get("nodes")),
+			(int) BrowserMemory.toLong(data.get("listeners"))));
+	}
+
+	static Sample keep(Sample sample) {
+		BrowserMemory.SERIES.computeIfAbsent(Thread.currentThread().getName(), BrowserMemory.NEW_SERIES).add(sample);
+		BrowserMemory.STATE.get().lastSample = sample.timestamp;
+		return sample;
+	}
+
+	/**
+	 * Takes a sample if periodic sampling is enabled for the current thread, and the previous
+	 * sample is older than the interval. Returns the sample taken, or {@code null} if none was.
+	 */
+	public static Sample sampleIfDue(WebDriver browser) {
+		final State state = BrowserMemory.STATE.get();
+		if (state.interval == null) { return null; }
+		if ((System.currentTimeMillis() - state.lastSample) < state.interval.toMillis()) { return null; }
+		return BrowserMemory.sample(browser);
+	}
+
+	/**
+	 * Returns the current virtual user's series, or {@code null} if it has no samples.
+	 */
+	public static Series getSeries() {
+		return BrowserMemory.SERIES.get(Thread.currentThread().getName());
+	}
+
+	/**
+	 * Identifies the browser's session by its ID (or by the browser itself, if it doesn't have
+	 * one), without keeping a reference to the browser.
+	 */
+	private static Object getSession(WebDriver browser) {
+		final WebDriver raw = Wrapper.unwrap(browser);
+		if (RemoteWebDriver.class.isInstance(raw)) {
+			SessionId id = RemoteWebDriver.class.cast(raw).getSessionId();
+			if (id != null) { return id.toString(); }
+		}
+		return System.identityHashCode(raw);
+	}
+
+	/**
+	 * Records the given sample (taken from the given browser) as the current thread's checkpoint
+	 * for this iteration, and returns the checkpoint recorded {@code iterations} iterations ago
+	 * (or {@code null} if there have been fewer iterations than that), so the growth between both
+	 * can be checked. The checkpoints start over whenever the browser session changes, since a
+	 * new browser's heap can't be compared with the previous one's.
+	 */
+	public static Sample checkpoint(WebDriver browser, Sample sample, int iterations) {
+		Objects.requireNonNull(browser, "Must provide a WebDriver instance");
+		return BrowserMemory.checkpoint(BrowserMemory.getSession(browser), sample, iterations);
+	}
+
+	static Sample checkpoint(Object session, Sample sample, int iterations) {
+		Objects.requireNonNull(sample, "Must provide a sample");
+		if (iterations < 1) { throw new IllegalArgumentException("Must check at least one iteration back"); }
+		final State state = BrowserMemory.STATE.get();
+		if (!Objects.equals(session, state.session)) {
+			state.checkpoints.clear();
+			state.session = session;
+		}
+		final Deque<Sample> checkpoints = state.checkpoints;
+		SubResults.keep(checkpoints, sample, Math.min(iterations + 1, BrowserMemory.MAX_CHECKPOINTS));
+		return (checkpoints.size() > iterations ? checkpoints.peekFirst() : null);
+	}
+
+	/**
+	 * Writes every virtual user's samples to the given file as CSV, oldest first.
+	 */
+	public static void export(Path file) throws IOException {
+		Objects.requireNonNull(file, "Must provide a file to export to");
+		final Path parent = file.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			w.write("timestamp,thread,usedHeap,totalHeap,nodes,listeners");
+			w.newLine();
+			for (Map.Entry<String, Series> e : BrowserMemory.SERIES.entrySet()) {
+				// Thread names may contain commas
+				final String thread = "\"" + e.getKey().replace("\"", "\"\"") + "\"";
+				for (Sample s : e.getValue().getSamples()) {
+					w.write(String.format("%d,%s,%d,%d,%d,%d", s.timestamp, thread, s.usedHeap, s.totalHeap, s.nodes,
+						s.listeners));
+					w.newLine();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Discards the current thread's settings and checkpoints, and its virtual user's samples.
+	 */
+	public static void reset() {
+		BrowserMemory.STATE.remove();
+		BrowserMemory.SERIES.remove(Thread.currentThread().getName());
+	}
+}
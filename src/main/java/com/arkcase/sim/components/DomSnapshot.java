@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.components;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import com.arkcase.sim.tools.ScriptTools;
+
+/**
+ * <p>
+ * A serialized copy of the browser's live DOM, captured with a single script execution. Unlike
+ * {@link WebDriver#getPageSource()}, it reflects the current values of the form fields, marks
+ * the dialogs that are currently open (with a {@code data-ark-open-dialog} attribute), and
+ * includes the contents of same-origin (i)frames (i.e. the PDFTron viewer) inlined as their
+ * {@code srcdoc}. Scripts are stripped from the copy, since they're of no use when reviewing it.
+ * </p>
+ * <p>
+ * The snapshot can optionally target an element via a CSS selector, in which case
+ * {@link #takeScreenshot(WebDriver)} will capture only that element, which results in much smaller
+ * images than capturing the whole viewport.
+ * </p>
+ */
+public final class DomSnapshot {
+
+	private static final ScriptTools.Library LIBRARY = ScriptTools.loadLibrary("domSnapshot", "capture",
+		"domSnapshot.js");
+
+	public static DomSnapshot capture(WebDriver browser) {
+		return DomSnapshot.capture(browser, null);
+	}
+
+	/**
+	 * Captures the snapshot, and also locates the element matching the given CSS selector (if
+	 * any) in the same script execution. Raises {@link NoSuchElementException} if the selector
+	 * doesn't match any element.
+	 */
+	public static DomSnapshot capture(WebDriver browser, String selector) {
+		Objects.requireNonNull(browser, "Must provide a WebDriver instance");
+		Object ret = DomSnapshot.LIBRARY.call(browser, "capture", StringUtils.isBlank(selector) ? null : selector);
+		if (!Map.class.isInstance(ret)) {
+			throw new IllegalStateException("The DOM snapshot script returned an unexpected result: " + ret);
+		}
+		DomSnapshot snapshot = new DomSnapshot(Map.class.cast(ret));
+		if (StringUtils.isNotBlank(selector) && (snapshot.element == null)) {
+			throw new NoSuchElementException("No element matches the CSS selector [" + selector + "]");
+		}
+		return snapshot;
+	}
+
+	private static String comment(String s) {
+		// "--" isn't allowed within an HTML comment
+		return StringUtils.replace(s, "--", "- -");
+	}
+
+	private static int toInt(Object o) {
+		return (Number.class.isInstance(o) ? Number.class.cast(o).intValue() : 0);
+	}
+
+	public final String url;
+	public final String title;
+	public final String html;
+	public final List<String> dialogs;
+	public final int frames;
+	public final int crossOriginFrames;
+	public final int scripts;
+	public final WebElement element;
+
+	private DomSnapshot(Map<?, ?> data) {
+		this.url = Objects.toString(data.get("url"), null);
+		this.title = Objects.toString(data.get("title"), null);
+		this.html = Objects.toString(data.get("html"), "");
+		List<String> dialogs = new ArrayList<>();
+		Object d = data.get("dialogs");
+		if (d instanceof Iterable) {
+			for (Object o : Iterable.class.cast(d)) {
+				dialogs.add(Objects.toString(o));
+			}
+		}
+		this.dialogs = Collections.unmodifiableList(dialogs);
+		this.frames = DomSnapshot.toInt(data.get("frames"));
+		this.crossOriginFrames = DomSnapshot.toInt(data.get("crossOriginFrames"));
+		this.scripts = DomSnapshot.toInt(data.get("scripts"));
+		Object e = data.get("element");
+		this.element = (WebElement.class.isInstance(e) ? WebElement.class.cast(e) : null);
+	}
+
+	/**
+	 * Returns the serialized document, preceded by a comment describing where and when it was
+	 * captured from, and what was found (open dialogs, inlined and cross-origin frames).
+	 */
+	public String toHtml() {
+		StringBuilder b = new StringBuilder(this.html.length() + 256);
+		b.append("<!--\n") //
+			.append("  url: ").append(DomSnapshot.comment(this.url)).append('\n') //
+			.append("  title: ").append(DomSnapshot.comment(this.title)).append('\n') //
+			.append("  frames: ").append(this.frames) //
+			.append(" (cross-origin: ").append(this.crossOriginFrames).append(")\n") //
+			.append("  scripts removed: ").append(this.scripts).append('\n') //
+		;
+		for (String dialog : this.dialogs) {
+			b.append("  open dialog: ").append(DomSnapshot.comment(dialog)).append('\n');
+		}
+		return b.append("-->\n").append(this.html).toString();
+	}
+
+	/**
+	 * Takes a screenshot of the snapshot's element, if one was selected, or of the whole viewport
+	 * otherwise.
+	 */
+	public byte[] takeScreenshot(WebDriver browser) {
+		if (this.element != null) { return this.element.getScreenshotAs(OutputType.BYTES); }
+		if (!TakesScreenshot.class.isInstance(browser)) {
+			String browserClass = (browser != null ? browser.getClass().getName() : "<null>");
+			throw new ClassCastException(
+				"The current WebDriver instance " + browserClass + " does not support taking screenshots");
+		}
+		return TakesScreenshot.class.cast(browser).getScreenshotAs(OutputType.BYTES);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("DomSnapshot [url=%s, title=%s, size=%d, frames=%d, crossOriginFrames=%d, dialogs=%s]",
+			this.url, this.title, this.html.length(), this.frames, this.crossOriginFrames, this.dialogs);
+	}
+}
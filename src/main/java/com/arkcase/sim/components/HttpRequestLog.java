@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.components;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.jmeter.samplers.SampleResult;
+import org.openqa.selenium.WebDriver;
+
+import com.arkcase.sim.tools.ScriptTools;
+import com.arkcase.sim.tools.SubResults;
+
+/**
+ * <p>
+ * Records the backend requests the page makes - the calls each click triggers - as seen from the
+ * browser: their method, URL, status and duration. A recorder is installed in the page (once per
+ * document) which hooks {@code XMLHttpRequest} and {@code fetch()}, as well as AngularJS'
+ * {@code $http} service when it's present, so its requests are recorded with the URL they were
+ * given (before the parameters were added). Requests made before the recorder was installed in
+ * the current document aren't seen.
+ * </p>
+ * <p>
+ * Recording is disabled by default, and is enabled per thread via {@link #setEnabled(boolean)}.
+ * Once enabled, the {@link AngularHelper} {@link #collect(WebDriver) collects} the recorded
+ * requests whenever it's done waiting for AngularJS (i.e. at the end of most steps), and they can
+ * be attached to the Gherkin sampler's result as sub-results by way of a JSR223 PostProcessor:
+ * </p>
+ *
+ * <pre>
+ * com.arkcase.sim.components.HttpRequestLog.attachTo(prev)
+ * </pre>
+ * <p>
+ * The sub-results are labeled with the request's method and {@link #normalize(String) normalized}
+ * URL, so the calls to the same endpoint are aggregated together in the JMeter reports.
+ * </p>
+ */
+public final class HttpRequestLog {
+
+	public static final int MAX_PENDING = 4096;
+
+	private static final ScriptTools.Library LIBRARY = ScriptTools.loadLibrary("httpRecorder", "drain",
+		"httpRecorder.js");
+
+	private static final Pattern SCHEME_AND_HOST = Pattern.compile("^[a-zA-Z][a-zA-Z0-9+.-]*://[^/]*");
+	private static final Pattern UUID = Pattern
+		.compile("^[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$");
+	private static final Pattern HASH = Pattern.compile("^[0-9a-fA-F]{16,}$");
+	// Numbers, and anything with a run of 3 or more digits (i.e. "ORDER-000123"), but not "v1"
+	private static final Pattern ID = Pattern.compile("^(\\d+|.*\\d{3,}.*)$");
+
+	public static final class Request {
+		public final String method;
+		public final String url;
+		public final String template;
+		public final String source;
+		public final int status;
+		public final long start;
+		public final double duration;
+
+		private Request(Map<?, ?> data) {
+			this.method = Objects.toString(data.get("method"), "GET");
+			this.url = Objects.toString(data.get("url"), "");
+			this.template = Objects.toString(data.get("template"), null);
+			this.source = Objects.toString(data.get("source"), null);
+			this.status = (int) HttpRequestLog.toDouble(data.get("status"));
+			this.start = (long) HttpRequestLog.toDouble(data.get("start"));
+			this.duration = HttpRequestLog.toDouble(data.get("duration"));
+		}
+
+		/**
+		 * Returns the method and normalized URL, by which the requests are aggregated.
+		 */
+		public String getLabel() {
+			return this.method + " " + HttpRequestLog.normalize(this.template != null ? this.template : this.url);
+		}
+
+		public boolean isSuccessful() {
+			return (this.status >= 200) && (this.status < 400);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s %s -> %d in %.0fms (%s)", this.method, this.url, this.status, this.duration,
+				this.source);
+		}
+	}
+
+	private static final class State {
+		private boolean enabled = false;
+		private long dropped = 0;
+		private final Deque<Request> pending = new ArrayDeque<>();
+	}
+
+	private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+	private HttpRequestLog() {
+	}
+
+	private static double toDouble(Object o) {
+		return (Number.class.isInstance(o) ? Number.class.cast(o).doubleValue() : 0);
+	}
+
+	/**
+	 * Reduces the given URL to its path, replacing the segments that look like identifiers
+	 * (numbers, UUIDs, hashes, or anything with a run of 3 or more digits) with {@code {id}}, and
+	 * dropping the query string and fragment.
+	 */
+	public static String normalize(String url) {
+		if (url == null) { return null; }
+		String path = StringUtils.substringBefore(StringUtils.substringBefore(url, "#"), "?");
+		path = HttpRequestLog.SCHEME_AND_HOST.matcher(path).replaceFirst("");
+		String[] segments = StringUtils.splitPreserveAllTokens(path, '/');
+		for (int i = 0; i < segments.length; i++) {
+			final String s = segments[i];
+			if (HttpRequestLog.UUID.matcher(s).matches() || HttpRequestLog.HASH.matcher(s).matches()
+				|| HttpRequestLog.ID.matcher(s).matches()) {
+				segments[i] = "{id}";
+			}
+		}
+		return StringUtils.join(segments, '/');
+	}
+
+	public static boolean isEnabled() {
+		return HttpRequestLog.STATE.get().enabled;
+	}
+
+	/**
+	 * Enables or disables recording for the current thread. Disabling it also discards any
+	 * requests collected so far.
+	 */
+	public static void setEnabled(boolean enabled) {
+		if (enabled) {
+			HttpRequestLog.STATE.get().enabled = true;
+		} else {
+			HttpRequestLog.STATE.remove();
+		}
+	}
+
+	/**
+	 * Installs the recorder in the browser's current document if it isn't there yet, and collects
+	 * the requests it recorded since the previous call, keeping them for the current thread.
+	 * Returns the requests collected.
+	 */
+	public static List<Request> collect(WebDriver browser) {
+		Objects.requireNonNull(browser, "Must provide a WebDriver instance");
+		Object ret = HttpRequestLog.LIBRARY.call(browser, "drain");
+		if (!Map.class.isInstance(ret)) {
+			throw new IllegalStateException("The HTTP recorder script returned an unexpected result: " + ret);
+		}
+		final Map<?, ?> data = Map.class.cast(ret);
+		List<Request> requests = new ArrayList<>();
+		Object entries = data.get("entries");
+		if (entries instanceof Iterable) {
+			for (Object o : Iterable.class.cast(entries)) {
+				if (Map.class.isInstance(o)) {
+					requests.add(new Request(Map.class.cast(o)));
+				}
+			}
+		}
+		final State state = HttpRequestLog.STATE.get();
+		state.dropped += (long) HttpRequestLog.toDouble(data.get("dropped"));
+		for (Request r : requests) {
+			state.dropped += SubResults.keep(state.pending, r, HttpRequestLog.MAX_PENDING);
+		}
+		return requests;
+	}
+
+	/**
+	 * Returns the number of requests that were discarded (since the recorder's buffers were full)
+	 * since the last time they were drained.
+	 */
+	public static long getDropped() {
+		return HttpRequestLog.STATE.get().dropped;
+	}
+
+	/**
+	 * Returns (and removes) the requests collected for the current thread.
+	 */
+	public static List<Request> drain() {
+		final State state = HttpRequestLog.STATE.get();
+		state.dropped = 0;
+		return SubResults.drain(state.pending);
+	}
+
+	/**
+	 * Drains the current thread's requests, and attaches each one to the given sample as a
+	 * sub-result labeled with its {@link Request#getLabel() method and normalized URL}, with the
+	 * request's status as its response code. Returns the number of requests attached.
+	 */
+	public static int attachTo(SampleResult parent) {
+		if (parent == null) { return 0; }
+		List<Request> requests = HttpRequestLog.drain();
+		for (Request request : requests) {
+			SampleResult r = SubResults.newSubResult(parent, request.getLabel(), request.start,
+				Math.round(request.duration));
+			r.setSuccessful(request.isSuccessful());
+			r.setResponseCode(String.valueOf(request.status));
+			r.setResponseMessage(request.toString());
+			parent.addRawSubResult(r);
+		}
+		return requests.size();
+	}
+
+	/**
+	 * Attaches the current thread's requests to the thread's previous sample result (i.e. the
+	 * Gherkin sampler's, when invoked from a PostProcessor).
+	 */
+	public static int attachToPrevious() {
+		return SubResults.attachToPrevious(HttpRequestLog::attachTo);
+	}
+}
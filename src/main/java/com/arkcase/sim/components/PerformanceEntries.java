@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.components;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.jmeter.samplers.SampleResult;
+import org.openqa.selenium.WebDriver;
+
+import com.arkcase.sim.tools.ScriptTools;
+import com.arkcase.sim.tools.SubResults;
+
+/**
+ * <p>
+ * The browser's own measurements of the current document, as reported by the Performance API:
+ * the navigation (i.e. the page load), the resources it fetched, and the paints. They're
+ * {@link #capture(WebDriver) captured} with a single script execution, which also clears the
+ * browser's resource buffer so the next capture only returns what was loaded since. The
+ * navigation and paint entries are only returned once per document.
+ * </p>
+ * <p>
+ * {@link #collect(WebDriver) Collected} entries are kept per thread, both to check the current
+ * page against a budget, and to be attached to the Gherkin sampler's result as sub-results by way
+ * of a JSR223 PostProcessor, so the JMeter reports include the frontend timings:
+ * </p>
+ *
+ * <pre>
+ * com.arkcase.sim.components.PerformanceEntries.attachTo(prev)
+ * </pre>
+ */
+public final class PerformanceEntries {
+
+	public static final int MAX_PENDING = 256;
+	public static final int MAX_PAGE_RESOURCES = 2000;
+	public static final int MAX_RESOURCE_SAMPLES = 50;
+
+	private static final ScriptTools.Library LIBRARY = ScriptTools.loadLibrary("performanceEntries", "capture",
+		"performanceEntries.js");
+
+	public static final class Entry {
+		public final String name;
+		public final String type;
+		public final double startTime;
+		public final double duration;
+		public final long transferSize;
+
+		private Entry(Map<?, ?> data) {
+			this.name = Objects.toString(data.get("name"), "");
+			this.type = Objects.toString(data.get("type"), null);
+			this.startTime = PerformanceEntries.toDouble(data.get("startTime"));
+			this.duration = PerformanceEntries.toDouble(data.get("duration"));
+			this.transferSize = (long) PerformanceEntries.toDouble(data.get("transferSize"));
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s (%s) @%.0fms took %.0fms", this.name, this.type, this.startTime, this.duration);
+		}
+	}
+
+	public static final class Navigation {
+		public final Entry entry;
+		/** The time until the first byte of the response was received */
+		public final double responseStart;
+		/** The time until the {@code DOMContentLoaded} handlers completed */
+		public final double domContentLoaded;
+
+		private Navigation(Map<?, ?> data) {
+			this.entry = new Entry(data);
+			this.responseStart = PerformanceEntries.toDouble(data.get("responseStart"));
+			this.domContentLoaded = PerformanceEntries.toDouble(data.get("domContentLoaded"));
+		}
+	}
+
+	/**
+	 * The entries collected for the current page, since it was last loaded
+	 */
+	private static final class Page {
+		private String url = null;
+		private Navigation navigation = null;
+		private final List<Entry> resources = new ArrayList<>();
+	}
+
+	private static final class State {
+		private final Deque<PerformanceEntries> pending = new ArrayDeque<>();
+		private final Page page = new Page();
+	}
+
+	private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+	private static double toDouble(Object o) {
+		return (Number.class.isInstance(o) ? Number.class.cast(o).doubleValue() : 0);
+	}
+
+	private static List<Entry> toEntries(Object o) {
+		if (!(o instanceof Iterable)) { return Collections.emptyList(); }
+		List<Entry> ret = new ArrayList<>();
+		for (Object e : Iterable.class.cast(o)) {
+			if (Map.class.isInstance(e)) {
+				ret.add(new Entry(Map.class.cast(e)));
+			}
+		}
+		return Collections.unmodifiableList(ret);
+	}
+
+	/**
+	 * Captures the entries recorded by the browser since the previous capture, without keeping
+	 * them.
+	 */
+	public static PerformanceEntries capture(WebDriver browser) {
+		Objects.requireNonNull(browser, "Must provide a WebDriver instance");
+		Object ret = PerformanceEntries.LIBRARY.call(browser, "capture");
+		if (ret == null) { throw new IllegalStateException("The browser doesn't support the Performance API"); }
+		if (!Map.class.isInstance(ret)) {
+			throw new IllegalStateException("The performance entries script returned an unexpected result: " + ret);
+		}
+		return new PerformanceEntries(Map.class.cast(ret));
+	}
+
+	/**
+	 * Captures the entries recorded by the browser since the previous capture, and keeps them for
+	 * the current thread.
+	 */
+	public static PerformanceEntries collect(WebDriver browser) {
+		return PerformanceEntries.keep(PerformanceEntries.capture(browser));
+	}
+
+	static PerformanceEntries keep(PerformanceEntries entries) {
+		final State state = PerformanceEntries.STATE.get();
+		SubResults.keep(state.pending, entries, PerformanceEntries.MAX_PENDING);
+		final Page page = state.page;
+		if (entries.navigation != null) {
+			// A new document was loaded, so the resources belong to it
+			page.url = entries.url;
+			page.navigation = entries.navigation;
+			page.resources.clear();
+		}
+		for (Entry e : entries.resources) {
+			if (page.resources.size() < PerformanceEntries.MAX_PAGE_RESOURCES) {
+				page.resources.add(e);
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * Returns the navigation entry for the most recently loaded page, or {@code null} if none has
+	 * been collected.
+	 */
+	public static Navigation getPageLoad() {
+		return PerformanceEntries.STATE.get().page.navigation;
+	}
+
+	public static String getPageUrl() {
+		return PerformanceEntries.STATE.get().page.url;
+	}
+
+	/**
+	 * Returns the resources collected since the most recent page load.
+	 */
+	public static List<Entry> getPageResources() {
+		return Collections.unmodifiableList(new ArrayList<>(PerformanceEntries.STATE.get().page.resources));
+	}
+
+	/**
+	 * Returns the entry that took the longest, or {@code null} if there are none.
+	 */
+	public static Entry getSlowest(List<Entry> entries) {
+		Entry slowest = null;
+		for (Entry e : entries) {
+			if ((slowest == null) || (e.duration > slowest.duration)) {
+				slowest = e;
+			}
+		}
+		return slowest;
+	}
+
+	/**
+	 * Discards everything collected for the current thread.
+	 */
+	public static void reset() {
+		PerformanceEntries.STATE.remove();
+	}
+
+	/**
+	 * Returns (and removes) the entries collected for the current thread.
+	 */
+	public static List<PerformanceEntries> drain() {
+		return SubResults.drain(PerformanceEntries.STATE.get().pending);
+	}
+
+	private static String toLabel(String url) {
+		// Query strings and object IDs would make every label unique
+		return HttpRequestLog.normalize(url);
+	}
+
+	private static List<Entry> getSlowest(List<Entry> entries, int max) {
+		if (entries.size() <= max) { return entries; }
+		final List<Entry> slowest = new ArrayList<>(entries);
+		slowest.sort((a, b) -> Double.compare(b.duration, a.duration));
+		return slowest.subList(0, max);
+	}
+
+	private static SampleResult newSubResult(SampleResult parent, String label, double startMillis,
+		double elapsedMillis) {
+		return SubResults.newSubResult(parent, label, Math.round(startMillis), Math.round(elapsedMillis));
+	}
+
+	/**
+	 * Drains the current thread's entries, and attaches them to the given sample as sub-results:
+	 * {@code "page load <url>"} for each navigation (with {@code "[ttfb]"} and
+	 * {@code "[dom content loaded]"} sub-results of its own), {@code "paint <name>"} for each paint,
+	 * and {@code "resource <url>"} for each of the (up to {@value #MAX_RESOURCE_SAMPLES}) slowest
+	 * resources of each capture. The URLs are {@link HttpRequestLog#normalize(String) normalized}
+	 * as for the backend calls, so IDs and query strings don't produce a label per object. Returns
+	 * the number of sub-results attached directly to the sample.
+	 */
+	public static int attachTo(SampleResult parent) {
+		if (parent == null) { return 0; }
+		int count = 0;
+		for (PerformanceEntries entries : PerformanceEntries.drain()) {
+			final double origin = entries.timeOrigin;
+			if (entries.navigation != null) {
+				final Entry e = entries.navigation.entry;
+				final String label = "page load " + PerformanceEntries.toLabel(e.name);
+				SampleResult load = PerformanceEntries.newSubResult(parent, label, origin + e.startTime, e.duration);
+				load.setResponseMessage(e.toString());
+				load.setBytes(e.transferSize);
+				load.addRawSubResult(PerformanceEntries.newSubResult(parent, label + " [ttfb]", origin + e.startTime,
+					entries.navigation.responseStart - e.startTime));
+				load.addRawSubResult(PerformanceEntries.newSubResult(parent, label + " [dom content loaded]",
+					origin + e.startTime, entries.navigation.domContentLoaded - e.startTime));
+				parent.addRawSubResult(load);
+				count++;
+			}
+			for (Entry e : entries.paints) {
+				parent.addRawSubResult(PerformanceEntries.newSubResult(parent, "paint " + e.name, origin, e.startTime));
+				count++;
+			}
+			for (Entry e : PerformanceEntries.getSlowest(entries.resources, PerformanceEntries.MAX_RESOURCE_SAMPLES)) {
+				final String label = "resource " + PerformanceEntries.toLabel(e.name);
+				SampleResult r = PerformanceEntries.newSubResult(parent, label, origin + e.startTime, e.duration);
+				r.setResponseMessage(e.toString());
+				r.setBytes(e.transferSize);
+				parent.addRawSubResult(r);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Attaches the current thread's entries to the thread's previous sample result (i.e. the
+	 * Gherkin sampler's, when invoked from a PostProcessor).
+	 */
+	public static int attachToPrevious() {
+		return SubResults.attachToPrevious(PerformanceEntries::attachTo);
+	}
+
+	public final String url;
+	/** The epoch time (in milliseconds) the entries' times are relative to */
+	public final double timeOrigin;
+	public final Navigation navigation;
+	public final List<Entry> resources;
+	public final List<Entry> paints;
+
+	private PerformanceEntries(Map<?, ?> data) {
+		this.url = Objects.toString(data.get("url"), null);
+		this.timeOrigin = PerformanceEntries.toDouble(data.get("timeOrigin"));
+		Object n = data.get("navigation");
+		Navigation navigation = null;
+		if (n instanceof Iterable) {
+			for (Object o : Iterable.class.cast(n)) {
+				if (Map.class.isInstance(o)) {
+					navigation = new Navigation(Map.class.cast(o));
+				}
+			}
+		}
+		this.navigation = navigation;
+		this.resources = PerformanceEntries.toEntries(data.get("resource"));
+		this.paints = PerformanceEntries.toEntries(data.get("paint"));
+	}
+}
@@ -32,6 +32,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.function.BiFunction;
 import java.util.function.Supplier;
+import java.util.regex.Pattern;
 
 import org.openqa.selenium.By;
 import org.openqa.selenium.Capabilities;
@@ -51,6 +52,10 @@ import org.openqa.selenium.support.ui.WebDriverWait;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.arkcase.sim.tools.ActivityMonitor;
+import com.arkcase.sim.tools.JfrEvents;
+import com.arkcase.sim.tools.MetricsLog;
+import com.arkcase.sim.tools.StepTimings;
 import com.arkcase.sim.tools.Wrapper;
 
 public class WebDriverHelper implements SearchContext {
@@ -66,6 +71,10 @@ public class WebDriverHelper implements SearchContext {
 
 	private static final ExpectedCondition<Boolean> ALWAYS_TRUE = (d) -> Boolean.TRUE;
 
+	// Lambdas and objects without a toString() have names that vary between runs
+	private static final Pattern LAMBDA = Pattern.compile("\\$\\$Lambda\\$[\\w/$.]*");
+	private static final Pattern IDENTITY = Pattern.compile("(?<=[\\w$])@[0-9a-f]+\\b");
+
 	public static <T> Supplier<T> nullableSupplier(T value) {
 		return (value != null ? () -> value : null);
 	}
@@ -79,7 +88,8 @@ public class WebDriverHelper implements SearchContext {
 	}
 
 	public static Object runJavaScript(WebDriver driver, String script, Object... args) {
-		return JavascriptExecutor.class.cast(driver).executeScript(script, args);
+		final JavascriptExecutor js = JavascriptExecutor.class.cast(driver);
+		return StepTimings.time(StepTimings.Category.SCRIPT, () -> js.executeScript(script, args));
 	}
 
 	public static Object runAsyncJavaScript(WebDriver driver, String script, Object... args) {
@@ -106,6 +116,11 @@ public class WebDriverHelper implements SearchContext {
 				}
 				return WebDriverHelper.NULL_ELEMENT;
 			}
+
+			@Override
+			public String toString() {
+				return "element to no longer be visible: " + by;
+			}
 		};
 	}
 
@@ -115,6 +130,11 @@ public class WebDriverHelper implements SearchContext {
 			public Boolean apply(WebDriver driver) {
 				return (condition.apply(driver) != null);
 			}
+
+			@Override
+			public String toString() {
+				return condition.toString();
+			}
 		};
 	}
 
@@ -131,9 +151,37 @@ public class WebDriverHelper implements SearchContext {
 				}
 				return null;
 			}
+
+			@Override
+			public String toString() {
+				return String.format("element found by %s to %sbe selected", by, (selected ? "" : "not "));
+			}
 		};
 	}
 
+	/**
+	 * Describes the given condition by way of its {@link Object#toString() toString()}, minus the
+	 * parts which vary between runs (i.e. lambda and object identities).
+	 */
+	public static String describeCondition(ExpectedCondition<?> condition) {
+		String name = WebDriverHelper.LAMBDA.matcher(String.valueOf(condition)).replaceAll("\\$\\$Lambda");
+		return WebDriverHelper.IDENTITY.matcher(name).replaceAll("");
+	}
+
+	/**
+	 * Describes a wait's target without its identity: elements found by the browser describe the
+	 * locator they were found with (minus the browser session), and other elements are just
+	 * "element".
+	 */
+	private static String describeTarget(Object target) {
+		if (!WebElement.class.isInstance(target)) { return String.valueOf(target); }
+		// i.e. "[[ChromeDriver: chrome on LINUX (session)] -> css selector: .name]"
+		String element = String.valueOf(Wrapper.unwrap(WebElement.class.cast(target)));
+		int arrow = element.lastIndexOf(" -> ");
+		if (arrow < 0) { return "element"; }
+		return "element " + element.substring(arrow + 4).replaceAll("\\]+$", "");
+	}
+
 	public static enum WaitType {
 		//
 		PRESENT, //
@@ -256,7 +304,69 @@ public class WebDriverHelper implements SearchContext {
 			if (this.errorMessage != null) {
 				waiter = waiter.withMessage(this.errorMessage);
 			}
-			return waiter.until(condition);
+			final FluentWait<WebDriver> w = waiter;
+			final Object event = JfrEvents.beginWait();
+			final boolean logged = MetricsLog.isActive();
+			final boolean monitored = ActivityMonitor.isActive();
+			if ((event == null) && !logged && !monitored) {
+				return StepTimings.time(StepTimings.Category.WAIT, () -> w.until(condition));
+			}
+
+			// Count the polls for the JFR event
+			final int[] polls = {
+				0
+			};
+			final ExpectedCondition<T> counted = new ExpectedCondition<T>() {
+				@Override
+				public T apply(WebDriver driver) {
+					polls[0]++;
+					return condition.apply(driver);
+				}
+
+				@Override
+				public String toString() {
+					return condition.toString();
+				}
+			};
+			final String target = describeTarget();
+			final String description = (target != null ? condition + " on " + target : condition.toString());
+			// Waits are aggregated by a key which is the same for every wait on the same thing
+			final String key = describeKey(condition);
+			if (monitored) {
+				ActivityMonitor.waitStarted(description);
+			}
+			final long start = System.nanoTime();
+			boolean satisfied = false;
+			try {
+				T ret = StepTimings.time(StepTimings.Category.WAIT, () -> w.until(counted));
+				satisfied = true;
+				return ret;
+			} finally {
+				final long elapsed = System.nanoTime() - start;
+				JfrEvents.endWait(event, condition, target, period.toMillis(), polls[0], satisfied);
+				if (logged) {
+					MetricsLog.recordWait(key, elapsed);
+				}
+				if (monitored) {
+					// Waits are accounted to their locator, if they have one, same as in the metrics log
+					ActivityMonitor.waitEnded(key, elapsed);
+				}
+			}
+		}
+
+		/**
+		 * Describes what's being waited on, if it's not obvious from the condition itself.
+		 */
+		protected String describeTarget() {
+			return null;
+		}
+
+		/**
+		 * Returns the key the wait's time is aggregated under, which must be the same for every
+		 * wait on the same thing (i.e. it can't include element or lambda identities).
+		 */
+		protected String describeKey(ExpectedCondition<?> condition) {
+			return WebDriverHelper.describeCondition(condition);
 		}
 	}
 
@@ -345,6 +455,18 @@ public class WebDriverHelper implements SearchContext {
 		public final R perform() {
 			return until(this.conditionRenderer.apply(this.target, this.waitType));
 		}
+
+		@Override
+		protected String describeTarget() {
+			if (this.target == null) { return null; }
+			return String.format("%s (%s)", this.target, this.waitType);
+		}
+
+		@Override
+		protected String describeKey(ExpectedCondition<?> condition) {
+			if (this.target == null) { return super.describeKey(condition); }
+			return String.format("%s (%s)", WebDriverHelper.describeTarget(this.target), this.waitType);
+		}
 	}
 
 	public class WebElementWait extends TargettedWait<WebElement, Boolean> {
@@ -439,8 +561,10 @@ public class WebDriverHelper implements SearchContext {
 
 	public WebDriverHelper(WebDriver browser) {
 		this.browser = Objects.requireNonNull(browser, "Must provide a WebDriver instance");
-		if (RemoteWebDriver.class.isInstance(browser)) {
-			this.remoteBrowser = RemoteWebDriver.class.cast(browser);
+		// Look past any decorators (i.e. instrumentation)
+		WebDriver raw = Wrapper.unwrap(browser);
+		if (RemoteWebDriver.class.isInstance(raw)) {
+			this.remoteBrowser = RemoteWebDriver.class.cast(raw);
 			this.capabilities = this.remoteBrowser.getCapabilities();
 		} else {
 			this.remoteBrowser = null;
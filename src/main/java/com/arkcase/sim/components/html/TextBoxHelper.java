@@ -27,6 +27,7 @@
 package com.arkcase.sim.components.html;
 
 import java.nio.CharBuffer;
+import java.util.Collections;
 
 import org.apache.commons.lang3.StringUtils;
 import org.openqa.selenium.By;
@@ -36,13 +37,48 @@ import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 
 import com.arkcase.sim.components.WebDriverHelper;
+import com.arkcase.sim.tools.ScriptTools;
+import com.arkcase.sim.tools.Wrapper;
 
 public class TextBoxHelper extends WaitHelper {
 
+	private static final String INJECT_TEXT_JS = //
+		"" + //
+			"var e = arguments[0];" + //
+			"e.focus();" + //
+			"e.value = (arguments[1] !== null ? arguments[1] : '');" + //
+			// Let AngularJS (and anyone else listening) know the value changed
+			"['input', 'change', 'blur'].forEach(function(t) {" + //
+			"    e.dispatchEvent(new Event(t, { bubbles : true }));" + //
+			"});";
+
+	private static final ScriptTools.Library LIBRARY = new ScriptTools.Library("textBoxHelper",
+		Collections.singletonMap("injectText", TextBoxHelper.INJECT_TEXT_JS));
+
+	/**
+	 * Sets the element's value in a single script execution, instead of typing it in one keystroke
+	 * at a time, and fires the {@code input}, {@code change} and {@code blur} events so the page
+	 * picks up the change. This won't trigger any key handlers, so for elements that rely on those
+	 * {@link #sendKeys(WebElement, String)} must be used instead.
+	 */
+	public static void injectText(WebDriver browser, WebElement element, String value) {
+		TextBoxHelper.LIBRARY.call(browser, "injectText", Wrapper.unwrap(element), value);
+	}
+
 	public TextBoxHelper(WebDriver browser) {
 		super(browser);
 	}
 
+	public final WebElement injectText(WebElement element, String value) {
+		if (element == null) { return null; }
+		TextBoxHelper.injectText(this.browser, element, value);
+		return element;
+	}
+
+	public final WebElement injectText(By element, String value) {
+		return injectText(waitForElement(element, WaitType.VISIBLE), value);
+	}
+
 	public final void clearText(By element) {
 		clearText(this.browser.findElement(element));
 	}
@@ -32,6 +32,9 @@ import org.jbehave.core.annotations.Given;
 import org.jbehave.core.annotations.Then;
 import org.jbehave.core.annotations.When;
 
+import com.arkcase.sim.components.AngularProfiler;
+import com.arkcase.sim.components.HttpRequestLog;
+
 public class AngularSteps extends BasicWebDriverSteps {
 
 	@Given("the page is ready")
@@ -93,4 +96,52 @@ public class AngularSteps extends BasicWebDriverSteps {
 	public void givenAngularIsNotPresent() {
 		if (getAngularHelper().isAngularPresent()) { throw new IllegalStateException("Angular is present"); }
 	}
+
+	/**
+	 * Records the backend calls made by the page (see {@link HttpRequestLog}). The recorder is
+	 * installed right away, so the calls triggered by the next step are seen.
+	 */
+	@Given("backend calls are recorded")
+	@When("recording backend calls")
+	@Alias("record backend calls")
+	public void recordBackendCalls() {
+		HttpRequestLog.setEnabled(true);
+		getAngularHelper().collectHttpRequests();
+	}
+
+	@Given("backend calls are not recorded")
+	@When("discarding backend calls")
+	@Alias("discard backend calls")
+	public void discardBackendCalls() {
+		HttpRequestLog.setEnabled(false);
+	}
+
+	@Then("collect the backend calls")
+	public void collectBackendCalls() {
+		getAngularHelper().collectHttpRequests();
+	}
+
+	/**
+	 * Profiles the time spent in AngularJS digests and long tasks during each step (see
+	 * {@link AngularProfiler}). The profiler is installed right away, so the next step is covered.
+	 */
+	@Given("the client is profiled")
+	@When("profiling the client")
+	@Alias("profile the client")
+	public void profileClient() {
+		AngularProfiler.setEnabled(true);
+		getAngularHelper().collectClientProfile();
+	}
+
+	@Given("the client is not profiled")
+	@When("not profiling the client")
+	@Alias("stop profiling the client")
+	public void stopProfilingClient() {
+		AngularProfiler.setEnabled(false);
+	}
+
+	@Then("collect the client profile")
+	public void collectClientProfile() {
+		getAngularHelper().collectClientProfile();
+	}
 }
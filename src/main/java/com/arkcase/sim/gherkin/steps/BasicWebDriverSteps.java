@@ -28,18 +28,24 @@ package com.arkcase.sim.gherkin.steps;
 
 import java.awt.GraphicsEnvironment;
 import java.awt.Toolkit;
-import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Objects;
 import java.util.Set;
 
-import org.apache.commons.io.FileUtils;
+import javax.management.JMException;
+
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.jbehave.core.annotations.AfterScenario;
+import org.jbehave.core.annotations.AfterScenario.Outcome;
 import org.jbehave.core.annotations.Alias;
 import org.jbehave.core.annotations.Aliases;
+import org.jbehave.core.annotations.BeforeScenario;
 import org.jbehave.core.annotations.Given;
 import org.jbehave.core.annotations.Named;
 import org.jbehave.core.annotations.Then;
@@ -51,6 +57,18 @@ import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebDriver.Window;
 
+import com.arkcase.sim.components.AngularProfiler;
+import com.arkcase.sim.components.BrowserMemory;
+import com.arkcase.sim.components.DomSnapshot;
+import com.arkcase.sim.components.HttpRequestLog;
+import com.arkcase.sim.components.PerformanceEntries;
+import com.arkcase.sim.tools.ActivityMonitor;
+import com.arkcase.sim.tools.ArtifactWriter;
+import com.arkcase.sim.tools.BrowserPool;
+import com.arkcase.sim.tools.MetricsLog;
+import com.arkcase.sim.tools.PageSourceArchive;
+import com.arkcase.sim.tools.PageStateBuffer;
+import com.arkcase.sim.tools.StepTimings;
 import com.armedia.commons.jmeter.gherkin.Gherkin;
 
 @Gherkin.Steps
@@ -61,8 +79,17 @@ public class BasicWebDriverSteps extends WebDriverClient {
 	public static final String DEFAULT_PAGE_SOURCE_DIRECTORY = "pagesources";
 	public static final String DEFAULT_PAGE_SOURCE_NAME = "pagesource.html";
 	public static final String DEFAULT_PAGE_SOURCE_EXTENSION = "html";
+	public static final String SCREENSHOT_EXTENSION = "png";
 	public static final String DEFAULT_SNAPSHOT_DIRECTORY = "snapshot";
 	public static final String DEFAULT_SNAPSHOT_NAME = "snapshot";
+	public static final String DEFAULT_FAILURE_DIRECTORY = "failures";
+	public static final String DEFAULT_METRICS_DIRECTORY = "metrics";
+
+	private static final ThreadLocal<Boolean> ARCHIVE_PAGE_SOURCES = ThreadLocal.withInitial(() -> Boolean.FALSE);
+	private static final ThreadLocal<PageStateBuffer> PAGE_STATES = new ThreadLocal<>();
+	private static final ThreadLocal<Boolean> PAGE_STATE_SCREENSHOTS = ThreadLocal.withInitial(() -> Boolean.FALSE);
+	private static final ThreadLocal<Boolean> SCENARIO_HOOK_DONE = ThreadLocal.withInitial(() -> Boolean.FALSE);
+	private static final ThreadLocal<Boolean> COLLECT_BROWSER_TIMINGS = ThreadLocal.withInitial(() -> Boolean.FALSE);
 
 	@When("switching to the main page")
 	@Then("switch to the main page")
@@ -84,6 +111,28 @@ public class BasicWebDriverSteps extends WebDriverClient {
 		getBrowser(true);
 	}
 
+	/**
+	 * Draws a browser from the pool (see {@link BrowserPool}), to be used for the rest of the
+	 * iteration instead of starting a new one. It's returned to the pool automatically if the
+	 * scenario fails.
+	 */
+	@Given("a browser is drawn from the pool")
+	@When("drawing a browser from the pool")
+	@Alias("draw a browser from the pool")
+	public void drawBrowserFromPool() {
+		WebDriverClient.drawPooledBrowser();
+	}
+
+	/**
+	 * Returns the browser to the pool, which clears its cookies, storage and extra windows so
+	 * nothing leaks into the next iteration.
+	 */
+	@Then("return the browser to the pool")
+	@Alias("release the browser")
+	public void returnBrowserToPool() {
+		WebDriverClient.returnPooledBrowser();
+	}
+
 	@Given("the browser URL is not $url")
 	public void checkBrowserNotUrl(@Named("url") String url) {
 		checkBrowserUrl(url, false, (u, c) -> {
@@ -226,24 +275,32 @@ public class BasicWebDriverSteps extends WebDriverClient {
 	@Alias("go to $url")
 	public void navigateTo(@Named("url") String url) {
 		getBrowser().navigate().to(url);
+		captureNavigationState("navigate");
+		afterNavigating();
 	}
 
 	@Then("navigate backward")
 	@Alias("go back")
 	public void navigateBack() {
 		getBrowser().navigate().back();
+		captureNavigationState("back");
+		afterNavigating();
 	}
 
 	@Then("navigate forward")
 	@Alias("go forward")
 	public void navigateForward() {
 		getBrowser().navigate().forward();
+		captureNavigationState("forward");
+		afterNavigating();
 	}
 
 	@Then("reload the page")
 	@Alias("refresh the page")
 	public void triggerReload() {
 		getBrowser().navigate().refresh();
+		captureNavigationState("reload");
+		afterNavigating();
 	}
 
 	@Then("close the browser window")
@@ -272,6 +329,15 @@ public class BasicWebDriverSteps extends WebDriverClient {
 		takeScreenshot(dir, name, Instant.now());
 	}
 
+	private static Path getArtifactPath(String dir, String baseName, Instant instant, String extension) {
+		// No canonicalization or directory creation here - that's left to the artifact writer
+		return Paths.get(dir).toAbsolutePath().normalize().resolve(baseName //
+			+ ".@" + String.format("%08x", instant.toEpochMilli()) //
+			+ ".t" + String.format("%08x", Thread.currentThread().getId()) //
+			+ "." + extension //
+		);
+	}
+
 	private void takeScreenshot(String dir, String name, Instant instant) {
 		WebDriver browser = getBrowser();
 		if (!TakesScreenshot.class.isInstance(browser)) {
@@ -280,31 +346,31 @@ public class BasicWebDriverSteps extends WebDriverClient {
 				"The current WebDriver instance " + browserClass + " does not support taking screenshots");
 		}
 
-		// First things first: can we create a "screenshots" directory?
-		File baseDir = new File(dir).getAbsoluteFile();
-		try {
-			baseDir = baseDir.getCanonicalFile();
-		} catch (IOException e) {
-			// Ignore this error...for now...
-		}
-		if (!baseDir.mkdirs() && !baseDir.isDirectory()) {
-			throw new RuntimeException("Failed to find or create the screenshots directory at [" + baseDir + "]");
-		}
-
 		TakesScreenshot ts = TakesScreenshot.class.cast(browser);
-		File screenShot = ts.getScreenshotAs(OutputType.FILE);
-		File target = new File(baseDir, name //
-			+ ".@" + String.format("%08x", instant.toEpochMilli()) //
-			+ ".t" + String.format("%08x", Thread.currentThread().getId()) //
-			+ "." + FilenameUtils.getExtension(screenShot.getName()) //
-		);
+		byte[] screenShot = ts.getScreenshotAs(OutputType.BYTES);
+		ArtifactWriter.getDefault().write(
+			BasicWebDriverSteps.getArtifactPath(dir, name, instant, BasicWebDriverSteps.SCREENSHOT_EXTENSION),
+			screenShot);
+	}
 
-		try {
-			FileUtils.moveFile(screenShot, target);
-		} catch (IOException e) {
-			throw new RuntimeException(
-				"Failed to move the screenshot at [" + screenShot.getAbsolutePath() + "] to [" + target + "]", e);
-		}
+	@Given("page sources are archived")
+	@When("archiving page sources")
+	@Alias("archive page sources")
+	public void archivePageSources() {
+		BasicWebDriverSteps.ARCHIVE_PAGE_SOURCES.set(Boolean.TRUE);
+	}
+
+	@Given("page sources are saved as files")
+	@When("saving page sources as files")
+	@Alias("save page sources as files")
+	public void savePageSourcesAsFiles() {
+		BasicWebDriverSteps.ARCHIVE_PAGE_SOURCES.remove();
+	}
+
+	@Then("close the page source archives")
+	public void closePageSourceArchives() throws InterruptedException {
+		flushArtifacts();
+		PageSourceArchive.closeAll();
 	}
 
 	@Then("save the page source")
@@ -328,35 +394,311 @@ public class BasicWebDriverSteps extends WebDriverClient {
 	}
 
 	private void savePageSource(String dir, String name, Instant instant) {
-		WebDriver browser = getBrowser();
-
-		// First things first: can we create a "screenshots" directory?
-		File baseDir = new File(dir).getAbsoluteFile();
-		try {
-			baseDir = baseDir.getCanonicalFile();
-		} catch (IOException e) {
-			// Ignore this error...for now...
-		}
-		if (!baseDir.mkdirs() && !baseDir.isDirectory()) {
-			throw new RuntimeException("Failed to find or create the page sources directory at [" + baseDir + "]");
-		}
+		writePageSource(dir, name, instant, getBrowser().getPageSource());
+	}
 
+	private void writePageSource(String dir, String name, Instant instant, String source) {
 		String baseName = FilenameUtils.getBaseName(name);
 		String extension = FilenameUtils.getExtension(name);
 		if (StringUtils.isBlank(extension)) {
 			extension = BasicWebDriverSteps.DEFAULT_PAGE_SOURCE_EXTENSION;
 		}
 
-		File target = new File(baseDir, baseName //
-			+ ".@" + String.format("%08x", instant.toEpochMilli()) //
-			+ ".t" + String.format("%08x", Thread.currentThread().getId()) //
-			+ "." + extension //
-		);
+		if (BasicWebDriverSteps.ARCHIVE_PAGE_SOURCES.get()) {
+			final Path archiveDir = Paths.get(dir).toAbsolutePath().normalize();
+			final long thread = Thread.currentThread().getId();
+			ArtifactWriter.getDefault().submit(archiveDir + "!" + baseName,
+				() -> PageSourceArchive.get(archiveDir).append(thread, baseName, instant, source));
+			return;
+		}
+
+		ArtifactWriter.getDefault().write(BasicWebDriverSteps.getArtifactPath(dir, baseName, instant, extension),
+			source, StandardCharsets.UTF_8);
+	}
+
+	@Given("the last $count page states are kept")
+	@When("keeping the last $count page states")
+	@Alias("keep the last $count page states")
+	public void keepPageStates(@Named("count") Integer count) {
+		keepPageStates(count, false);
+	}
+
+	@Given("the last $count page states are kept with screenshots")
+	@When("keeping the last $count page states with screenshots")
+	@Alias("keep the last $count page states with screenshots")
+	public void keepPageStatesWithScreenshots(@Named("count") Integer count) {
+		keepPageStates(count, true);
+	}
+
+	/**
+	 * Keeps the given number of page states. When the {@link StepTimings.Monitor} announces the
+	 * steps, the state is captured at the end of every step, so the buffer holds the last steps'
+	 * states (whatever they did). Otherwise, it's only captured after navigating, at the end of the
+	 * scenario, and when asked to remember it.
+	 */
+	private void keepPageStates(Integer count, boolean screenshots) {
+		Objects.requireNonNull(count, "Must provide the number of page states to keep");
+		BasicWebDriverSteps.PAGE_STATES.set(new PageStateBuffer(count));
+		BasicWebDriverSteps.PAGE_STATE_SCREENSHOTS.set(screenshots);
+		StepTimings.setStepEndAction((step) -> capturePageState(step, true));
+	}
+
+	@Given("page states are not kept")
+	@When("discarding the page states")
+	@Alias("discard the page states")
+	public void discardPageStates() {
+		BasicWebDriverSteps.PAGE_STATES.remove();
+		BasicWebDriverSteps.PAGE_STATE_SCREENSHOTS.remove();
+		StepTimings.setStepEndAction(null);
+	}
+
+	@Then("remember the page state")
+	public void rememberPageState() {
+		rememberPageState(null);
+	}
+
+	@Then("remember the page state as [$name]")
+	public void rememberPageState(@Named("name") String name) {
+		capturePageState(name, false);
+	}
+
+	/**
+	 * <p>
+	 * Captures the current page state into this thread's page state buffer, if one is active.
+	 * When {@code quietly} is {@code true}, failures to capture the state are ignored, since the
+	 * browser may well be in no condition to answer (i.e. after a failed step).
+	 * </p>
+	 */
+	private void capturePageState(String name, boolean quietly) {
+		final PageStateBuffer states = BasicWebDriverSteps.PAGE_STATES.get();
+		if (states == null) { return; }
+		try {
+			WebDriver browser = getBrowser();
+			byte[] screenshot = null;
+			if (BasicWebDriverSteps.PAGE_STATE_SCREENSHOTS.get() && TakesScreenshot.class.isInstance(browser)) {
+				screenshot = TakesScreenshot.class.cast(browser).getScreenshotAs(OutputType.BYTES);
+			}
+			states.add(name, browser.getCurrentUrl(), browser.getPageSource(), screenshot);
+		} catch (RuntimeException e) {
+			if (!quietly) { throw e; }
+		}
+	}
+
+	/**
+	 * Captures the page state after a navigation, unless the steps are announced by the
+	 * {@link StepTimings.Monitor}, since the state will be captured when the step ends anyway.
+	 */
+	private void captureNavigationState(String name) {
+		if (StepTimings.isMonitored()) { return; }
+		capturePageState(name, true);
+	}
+
+	/**
+	 * Collects the browser's performance entries after a navigation, and installs the backend call
+	 * recorder and the client profiler in the new document, if enabled for this thread. Failures
+	 * are ignored, since not every browser supports the Performance API.
+	 */
+	private void afterNavigating() {
+		if (BasicWebDriverSteps.COLLECT_BROWSER_TIMINGS.get()) {
+			try {
+				PerformanceEntries.collect(getBrowser());
+			} catch (RuntimeException e) {
+				// Ignore it
+			}
+		}
+		if (HttpRequestLog.isEnabled()) {
+			try {
+				HttpRequestLog.collect(getBrowser());
+			} catch (RuntimeException e) {
+				// Ignore it
+			}
+		}
+		if (AngularProfiler.isEnabled()) {
+			try {
+				AngularProfiler.collect(getBrowser());
+			} catch (RuntimeException e) {
+				// Ignore it
+			}
+		}
+	}
 
+	@Given("browser timings are collected")
+	@When("collecting browser timings")
+	@Alias("collect browser timings after navigating")
+	public void collectBrowserTimingsAfterNavigating() {
+		BasicWebDriverSteps.COLLECT_BROWSER_TIMINGS.set(Boolean.TRUE);
+	}
+
+	@Given("browser timings are not collected")
+	@When("discarding browser timings")
+	@Alias("discard browser timings")
+	public void discardBrowserTimings() {
+		BasicWebDriverSteps.COLLECT_BROWSER_TIMINGS.remove();
+		PerformanceEntries.reset();
+	}
+
+	@Then("collect the browser timings")
+	public void collectBrowserTimingsNow() {
+		PerformanceEntries.collect(getBrowser());
+	}
+
+	@BeforeScenario
+	public void resetScenarioHooks() {
+		BasicWebDriverSteps.SCENARIO_HOOK_DONE.remove();
+	}
+
+	/**
+	 * Keeps the step timings from merging the last step of the previous scenario with the first
+	 * one of this scenario, when they're the same step and no {@link StepTimings.Monitor} is
+	 * installed.
+	 */
+	@BeforeScenario
+	public void endStepTiming() {
+		StepTimings.endStep();
+	}
+
+	/**
+	 * Every steps class inherits the scenario hooks, so JBehave invokes them once per steps
+	 * instance. This makes sure the scenario's outcome is only handled on the first invocation.
+	 */
+	private static boolean firstScenarioHook() {
+		if (BasicWebDriverSteps.SCENARIO_HOOK_DONE.get()) { return false; }
+		BasicWebDriverSteps.SCENARIO_HOOK_DONE.set(Boolean.TRUE);
+		return true;
+	}
+
+	@AfterScenario(uponOutcome = Outcome.SUCCESS)
+	public void rememberScenarioPageState() {
+		if (!BasicWebDriverSteps.firstScenarioHook()) { return; }
+		capturePageState("scenario", true);
+	}
+
+	@Given("browser commands are instrumented")
+	@When("instrumenting browser commands")
+	@Alias("instrument browser commands")
+	public void instrumentBrowserCommands() {
+		WebDriverClient.setInstrumented(true);
+	}
+
+	@Given("browser commands are not instrumented")
+	@When("not instrumenting browser commands")
+	@Alias("stop instrumenting browser commands")
+	public void stopInstrumentingBrowserCommands() {
+		WebDriverClient.setInstrumented(false);
+	}
+
+	@Given("step timings are recorded")
+	@When("recording step timings")
+	@Alias("record step timings")
+	public void recordStepTimings() {
+		StepTimings.setEnabled(true);
+	}
+
+	@Given("step timings are not recorded")
+	@When("discarding step timings")
+	@Alias("discard step timings")
+	public void discardStepTimings() {
+		StepTimings.setEnabled(false);
+	}
+
+	@Given("browser memory is sampled every $seconds seconds")
+	@When("sampling browser memory every $seconds seconds")
+	@Alias("sample browser memory every $seconds seconds")
+	public void sampleBrowserMemory(@Named("seconds") Long seconds) {
+		Objects.requireNonNull(seconds, "Must provide a sampling interval");
+		BrowserMemory.setInterval(Duration.ofSeconds(seconds));
+	}
+
+	@Given("browser memory is not sampled")
+	@When("not sampling browser memory")
+	@Alias("stop sampling browser memory")
+	public void stopSamplingBrowserMemory() {
+		BrowserMemory.setInterval(null);
+	}
+
+	@Then("sample the browser memory")
+	public void sampleBrowserMemoryNow() {
+		BrowserMemory.sample(getBrowser());
+	}
+
+	@Then("save the browser memory samples")
+	public void saveBrowserMemorySamples() throws IOException {
+		saveBrowserMemorySamples(BasicWebDriverSteps.DEFAULT_METRICS_DIRECTORY);
+	}
+
+	/**
+	 * Exports every virtual user's memory samples as CSV, named after this node just like the
+	 * metrics log, so both can be collected together.
+	 */
+	@Then("save the browser memory samples to [$dir]")
+	public void saveBrowserMemorySamples(@Named("dir") String dir) throws IOException {
+		BrowserMemory.export(Paths.get(dir).toAbsolutePath().normalize()
+			.resolve("memory-" + MetricsLog.getNodeName() + ".csv"));
+	}
+
+	@Given("metrics are logged")
+	@When("logging metrics")
+	@Alias("log metrics")
+	public void logMetrics() throws IOException {
+		logMetrics(BasicWebDriverSteps.DEFAULT_METRICS_DIRECTORY);
+	}
+
+	/**
+	 * Starts writing step and wait durations to a mergeable histogram log in the given directory.
+	 * This is JVM-wide, so only the first thread to get here actually starts it.
+	 */
+	@Given("metrics are logged to [$dir]")
+	@When("logging metrics to [$dir]")
+	@Alias("log metrics to [$dir]")
+	public void logMetrics(@Named("dir") String dir) throws IOException {
+		MetricsLog.start(Paths.get(dir), MetricsLog.DEFAULT_INTERVAL);
+	}
+
+	@Then("stop logging metrics")
+	public void stopLoggingMetrics() {
+		MetricsLog.stop();
+	}
+
+	/**
+	 * Publishes what each virtual user is doing over JMX. This is JVM-wide, so only the first
+	 * thread to get here actually starts it.
+	 */
+	@Given("activity is monitored")
+	@When("monitoring activity")
+	@Alias("monitor activity")
+	public void monitorActivity() throws JMException {
+		ActivityMonitor.start();
+	}
+
+	@Then("stop monitoring activity")
+	public void stopMonitoringActivity() {
+		ActivityMonitor.stop();
+	}
+
+	@AfterScenario(uponOutcome = Outcome.FAILURE)
+	public void markStepTimingFailure() {
+		StepTimings.markFailed();
+	}
+
+	/**
+	 * Saves the page states (if they're being kept), and then returns the pooled browser (if one
+	 * was drawn), since a failed scenario never gets to the step which would have returned it.
+	 * The browser is returned last, since resetting it clears the page.
+	 */
+	@AfterScenario(uponOutcome = Outcome.FAILURE)
+	public void handleScenarioFailure() {
+		if (!BasicWebDriverSteps.firstScenarioHook()) { return; }
 		try {
-			FileUtils.write(target, browser.getPageSource(), StandardCharsets.UTF_8);
-		} catch (IOException e) {
-			throw new RuntimeException("Failed to save the page source to [" + target + "]", e);
+			final PageStateBuffer states = BasicWebDriverSteps.PAGE_STATES.get();
+			if (states == null) { return; }
+			capturePageState("failure", true);
+			Instant now = Instant.now();
+			states.flush(Paths.get(BasicWebDriverSteps.DEFAULT_FAILURE_DIRECTORY).toAbsolutePath().normalize()
+				.resolve( //
+					String.format("failure.@%08x.t%08x", now.toEpochMilli(), Thread.currentThread().getId()) //
+				), ArtifactWriter.getDefault());
+		} finally {
+			WebDriverClient.returnPooledBrowser();
 		}
 	}
 
@@ -377,9 +719,58 @@ public class BasicWebDriverSteps extends WebDriverClient {
 
 	@Then("take a full snapshot to [$dir] named [$name]")
 	public void takeSnapshot(@Named("dir") String dir, @Named("name") String name) {
+		takeSnapshot(dir, name, null);
+	}
+
+	@Then("take a snapshot of the element [$selector]")
+	public void takeElementSnapshot(@Named("selector") String selector) {
+		takeElementSnapshot(selector, BasicWebDriverSteps.DEFAULT_SNAPSHOT_NAME);
+	}
+
+	@Then("take a snapshot of the element [$selector] named [$name]")
+	public void takeElementSnapshot(@Named("selector") String selector, @Named("name") String name) {
+		takeElementSnapshot(selector, BasicWebDriverSteps.DEFAULT_SNAPSHOT_DIRECTORY, name);
+	}
+
+	@Then("take a snapshot of the element [$selector] to [$dir] named [$name]")
+	public void takeElementSnapshot(@Named("selector") String selector, @Named("dir") String dir,
+		@Named("name") String name) {
+		Objects.requireNonNull(StringUtils.trimToNull(selector), "Must provide a CSS selector for the element");
+		takeSnapshot(dir, name, selector);
+	}
+
+	/**
+	 * Captures the live DOM (with its form values, open dialogs and same-origin frames) in a
+	 * single script execution, plus a screenshot of either the whole viewport or, if a selector
+	 * is given, just the selected element.
+	 */
+	private void takeSnapshot(String dir, String name, String selector) {
 		Instant instant = Instant.now();
-		savePageSource(dir, name, instant);
-		takeScreenshot(dir, name, instant);
+		WebDriver browser = getBrowser();
+		DomSnapshot snapshot = DomSnapshot.capture(browser, selector);
+		byte[] screenShot = snapshot.takeScreenshot(browser);
+		writePageSource(dir, name, instant, snapshot.toHtml());
+		ArtifactWriter.getDefault().write(BasicWebDriverSteps.getArtifactPath(dir, FilenameUtils.getBaseName(name),
+			instant, BasicWebDriverSteps.SCREENSHOT_EXTENSION), screenShot);
+	}
+
+	@Then("wait for the artifacts to be written")
+	@Aliases(values = {
+		"flush the artifacts", //
+		"wait for the screenshots to be written", //
+		"wait for the page sources to be written", //
+	})
+	public void flushArtifacts() throws InterruptedException {
+		flushArtifacts(null);
+	}
+
+	@Then("wait up to $seconds seconds for the artifacts to be written")
+	public void flushArtifacts(@Named("seconds") Long seconds) throws InterruptedException {
+		ArtifactWriter writer = ArtifactWriter.getDefault();
+		if (!writer.flush(seconds != null ? Duration.ofSeconds(seconds) : null)) {
+			throw new IllegalStateException(
+				String.format("Timed out waiting for the artifacts to be written: %s", writer));
+		}
 	}
 
 	@Then("delete all the cookies")
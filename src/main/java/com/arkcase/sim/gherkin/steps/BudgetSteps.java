@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.gherkin.steps;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.jbehave.core.annotations.Alias;
+import org.jbehave.core.annotations.Named;
+import org.jbehave.core.annotations.Then;
+import org.openqa.selenium.WebDriver;
+
+import com.arkcase.sim.components.BrowserMemory;
+import com.arkcase.sim.components.PerformanceEntries;
+import com.arkcase.sim.tools.StepTimings;
+import com.arkcase.sim.tools.StepTimings.Category;
+import com.arkcase.sim.tools.StepTimings.Record;
+
+/**
+ * <p>
+ * Steps which check the resources used by the previous step against a budget, so performance
+ * contracts can be written into the stories right next to the functional steps:
+ * </p>
+ *
+ * <pre>
+ * Given step timings are recorded
+ * ...
+ * When selecting the queue [Fulfill]
+ * Then the previous step used at most 10 browser commands
+ * And the previous step used at most 2000 ms of wait time
+ * </pre>
+ * <p>
+ * The budgets are checked against the {@link StepTimings} records, so these steps require step
+ * timings to be enabled, and the {@link StepTimings.Monitor} to be installed so the steps can be
+ * told apart. They must directly follow the step they're checking, and don't count as steps
+ * themselves, so several of them can be chained. A previous step which didn't use the browser
+ * used nothing, and a previous step which wasn't recorded (i.e. the one that enabled the timings)
+ * fails the check.
+ * </p>
+ * <p>
+ * The page budgets are checked against what the browser itself measured (see
+ * {@link PerformanceEntries}) for the most recently loaded page. They collect the browser's
+ * latest entries first, so they do use the browser, and should follow any previous step budgets:
+ * </p>
+ *
+ * <pre>
+ * When navigating to https://arkcase.local/
+ * Then the page loaded within 3000 ms
+ * And no resource took more than 1000 ms
+ * </pre>
+ * <p>
+ * The heap budget is meant for soak tests: placed at the end of each iteration, it samples the
+ * browser's memory (see {@link BrowserMemory}) and fails the iteration if the heap grew by more
+ * than the budget since the sample taken by the same step the given number of iterations ago.
+ * </p>
+ */
+public class BudgetSteps extends BasicWebDriverSteps {
+
+	private static final long MB = 1024 * 1024;
+
+	private Record getPreviousStep() {
+		if (!StepTimings.isEnabled()) {
+			throw new IllegalStateException("Step timings aren't being recorded, so step budgets can't be checked"
+				+ " (use \"Given step timings are recorded\")");
+		}
+		Record record = StepTimings.getPreviousRecord();
+		if (record == null) { throw new IllegalStateException("The previous step wasn't timed"); }
+		return record;
+	}
+
+	private void checkBudget(String what, long used, Long budget, Record record) {
+		Objects.requireNonNull(budget, "Must provide a budget");
+		if (used > budget) {
+			throw new IllegalStateException(String.format("The step [%s] used %d %s, exceeding its budget of %d: %s",
+				record.name, used, what, budget, record));
+		}
+	}
+
+	private static long toMillis(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+	@Then("the previous step used at most $count browser commands")
+	@Alias("the previous step issued at most $count browser commands")
+	public void checkCommandBudget(@Named("count") Long count) {
+		Record r = getPreviousStep();
+		checkBudget("browser commands", r.getCount(Category.COMMAND) + r.getCount(Category.SCRIPT), count, r);
+	}
+
+	@Then("the previous step used at most $count browser scripts")
+	@Alias("the previous step executed at most $count browser scripts")
+	public void checkScriptBudget(@Named("count") Long count) {
+		Record r = getPreviousStep();
+		checkBudget("browser scripts", r.getCount(Category.SCRIPT), count, r);
+	}
+
+	@Then("the previous step used at most $count waits")
+	public void checkWaitCountBudget(@Named("count") Long count) {
+		Record r = getPreviousStep();
+		checkBudget("waits", r.getCount(Category.WAIT), count, r);
+	}
+
+	@Then("the previous step used at most $ms ms of wait time")
+	@Alias("the previous step waited at most $ms ms")
+	public void checkWaitBudget(@Named("ms") Long ms) {
+		Record r = getPreviousStep();
+		checkBudget("ms of wait time", BudgetSteps.toMillis(r.getNanos(Category.WAIT)), ms, r);
+	}
+
+	@Then("the previous step used at most $ms ms of browser time")
+	public void checkBrowserTimeBudget(@Named("ms") Long ms) {
+		Record r = getPreviousStep();
+		checkBudget("ms of browser time",
+			BudgetSteps.toMillis(r.getNanos(Category.COMMAND) + r.getNanos(Category.SCRIPT)), ms, r);
+	}
+
+	@Then("the previous step took at most $ms ms")
+	public void checkTimeBudget(@Named("ms") Long ms) {
+		Record r = getPreviousStep();
+		checkBudget("ms", BudgetSteps.toMillis(r.elapsedNanos), ms, r);
+	}
+
+	private PerformanceEntries.Navigation getPageLoad() {
+		PerformanceEntries.collect(getBrowser());
+		PerformanceEntries.Navigation navigation = PerformanceEntries.getPageLoad();
+		if (navigation == null) { throw new IllegalStateException("No page load has been measured yet"); }
+		return navigation;
+	}
+
+	@Then("the page loaded within $ms ms")
+	@Alias("the page load took at most $ms ms")
+	public void checkPageLoadBudget(@Named("ms") Long ms) {
+		Objects.requireNonNull(ms, "Must provide a budget");
+		final PerformanceEntries.Entry load = getPageLoad().entry;
+		if (load.duration > ms) {
+			throw new IllegalStateException(String.format(
+				"The page [%s] took %.0f ms to load, exceeding its budget of %d", load.name, load.duration, ms));
+		}
+	}
+
+	@Then("no resource took more than $ms ms")
+	@Alias("no resource took longer than $ms ms")
+	public void checkResourceBudget(@Named("ms") Long ms) {
+		Objects.requireNonNull(ms, "Must provide a budget");
+		PerformanceEntries.collect(getBrowser());
+		final PerformanceEntries.Entry slowest = PerformanceEntries.getSlowest(PerformanceEntries.getPageResources());
+		if ((slowest != null) && (slowest.duration > ms)) {
+			throw new IllegalStateException(
+				String.format("The resource [%s] on page [%s] took %.0f ms, exceeding the budget of %d", slowest.name,
+					PerformanceEntries.getPageUrl(), slowest.duration, ms));
+		}
+	}
+
+	@Then("the browser heap grew at most $mb MB over the last $count iterations")
+	public void checkHeapGrowthBudget(@Named("mb") Long mb, @Named("count") Integer count) {
+		Objects.requireNonNull(mb, "Must provide a budget");
+		Objects.requireNonNull(count, "Must provide a number of iterations");
+		final WebDriver browser = getBrowser();
+		final BrowserMemory.Sample sample = BrowserMemory.sample(browser);
+		if (!sample.hasHeap()) {
+			throw new IllegalStateException(
+				"The browser doesn't report its heap size (only Chromium-based browsers do)");
+		}
+		final BrowserMemory.Sample base = BrowserMemory.checkpoint(browser, sample, count);
+		if (base == null) { return; }
+		final long growth = sample.usedHeap - base.usedHeap;
+		if (growth > (mb * BudgetSteps.MB)) {
+			throw new IllegalStateException(String.format(
+				"The browser heap grew by %.1f MB over the last %d iterations (from %d to %d bytes), exceeding"
+					+ " the budget of %d MB",
+				(double) growth / BudgetSteps.MB, count, base.usedHeap, sample.usedHeap, mb));
+		}
+	}
+}
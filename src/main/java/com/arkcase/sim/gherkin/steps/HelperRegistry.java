@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.gherkin.steps;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.openqa.selenium.WebDriver;
+
+/**
+ * <p>
+ * A registry of helper factories, each identified by a typed {@link Key}. Each key is assigned a
+ * unique index when it's registered, so a {@link Helpers} cache can resolve a helper with a single
+ * array access instead of a lookup by name, and build it with its factory instead of through
+ * reflection.
+ * </p>
+ * <p>
+ * Helpers should be registered once, and the resulting {@link Key} kept in a {@code static final}
+ * field. Types which weren't explicitly registered are registered on first use via
+ * {@link #getKey(Class)}, using their public {@code (WebDriver)} constructor.
+ * </p>
+ */
+public final class HelperRegistry {
+
+	public static final class Key<T> {
+		private final int index;
+		private final Class<T> type;
+		private final Function<WebDriver, T> factory;
+
+		private Key(int index, Class<T> type, Function<WebDriver, T> factory) {
+			this.index = index;
+			this.type = type;
+			this.factory = factory;
+		}
+
+		public Class<T> getType() {
+			return this.type;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Key [index=%d, type=%s]", this.index, this.type.getCanonicalName());
+		}
+	}
+
+	/**
+	 * The helpers built for a single {@link WebDriver} instance. Instances are not thread-safe, and
+	 * are meant to be confined to the thread (i.e. the Gherkin context) that owns the browser.
+	 */
+	public static final class Helpers {
+		private final WebDriver browser;
+		private Object[] helpers = new Object[HelperRegistry.NEXT.get()];
+
+		public Helpers(WebDriver browser) {
+			this.browser = Objects.requireNonNull(browser, "Must provide a WebDriver instance");
+		}
+
+		public WebDriver getBrowser() {
+			return this.browser;
+		}
+
+		public <T> T get(Key<T> key) {
+			final int index = key.index;
+			if (index >= this.helpers.length) {
+				// More keys were registered since we were created
+				this.helpers = Arrays.copyOf(this.helpers, Math.max(index + 1, HelperRegistry.NEXT.get()));
+			}
+			Object o = this.helpers[index];
+			if (o == null) {
+				o = Objects.requireNonNull(key.factory.apply(this.browser),
+					"The factory for " + key.type.getCanonicalName() + " returned a null helper");
+				this.helpers[index] = o;
+			}
+			@SuppressWarnings("unchecked")
+			T t = (T) o;
+			return t;
+		}
+	}
+
+	private static final AtomicInteger NEXT = new AtomicInteger(0);
+	private static final ConcurrentMap<Class<?>, Key<?>> KEYS = new ConcurrentHashMap<>();
+
+	private HelperRegistry() {
+	}
+
+	/**
+	 * Registers the factory for the given helper type, and returns its {@link Key}. If the type was
+	 * already registered, the existing {@link Key} is returned and the given factory is ignored.
+	 */
+	public static <T> Key<T> register(Class<T> type, Function<WebDriver, T> factory) {
+		Objects.requireNonNull(type, "Must provide a helper type");
+		Objects.requireNonNull(factory, "Must provide a factory for the helper");
+		@SuppressWarnings("unchecked")
+		Key<T> key = (Key<T>) HelperRegistry.KEYS.computeIfAbsent(type,
+			(t) -> new Key<>(HelperRegistry.NEXT.getAndIncrement(), type, factory));
+		return key;
+	}
+
+	private static <T> Function<WebDriver, T> reflectiveFactory(Class<T> type) {
+		final Constructor<T> constructor;
+		try {
+			constructor = type.getConstructor(WebDriver.class);
+		} catch (NoSuchMethodException | SecurityException e) {
+			throw new RuntimeException(
+				"The helper " + type.getCanonicalName() + " has no public constructor that takes a WebDriver", e);
+		}
+		return (d) -> {
+			try {
+				return constructor.newInstance(d);
+			} catch (InstantiationException | IllegalAccessException | IllegalArgumentException
+				| InvocationTargetException e) {
+				throw new RuntimeException("Failed to instantiate a copy of " + type.getCanonicalName(), e);
+			}
+		};
+	}
+
+	/**
+	 * Returns the {@link Key} for the given helper type, registering it with a factory that uses
+	 * its public {@code (WebDriver)} constructor if it hasn't been registered yet.
+	 */
+	public static <T> Key<T> getKey(Class<T> type) {
+		Objects.requireNonNull(type, "Must provide a helper type");
+		@SuppressWarnings("unchecked")
+		Key<T> key = (Key<T>) HelperRegistry.KEYS.get(type);
+		if (key != null) { return key; }
+		return HelperRegistry.register(type, HelperRegistry.reflectiveFactory(type));
+	}
+}
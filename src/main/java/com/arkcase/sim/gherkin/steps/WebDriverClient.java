@@ -26,7 +26,6 @@
  *******************************************************************************/
 package com.arkcase.sim.gherkin.steps;
 
-import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.Map;
@@ -47,6 +46,8 @@ import org.openqa.selenium.html5.WebStorage;
 import com.arkcase.sim.components.AngularHelper;
 import com.arkcase.sim.components.WebDriverHelper;
 import com.arkcase.sim.components.html.WaitHelper;
+import com.arkcase.sim.tools.BrowserPool;
+import com.arkcase.sim.tools.InstrumentedWebDriver;
 import com.armedia.commons.jmeter.gherkin.GherkinContext;
 
 public class WebDriverClient {
@@ -62,6 +63,32 @@ public class WebDriverClient {
 		"y : window.screenY " + //
 		"}";
 
+	private static final HelperRegistry.Key<AngularHelper> ANGULAR_HELPER = HelperRegistry
+		.register(AngularHelper.class, AngularHelper::new);
+
+	/**
+	 * The browser resolved from the Gherkin context, along with its (possibly instrumented)
+	 * decorator and its helpers, so they're only built once per browser instead of on every call.
+	 */
+	private static final class Binding {
+		private final WebDriver source;
+		private final WebDriver browser;
+		private final HelperRegistry.Helpers helpers;
+
+		private Binding(WebDriver source, boolean instrumented) {
+			this.source = source;
+			this.browser = (instrumented ? InstrumentedWebDriver.instrument(source) : source);
+			this.helpers = new HelperRegistry.Helpers(this.browser);
+		}
+	}
+
+	private static final ThreadLocal<Binding> BINDING = new ThreadLocal<>();
+
+	private static final ThreadLocal<Boolean> INSTRUMENTED = ThreadLocal.withInitial(() -> Boolean.TRUE);
+
+	// The browser drawn from the pool by this thread, if any
+	private static final ThreadLocal<WebDriver> POOLED_BROWSER = new ThreadLocal<>();
+
 	public class ScreenInfo {
 
 		/** The Browser window's position within the entire screen space */
@@ -129,9 +156,40 @@ public class WebDriverClient {
 		}
 	}
 
+	/**
+	 * Returns the browser binding for the browser currently in the thread's Gherkin context. The
+	 * browser is looked up on every call, so replacing or removing it (i.e. from a script) takes
+	 * effect immediately, but the decorator and helpers are only rebuilt when it's a different
+	 * browser than the last one seen.
+	 */
+	private static Binding getBinding() {
+		WebDriver browser = GherkinContext.get().getEnv().getAs("browser", WebDriver.class);
+		if (browser == null) {
+			// Fall back to the browser drawn from the pool, if any
+			browser = WebDriverClient.POOLED_BROWSER.get();
+		}
+		if (browser == null) {
+			WebDriverClient.BINDING.remove();
+			return null;
+		}
+
+		final Binding binding = WebDriverClient.BINDING.get();
+		if ((binding != null) && (binding.source == browser)) { return binding; }
+		final Binding next = new Binding(browser, WebDriverClient.INSTRUMENTED.get());
+		WebDriverClient.BINDING.set(next);
+		return next;
+	}
+
 	private <T> T getBrowserAs(boolean failIfMissing, Class<T> clazz) {
-		GherkinContext ctx = GherkinContext.get();
-		T t = ctx.getEnv().getAs("browser", clazz);
+		final Binding binding = WebDriverClient.getBinding();
+		T t = null;
+		if (binding != null) {
+			if (clazz.isInstance(binding.browser)) {
+				t = clazz.cast(binding.browser);
+			} else if (clazz.isInstance(binding.source)) {
+				t = clazz.cast(binding.source);
+			}
+		}
 		if (failIfMissing && (t == null)) {
 			throw new NullPointerException(
 				String.format("No %s instance was made available to the Gherkin context", clazz.getSimpleName()));
@@ -139,6 +197,54 @@ public class WebDriverClient {
 		return t;
 	}
 
+	/**
+	 * Enables or disables the instrumentation of the browser commands issued from the current
+	 * thread (see {@link InstrumentedWebDriver}). It's enabled by default.
+	 */
+	protected static void setInstrumented(boolean instrumented) {
+		if (instrumented) {
+			WebDriverClient.INSTRUMENTED.remove();
+		} else {
+			WebDriverClient.INSTRUMENTED.set(Boolean.FALSE);
+		}
+		// Re-resolve the browser (and its helpers) with the new setting
+		WebDriverClient.BINDING.remove();
+	}
+
+	private static BrowserPool getBrowserPool() {
+		BrowserPool pool = BrowserPool.getDefault();
+		if (pool == null) {
+			throw new IllegalStateException("No browser pool has been configured (see BrowserPool.setDefault())");
+		}
+		return pool;
+	}
+
+	/**
+	 * Draws a browser from the {@link BrowserPool#getDefault() default pool} for the current
+	 * thread, which is used whenever the Gherkin context doesn't provide one. If the thread
+	 * already holds a pooled browser, it's returned to the pool (and thus reset) first.
+	 */
+	protected static WebDriver drawPooledBrowser() {
+		final BrowserPool pool = WebDriverClient.getBrowserPool();
+		WebDriverClient.returnPooledBrowser();
+		WebDriver browser = pool.acquire();
+		WebDriverClient.POOLED_BROWSER.set(browser);
+		WebDriverClient.BINDING.remove();
+		return browser;
+	}
+
+	/**
+	 * Returns the browser drawn from the pool by the current thread (if any) back to the pool,
+	 * which resets its state.
+	 */
+	protected static void returnPooledBrowser() {
+		final WebDriver browser = WebDriverClient.POOLED_BROWSER.get();
+		if (browser == null) { return; }
+		WebDriverClient.POOLED_BROWSER.remove();
+		WebDriverClient.clearHelpers();
+		WebDriverClient.getBrowserPool().release(browser);
+	}
+
 	protected final WebDriver getBrowser() {
 		return getBrowser(true);
 	}
@@ -165,23 +271,35 @@ public class WebDriverClient {
 	}
 
 	protected final AngularHelper getAngularHelper() {
-		return getHelper(AngularHelper.class);
+		return getHelper(WebDriverClient.ANGULAR_HELPER);
 	}
 
-	protected final <T extends WebDriverHelper> T getHelper(Class<T> clazz) {
-		GherkinContext ctx = GherkinContext.get();
-		final String key = clazz.getCanonicalName();
-		T t = ctx.getEnv().getAs(key, clazz);
-		if (t == null) {
-			try {
-				t = clazz.getConstructor(WebDriver.class).newInstance(getBrowser());
-			} catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-				| InvocationTargetException | NoSuchMethodException | SecurityException e) {
-				throw new RuntimeException("Failed to instantiate a copy of " + clazz.getCanonicalName(), e);
-			}
-			ctx.getEnv().put(key, t);
+	/**
+	 * Returns the helpers for the current browser, which are created along with its binding (see
+	 * {@link #getBinding()}), and kept for as long as the browser doesn't change.
+	 */
+	protected final HelperRegistry.Helpers getHelpers() {
+		final Binding binding = WebDriverClient.getBinding();
+		if (binding == null) {
+			throw new NullPointerException("No WebDriver instance was made available to the Gherkin context");
 		}
-		return t;
+		return binding.helpers;
+	}
+
+	protected final <T> T getHelper(HelperRegistry.Key<T> key) {
+		return getHelpers().get(Objects.requireNonNull(key, "Must provide a helper key"));
+	}
+
+	protected final <T extends WebDriverHelper> T getHelper(Class<T> clazz) {
+		return getHelper(HelperRegistry.getKey(clazz));
+	}
+
+	/**
+	 * Discards the browser binding (and thus the helpers) cached for the current thread, i.e. when
+	 * the browser is closed. A replaced browser is detected on its own.
+	 */
+	protected static void clearHelpers() {
+		WebDriverClient.BINDING.remove();
 	}
 
 	protected final Set<String> getCssClasses(WebElement element) {
@@ -45,11 +45,13 @@ import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 
 import com.arkcase.sim.components.WebDriverHelper.WaitType;
+import com.arkcase.sim.components.html.TextBoxHelper;
 import com.arkcase.sim.components.html.WaitHelper;
 import com.arkcase.sim.gherkin.steps.BasicWebDriverSteps;
 import com.arkcase.sim.tools.CssMatcher;
 import com.arkcase.sim.tools.LazyReference;
 import com.arkcase.sim.tools.LazyWebElement;
+import com.arkcase.sim.tools.ValueGenerator;
 
 public class CenterContentSteps extends BasicWebDriverSteps {
 
@@ -138,8 +140,13 @@ public class CenterContentSteps extends BasicWebDriverSteps {
 		// TODO: Set the field to the content
 		WebElement body = rootDialog.findElement(DialogSteps.BODY_LOCATOR);
 		WebElement text = body.findElement(By.tagName("textarea"));
-		text.clear();
-		text.sendKeys(note, Keys.TAB);
+		note = ValueGenerator.render(note);
+		if (FormData.getDefaultSetter() == FormData.SetterType.JS) {
+			TextBoxHelper.injectText(getBrowser(), text, note);
+		} else {
+			text.clear();
+			text.sendKeys(note, Keys.TAB);
+		}
 		this.buttonSteps.clickButton("Save");
 		this.dialogSteps.thenWaitUntilNamedDialogIsShown("Unsaved changes");
 		this.buttonSteps.clickButtonAndWaitForDialogToClose("Add Note Without Saving", "Unsaved changes");
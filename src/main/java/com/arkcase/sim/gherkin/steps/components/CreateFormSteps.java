@@ -31,6 +31,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.commons.lang3.StringUtils;
 import org.jbehave.core.annotations.Alias;
 import org.jbehave.core.annotations.Aliases;
 import org.jbehave.core.annotations.BeforeStory;
@@ -49,6 +50,7 @@ import com.arkcase.sim.gherkin.steps.BasicWebDriverSteps;
 import com.arkcase.sim.gherkin.steps.components.FormData.FieldType;
 import com.arkcase.sim.gherkin.steps.components.FormData.Live;
 import com.arkcase.sim.gherkin.steps.components.FormData.Persistent;
+import com.arkcase.sim.tools.ValueGenerator;
 
 public class CreateFormSteps extends BasicWebDriverSteps {
 
@@ -70,14 +72,17 @@ public class CreateFormSteps extends BasicWebDriverSteps {
 	private Live.Tab currentTab = null;
 	private Live.Section currentSection = null;
 
-	private Set<String> tabNames() {
+	private FormData formData() {
 		if (this.formData == null) {
 			WaitHelper wh = getWaitHelper();
 			WebElement root = wh.findElement(CreateFormSteps.ROOT_LOCATOR);
 			this.formData = new FormData(wh, root, CreateFormSteps.TABS);
 		}
+		return this.formData;
+	}
 
-		return this.formData.getTabNames();
+	private Set<String> tabNames() {
+		return formData().getTabNames();
 	}
 
 	private Live.Tab tab() {
@@ -85,13 +90,8 @@ public class CreateFormSteps extends BasicWebDriverSteps {
 	}
 
 	private Live.Tab tab(String name) {
-		if (this.formData == null) {
-			WaitHelper wh = getWaitHelper();
-			WebElement root = wh.findElement(CreateFormSteps.ROOT_LOCATOR);
-			this.formData = new FormData(wh, root, CreateFormSteps.TABS);
-		}
 		if (name != null) {
-			this.currentTab = this.formData.getTab(name);
+			this.currentTab = formData().getTab(name);
 			if (this.currentTab == null) { throw new NoSuchElementException("No tab named [" + name + "] was found"); }
 		}
 		if (this.currentTab == null) { throw new NoSuchElementException("No tab is currently selected for work!"); }
@@ -128,6 +128,16 @@ public class CreateFormSteps extends BasicWebDriverSteps {
 		}
 	}
 
+	@Then("set field values using $setter")
+	@Aliases(values = {
+		"fill in fields using $setter", //
+		"fill fields using $setter", //
+	})
+	public void setDefaultSetter(@Named("setter") String setter) {
+		// Valid values are "js" or "keys", and fields that declare their own setter will still use it
+		FormData.setDefaultSetter(FormData.SetterType.parse(StringUtils.strip(setter)));
+	}
+
 	@Given("the $tab tab is active")
 	@Alias("the $tab tab is selected")
 	public void checkTabIsActive(@Named("tab") String tab) {
@@ -244,11 +254,9 @@ public class CreateFormSteps extends BasicWebDriverSteps {
 	}
 
 	protected String renderValue(FieldType type, String value) {
-		// Is this value a rendered value?
-		// Syntax will be: $gen(type[,param1,param2,...,paramN])
-		// TODO: Add code to detect if we want to render a random string,
-		// etc...
-		return value;
+		// Render any $gen(type[,param1,param2,...,paramN]) expressions - the
+		// parsed template is cached, so this is cheap on every iteration
+		return ValueGenerator.render(value);
 	}
 
 	private void setFieldValue(Live.Section section, String name, String value) {
@@ -336,6 +344,53 @@ public class CreateFormSteps extends BasicWebDriverSteps {
 		fillInFields(null, values);
 	}
 
+	private FormFillPlan buildPlan(ExamplesTable values) {
+		FormFillPlan plan = new FormFillPlan();
+		String tab = (this.currentTab != null ? this.currentTab.getName() : null);
+		String section = (this.currentSection != null ? this.currentSection.getName() : null);
+		int rowNumber = 0;
+		for (Map<String, String> row : values.getRows()) {
+			rowNumber++;
+			// Blank tab or section names carry over from the previous row
+			tab = StringUtils.defaultIfBlank(row.get("tab"), tab);
+			if (tab == null) {
+				throw new IllegalArgumentException("No tab name given for row # " + rowNumber + " = " + row);
+			}
+			section = StringUtils.defaultIfBlank(row.get("section"), section);
+			if (section == null) {
+				throw new IllegalArgumentException("No section name given for row # " + rowNumber + " = " + row);
+			}
+			String field = StringUtils.defaultIfBlank(row.get("name"), row.get("field"));
+			if (field == null) {
+				throw new IllegalArgumentException("No field name given for row # " + rowNumber + " = " + row);
+			}
+			plan.add(tab, section, field, row.get("value"));
+		}
+		return plan;
+	}
+
+	@When("populating the form with: $values")
+	@Aliases(values = {
+		"filling the form with: $values", //
+		"filling in the form with: $values", //
+	})
+	public void fillInForm(@Named("values") ExamplesTable values) {
+		Live.Section last = buildPlan(values).apply(formData(), this::renderValue);
+		if (last != null) {
+			this.currentTab = last.getTab();
+			this.currentSection = last;
+		}
+	}
+
+	@Then("populate the form with: $values")
+	@Aliases(values = {
+		"fill the form with: $values", //
+		"fill in the form with: $values", //
+	})
+	public void fillInForm2(@Named("values") ExamplesTable values) {
+		fillInForm(values);
+	}
+
 	@When("clearing the $section field $field")
 	@Then("clear the $section field $field")
 	public void clearField(@Named("section") String section, @Named("field") String field) {
@@ -31,36 +31,58 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
+import org.apache.commons.io.IOUtils;
 import org.codehaus.plexus.util.StringUtils;
 import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.pagefactory.ByChained;
 import org.openqa.selenium.support.ui.Select;
 
+import com.arkcase.sim.components.AngularHelper;
 import com.arkcase.sim.components.WebDriverHelper.WaitType;
+import com.arkcase.sim.components.html.TextBoxHelper;
 import com.arkcase.sim.components.html.WaitHelper;
 import com.arkcase.sim.gherkin.steps.components.FormData.Persistent.Tab;
 import com.arkcase.sim.tools.CssMatcher;
 import com.arkcase.sim.tools.JSON;
+import com.arkcase.sim.tools.ResourceCache;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.type.MapType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
 import com.google.common.base.Predicate;
 
 public class FormData implements Closeable {
@@ -93,6 +115,11 @@ public class FormData implements Closeable {
 		public boolean set(WebElement element, Persistent.Field fieldDef, String value);
 	}
 
+	@FunctionalInterface
+	private interface FieldValueInjector {
+		public boolean set(WebDriver browser, WebElement element, Persistent.Field fieldDef, String value);
+	}
+
 	/**
 	 * <p>
 	 * Returns {@code true} if the string is any of the following (case-insensitive):
@@ -143,13 +170,65 @@ public class FormData implements Closeable {
 		return true;
 	}
 
+	protected static boolean injectString(WebDriver browser, WebElement element, Persistent.Field field,
+		String string) {
+		if (browser == null) {
+			// Can't get at the browser to run the script, so type it in instead
+			return FormData.setString(element, field, string);
+		}
+		// Run the script through the helper's (instrumented) browser, so it's timed like the rest
+		TextBoxHelper.injectText(browser, element, string);
+		return true;
+	}
+
+	/**
+	 * The strategy used to set the value on fields that support more than one (i.e. text fields).
+	 */
+	public enum SetterType {
+		//
+		// Send the value one keystroke at a time, as a user would
+		KEYS, //
+
+		// Assign the value via JavaScript and fire the change events, in a single round trip
+		JS, //
+		//
+		;
+
+		@JsonValue
+		public final String jsonValue() {
+			return name().toLowerCase();
+		}
+
+		public static final SetterType parse(String type) {
+			if (type == null) { return null; }
+			return SetterType.valueOf(StringUtils.upperCase(type));
+		}
+	}
+
+	private static final ThreadLocal<SetterType> DEFAULT_SETTER = ThreadLocal.withInitial(() -> SetterType.KEYS);
+
+	/**
+	 * Returns the setter strategy used for fields that don't declare one of their own.
+	 */
+	public static SetterType getDefaultSetter() {
+		return FormData.DEFAULT_SETTER.get();
+	}
+
+	public static void setDefaultSetter(SetterType setter) {
+		if (setter == null) {
+			FormData.DEFAULT_SETTER.remove();
+		} else {
+			FormData.DEFAULT_SETTER.set(setter);
+		}
+	}
+
 	public enum FieldType {
 		//
-		// These are applied via setText()
-		TEXT(FormData::setString), //
-		PASSWORD(FormData::setString), //
-		TEXTAREA(FormData::setString), //
-		EMAIL(FormData::setString), //
+		// These are applied via setText(), or injected via JavaScript
+		TEXT(FormData::setString, FormData::injectString), //
+		PASSWORD(FormData::setString, FormData::injectString), //
+		TEXTAREA(FormData::setString, FormData::injectString), //
+		EMAIL(FormData::setString, FormData::injectString), //
 
 		// These are applied via "setSelected()"
 		RADIO(FormData::selectItem), //
@@ -169,13 +248,19 @@ public class FormData implements Closeable {
 		;
 
 		private final FieldValueSetter setter;
+		private final FieldValueInjector injector;
 
 		private FieldType() {
 			this(null);
 		}
 
 		private FieldType(FieldValueSetter setter) {
+			this(setter, null);
+		}
+
+		private FieldType(FieldValueSetter setter, FieldValueInjector injector) {
 			this.setter = setter;
+			this.injector = injector;
 		}
 
 		@JsonValue
@@ -183,7 +268,7 @@ public class FormData implements Closeable {
 			return name().toLowerCase();
 		}
 
-		public final boolean apply(WebElement element, Persistent.Field field, String value) {
+		public final boolean apply(WebDriver browser, WebElement element, Persistent.Field field, String value) {
 			Objects.requireNonNull(element, "Must provide a WebElement to apply the value to");
 			Objects.requireNonNull(field, "Must provide the Field definition");
 			if (this.setter == null) {
@@ -192,7 +277,11 @@ public class FormData implements Closeable {
 						field.label, element));
 			}
 			if (!element.isEnabled()) { return false; }
+			final SetterType setterType = (field.setter != null ? field.setter : FormData.getDefaultSetter());
 			try {
+				if ((setterType == SetterType.JS) && (this.injector != null)) {
+					return this.injector.set(browser, element, field, value);
+				}
 				return this.setter.set(element, field, value);
 			} catch (final WebDriverException e) {
 				throw new WebDriverException(
@@ -208,6 +297,98 @@ public class FormData implements Closeable {
 		}
 	}
 
+	@FunctionalInterface
+	private interface FieldEffectWaiter {
+		public void await(Live.Field field, String target);
+	}
+
+	@FunctionalInterface
+	private interface FieldEffectCheck {
+		public boolean hasStarted(Live.Field field, String target);
+	}
+
+	protected static void awaitDialog(Live.Field field, String title) {
+		DialogSteps.findDialog(field.getHelper(), title, WaitType.VISIBLE);
+	}
+
+	protected static boolean isDialogPresent(Live.Field field, String title) {
+		try {
+			DialogSteps.findDialog(field.getHelper(), title, null);
+			return true;
+		} catch (NoSuchElementException e) {
+			return false;
+		}
+	}
+
+	protected static void awaitEnabled(Live.Field field, String target) {
+		Live.Field other = field.getSection().getField(target);
+		if (other == null) {
+			throw new NoSuchElementException("No field named [" + target + "] in section ["
+				+ field.getSection().getName() + "], which should be enabled by the field [" + field.getName() + "]");
+		}
+		other.waitUntil(WaitType.ENABLED);
+	}
+
+	protected static void awaitLookup(Live.Field field, String target) {
+		WaitHelper helper = field.getHelper();
+		if (AngularHelper.class.isInstance(helper)) {
+			AngularHelper.class.cast(helper).waitForAngular();
+		}
+	}
+
+	/**
+	 * The side effects that setting a field's value may trigger, which must be waited on before
+	 * moving on to the next field.
+	 */
+	public enum EffectType {
+		//
+		// The target is the title of the dialog that will be opened
+		DIALOG(FormData::awaitDialog, FormData::isDialogPresent), //
+
+		// The target is the name of the field (in the same section) that will be enabled
+		ENABLE(FormData::awaitEnabled), //
+
+		// The target is informative only, we wait for Angular's pending requests to complete
+		LOOKUP(FormData::awaitLookup), //
+		//
+		;
+
+		private final FieldEffectWaiter waiter;
+		private final FieldEffectCheck started;
+
+		private EffectType(FieldEffectWaiter waiter) {
+			this(waiter, (f, t) -> true);
+		}
+
+		private EffectType(FieldEffectWaiter waiter, FieldEffectCheck started) {
+			this.waiter = Objects.requireNonNull(waiter, "Must provide a waiter function");
+			this.started = Objects.requireNonNull(started, "Must provide a check function");
+		}
+
+		@JsonValue
+		public final String jsonValue() {
+			return name().toLowerCase();
+		}
+
+		public final void await(Live.Field field, String target) {
+			Objects.requireNonNull(field, "Must provide the Field whose effect to wait for");
+			this.waiter.await(field, target);
+		}
+
+		/**
+		 * Checks (without waiting) whether the effect has started, i.e. if the dialog is there.
+		 */
+		public final boolean hasStarted(Live.Field field, String target) {
+			Objects.requireNonNull(field, "Must provide the Field whose effect to check");
+			return this.started.hasStarted(field, target);
+		}
+
+		public static final EffectType parse(String type) {
+			if (type == null) { return null; }
+			return EffectType.valueOf(StringUtils.upperCase(type));
+		}
+	}
+
 	public enum LocatorType {
 		//
 		CLASS(By::className), //
@@ -254,6 +435,46 @@ public class FormData implements Closeable {
 				this.body = By.cssSelector(body);
 				this.title = By.cssSelector(title);
 			}
+
+			private Container(Container other) {
+				this.name = other.name;
+				this.body = other.body;
+				this.title = other.title;
+			}
+		}
+
+		public static class Effect {
+			@JsonProperty("type")
+			public final EffectType type;
+
+			@JsonProperty("target")
+			public final String target;
+
+			/**
+			 * Optional effects only happen for some values (i.e. a ZIP code which matches more than
+			 * one city), so they're only waited on if they've started once the page has settled.
+			 */
+			@JsonProperty("optional")
+			public final boolean optional;
+
+			@JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+			public Effect( //
+				@JsonProperty("type") String type, //
+				@JsonProperty("target") String target, //
+				@JsonProperty("optional") Boolean optional //
+			) {
+				this.type = Objects.requireNonNull(EffectType.parse(type), "Must provide the effect's type");
+				this.target = target;
+				this.optional = ((optional != null) && optional.booleanValue());
+			}
+
+			public void await(Live.Field field) {
+				if (this.optional) {
+					FormData.awaitLookup(field, this.target);
+					if (!this.type.hasStarted(field, this.target)) { return; }
+				}
+				this.type.await(field, this.target);
+			}
 		}
 
 		public static class Field {
@@ -278,6 +499,12 @@ public class FormData implements Closeable {
 			@JsonProperty("options")
 			public final Set<String> options;
 
+			@JsonProperty("effects")
+			public final List<Effect> effects;
+
+			@JsonProperty("setter")
+			public final SetterType setter;
+
 			@JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
 			public Field( //
 				@JsonProperty("name") String name, //
@@ -285,7 +512,9 @@ public class FormData implements Closeable {
 				@JsonProperty("locator") String locator, //
 				@JsonProperty("locatorType") String locatorType, //
 				@JsonProperty("value") String value, //
-				@JsonProperty("options") Collection<String> options //
+				@JsonProperty("options") Collection<String> options, //
+				@JsonProperty("effects") Collection<Effect> effects, //
+				@JsonProperty("setter") String setter //
 			) {
 				this.label = name;
 				this.fieldType = FieldType.parse(type);
@@ -298,6 +527,16 @@ public class FormData implements Closeable {
 				} else {
 					this.options = Collections.emptySet();
 				}
+				if ((effects != null) && !effects.isEmpty()) {
+					this.effects = Collections.unmodifiableList(new ArrayList<>(effects));
+				} else {
+					this.effects = Collections.emptyList();
+				}
+				this.setter = SetterType.parse(setter);
+			}
+
+			public boolean hasEffects() {
+				return !this.effects.isEmpty();
 			}
 		}
 
@@ -314,6 +553,15 @@ public class FormData implements Closeable {
 			) {
 				super(name, body, title);
 				this.fields = Collections.unmodifiableMap(fields);
+				for (Field f : this.fields.values()) {
+					for (Effect e : f.effects) {
+						if ((e.type == EffectType.ENABLE) && !this.fields.containsKey(e.target)) {
+							throw new IllegalArgumentException(
+								String.format("The field [%s] in section [%s] enables the field [%s], which doesn't exist",
+									f.label, name, e.target));
+						}
+					}
+				}
 			}
 		}
 
@@ -334,21 +582,248 @@ public class FormData implements Closeable {
 					this.sections = Collections.emptyMap();
 				}
 			}
+
+			private Tab(Tab shell, LazyMap<Section> sections) {
+				super(shell);
+				this.sections = sections;
+			}
+
+			Map<String, Section> getSections() {
+				return this.sections;
+			}
 		}
 	}
 
+	private static final MapType TABS_TYPE = TypeFactory.defaultInstance().constructMapType(LinkedHashMap.class,
+		String.class, Tab.class);
+
 	private static MapType buildMapType(ObjectMapper mapper) {
-		return mapper.getTypeFactory().constructMapType(LinkedHashMap.class, String.class, Tab.class);
+		// The type is immutable and independent of the mapper, so only build it once
+		return FormData.TABS_TYPE;
 	}
 
 	protected static Map<String, Tab> loadTabs(String resource) throws IOException {
 		return FormData.loadTabs(resource, null);
 	}
 
+	/**
+	 * Returns the definitions pre-compiled from the given resource by {@link FormDataCompiler} at
+	 * build time, or {@code null} if no such class is available (i.e. the resource wasn't compiled).
+	 * As with the JSON, each tab is only built the first time it's requested.
+	 */
+	protected static Map<String, Tab> loadCompiledTabs(String resource) {
+		final String className = FormDataCompiler.getQualifiedClassName(resource);
+		if (className == null) { return null; }
+		final Class<?> klazz;
+		try {
+			klazz = Class.forName(className, true, Thread.currentThread().getContextClassLoader());
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+		if (!Supplier.class.isAssignableFrom(klazz)) { return null; }
+		final Map<String, Supplier<Tab>> builders;
+		try {
+			@SuppressWarnings("unchecked")
+			Supplier<Map<String, Supplier<Tab>>> supplier = (Supplier<Map<String, Supplier<Tab>>>) klazz
+				.getConstructor().newInstance();
+			builders = supplier.get();
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException("Failed to instantiate the compiled form definitions from " + className, e);
+		}
+		if ((builders == null) || builders.isEmpty()) { return Collections.emptyMap(); }
+		return new LazyMap<>("tab", builders);
+	}
+
+	/**
+	 * Returns the definitions for the given resource, either from the class compiled from it at
+	 * build time or from the JSON itself. The JSON's tabs are read-only and thread-safe, so they're
+	 * kept in the {@link ResourceCache} and shared by every caller.
+	 */
 	protected static Map<String, Tab> loadTabs(String resource, Charset charset) throws IOException {
-		final Map<String, Tab> tabs = JSON.unmarshal(FormData::buildMapType, resource, charset);
-		if ((tabs == null) || tabs.isEmpty()) { return Collections.emptyMap(); }
-		return Collections.unmodifiableMap(tabs);
+		Map<String, Tab> tabs = FormData.loadCompiledTabs(resource);
+		if (tabs != null) { return tabs; }
+		if (StringUtils.isEmpty(resource)) {
+			throw new IllegalArgumentException("Must provide a non-empty resource name");
+		}
+		tabs = ResourceCache.get(null, resource, charset, FormData.TABS_TYPE, FormData::loadLazyTabs);
+		return (tabs != null ? tabs : Collections.emptyMap());
+	}
+
+	/**
+	 * <p>
+	 * A read-only map of definitions (tabs, or a tab's sections) which only builds each value (and
+	 * thus its sections, fields and locators) the first time it's requested. The builders either
+	 * bind a slice of the JSON (see {@link FormData#loadLazyTabs(InputStream, Charset)}), or call
+	 * into the code generated by {@link FormDataCompiler}.
+	 * </p>
+	 * <p>
+	 * Instances are safe to share across threads. Once every value has been built, the builders
+	 * (and with them, any raw JSON) are released.
+	 * </p>
+	 */
+	private static final class LazyMap<V> extends AbstractMap<String, V> {
+		private final String kind;
+		private final Set<String> names;
+		private final ConcurrentMap<String, V> values = new ConcurrentHashMap<>();
+		private volatile Map<String, Supplier<V>> builders;
+
+		private LazyMap(String kind, Map<String, Supplier<V>> builders) {
+			this.kind = kind;
+			this.names = Collections.unmodifiableSet(new LinkedHashSet<>(builders.keySet()));
+			this.builders = (builders.isEmpty() ? null : new HashMap<>(builders));
+		}
+
+		private V build(String name) {
+			// Can't be null: the builders are only released once every value is in the map
+			final Supplier<V> builder = this.builders.get(name);
+			return Objects.requireNonNull(builder.get(),
+				"The builder for " + this.kind + " [" + name + "] returned null");
+		}
+
+		@Override
+		public V get(Object key) {
+			if (!this.names.contains(key)) { return null; }
+			final String name = key.toString();
+			V value = this.values.get(name);
+			if (value == null) {
+				value = this.values.computeIfAbsent(name, this::build);
+				if (this.values.size() == this.names.size()) {
+					// Everything's been built, so we no longer need the builders
+					this.builders = null;
+				}
+			}
+			return value;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return this.names.contains(key);
+		}
+
+		@Override
+		public int size() {
+			return this.names.size();
+		}
+
+		@Override
+		public Set<String> keySet() {
+			return this.names;
+		}
+
+		@Override
+		public Set<Map.Entry<String, V>> entrySet() {
+			return new AbstractSet<Map.Entry<String, V>>() {
+				@Override
+				public Iterator<Map.Entry<String, V>> iterator() {
+					final Iterator<String> it = LazyMap.this.names.iterator();
+					return new Iterator<Map.Entry<String, V>>() {
+						@Override
+						public boolean hasNext() {
+							return it.hasNext();
+						}
+
+						@Override
+						public Map.Entry<String, V> next() {
+							final String name = it.next();
+							return new AbstractMap.SimpleImmutableEntry<>(name, LazyMap.this.get(name));
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return LazyMap.this.names.size();
+				}
+			};
+		}
+	}
+
+	private static Tab bindTab(String name, JsonNode shell, Map<String, Supplier<Persistent.Section>> sections) {
+		final Tab tab;
+		try {
+			tab = JSON.getReader(Tab.class).readValue(shell);
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to load the definition for tab [" + name + "]", e);
+		}
+		if (sections.isEmpty()) { return tab; }
+		return new Tab(tab, new LazyMap<>("section", sections));
+	}
+
+	private static Persistent.Section bindSection(String tab, String name, byte[] json, int offset, int length) {
+		try {
+			return JSON.getReader(Persistent.Section.class).readValue(json, offset, length);
+		} catch (IOException e) {
+			throw new RuntimeException(
+				"Failed to load the definition for section [" + name + "] in tab [" + tab + "]", e);
+		}
+	}
+
+	private static Map<String, Supplier<Persistent.Section>> indexSections(JsonParser p, byte[] json, String tab)
+		throws IOException {
+		final Map<String, Supplier<Persistent.Section>> sections = new LinkedHashMap<>();
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			final String name = p.getCurrentName();
+			if (p.nextToken() != JsonToken.START_OBJECT) {
+				throw new JsonParseException(p,
+					"The definition for section [" + name + "] in tab [" + tab + "] must be a JSON object");
+			}
+			final int start = (int) p.getTokenLocation().getByteOffset();
+			p.skipChildren();
+			final int length = (int) p.getCurrentLocation().getByteOffset() - start;
+			sections.put(name, () -> FormData.bindSection(tab, name, json, start, length));
+		}
+		return sections;
+	}
+
+	/**
+	 * Loads the form definitions such that each tab is only bound when it's first requested via
+	 * {@link Map#get(Object)} (i.e. from {@link FormData#getTab(String)}), and each of its sections
+	 * only when that section is first requested, which keeps unused tabs and sections out of the
+	 * heap. The tabs' and sections' positions within the JSON are indexed with a single streaming
+	 * pass, so the document's syntax is still fully validated here, but binding errors within a tab
+	 * or section will only be raised once it's requested.
+	 */
+	protected static Map<String, Tab> loadLazyTabs(InputStream in, Charset c) throws IOException {
+		Objects.requireNonNull(in, "Must provide an InputStream to read from");
+		if (c == null) {
+			c = Charset.defaultCharset();
+		}
+		byte[] bytes = IOUtils.toByteArray(in);
+		if (!StandardCharsets.UTF_8.equals(c)) {
+			// The index uses byte offsets, so make sure we're parsing UTF-8
+			bytes = new String(bytes, c).getBytes(StandardCharsets.UTF_8);
+		}
+		final byte[] json = bytes;
+		final Map<String, Supplier<Tab>> builders = new LinkedHashMap<>();
+		try (JsonParser p = JSON.getReader(Tab.class).getFactory().createParser(json)) {
+			if (p.nextToken() != JsonToken.START_OBJECT) {
+				throw new JsonParseException(p, "The form definitions must be a JSON object");
+			}
+			while (p.nextToken() == JsonToken.FIELD_NAME) {
+				final String name = p.getCurrentName();
+				if (p.nextToken() != JsonToken.START_OBJECT) {
+					throw new JsonParseException(p, "The definition for tab [" + name + "] must be a JSON object");
+				}
+				// Everything but the sections is small, so it's kept as a tree to be bound later
+				final ObjectNode shell = JsonNodeFactory.instance.objectNode();
+				Map<String, Supplier<Persistent.Section>> sections = Collections.emptyMap();
+				while (p.nextToken() == JsonToken.FIELD_NAME) {
+					final String field = p.getCurrentName();
+					if ((p.nextToken() == JsonToken.START_OBJECT) && "sections".equals(field)) {
+						sections = FormData.indexSections(p, json, name);
+					} else {
+						shell.set(field, JSON.getReader(JsonNode.class).readValue(p));
+					}
+				}
+				final Map<String, Supplier<Persistent.Section>> tabSections = sections;
+				builders.put(name, () -> FormData.bindTab(name, shell, tabSections));
+			}
+			if ((p.getCurrentToken() != JsonToken.END_OBJECT) || (p.nextToken() != null)) {
+				throw new JsonParseException(p, "Unexpected content after the form definitions");
+			}
+		}
+		if (builders.isEmpty()) { return Collections.emptyMap(); }
+		return new LazyMap<>("tab", builders);
 	}
 
 	protected static Map<String, Tab> loadTabs(Reader r) throws IOException {
@@ -362,9 +837,7 @@ public class FormData implements Closeable {
 	}
 
 	protected static Map<String, Tab> loadTabs(InputStream in, Charset c) throws IOException {
-		final Map<String, Tab> tabs = JSON.unmarshal(FormData::buildMapType, in, c);
-		if ((tabs == null) || tabs.isEmpty()) { return Collections.emptyMap(); }
-		return Collections.unmodifiableMap(tabs);
+		return FormData.loadLazyTabs(in, c);
 	}
 
 	public static class Live {
@@ -448,11 +921,51 @@ public class FormData implements Closeable {
 				return this.field.options;
 			}
 
+			public List<Persistent.Effect> getEffects() {
+				return this.field.effects;
+			}
+
+			public boolean hasEffects() {
+				return this.field.hasEffects();
+			}
+
+			public void awaitEffects() {
+				for (Persistent.Effect e : this.field.effects) {
+					e.await(this);
+				}
+			}
+
+			private String getCurrentValue() {
+				return this.element.getAttribute("value");
+			}
+
 			public void setValue(String value) {
-				// Wait until the field is visible and enabled
+				setValue(value, true);
+			}
+
+			/**
+			 * Sets the field's value, and waits for any of its declared effects to take place
+			 * (unless the value is empty, or the field already had it, in which case nothing is
+			 * triggered). If {@code wait} is {@code false}, the field will only be waited on if it's
+			 * not already enabled, which saves the wait when filling many fields in bulk.
+			 */
+			public void setValue(String value, boolean wait) {
+				final boolean effects = hasEffects();
+				final String previous = (effects ? getCurrentValue() : null);
 				this.helper.scrollTo(this.element);
-				waitUntil(WaitType.ENABLED);
-				this.field.fieldType.apply(this.element, this.field, value);
+				if (wait) {
+					// Wait until the field is visible and enabled
+					waitUntil(WaitType.ENABLED);
+				}
+				final WebDriver browser = this.helper.getBrowser();
+				if (!this.field.fieldType.apply(browser, this.element, this.field, value) && !wait) {
+					// Not enabled yet, so we wait for it after all
+					waitUntil(WaitType.ENABLED);
+					this.field.fieldType.apply(browser, this.element, this.field, value);
+				}
+				if (effects && StringUtils.isNotEmpty(value) && !Objects.equals(previous, getCurrentValue())) {
+					awaitEffects();
+				}
 			}
 		}
 
@@ -775,6 +1288,28 @@ public class FormData implements Closeable {
 		return this.persistentTabs.size();
 	}
 
+	/**
+	 * Returns the names of the sections declared for the given tab, in the form's order, or an
+	 * empty set if there's no such tab. This doesn't touch the browser.
+	 */
+	public final Set<String> getSectionNames(String tab) {
+		Persistent.Tab t = this.persistentTabs.get(tab);
+		if (t == null) { return Collections.emptySet(); }
+		return t.sections.keySet();
+	}
+
+	/**
+	 * Returns the names of the fields declared for the given section, or an empty set if there's
+	 * no such tab or section. This doesn't touch the browser.
+	 */
+	public final Set<String> getFieldNames(String tab, String section) {
+		Persistent.Tab t = this.persistentTabs.get(tab);
+		if (t == null) { return Collections.emptySet(); }
+		Persistent.Section s = t.sections.get(section);
+		if (s == null) { return Collections.emptySet(); }
+		return s.fields.keySet();
+	}
+
 	public final Stream<Live.Tab> tabs() {
 		return this.persistentTabs.keySet().stream().map(this::getTab);
 	}
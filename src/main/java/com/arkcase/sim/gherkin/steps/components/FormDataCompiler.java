@@ -0,0 +1,306 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.gherkin.steps.components;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.text.StringEscapeUtils;
+
+import com.arkcase.sim.tools.JSON;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * <p>
+ * Renders form definition JSON resources (as consumed by {@link FormData#loadTabs(String)}) into
+ * Java classes that build the same {@link FormData.Persistent} model without any JSON parsing at
+ * runtime. This is meant to be executed at build time (see the {@code compile-forms} execution in
+ * the POM), so a malformed definition will break the build instead of the first test that tries to
+ * use it.
+ * </p>
+ * <p>
+ * The generated classes live in the {@link #PACKAGE} package, are named after the resource's base
+ * name (i.e. {@code createNewOrderForm.json} becomes {@code CreateNewOrderForm}), and implement
+ * {@link java.util.function.Supplier Supplier&lt;Map&lt;String, Supplier&lt;Persistent.Tab&gt;&gt;&gt;}.
+ * Each tab gets its own builder method, and {@link FormData#loadCompiledTabs(String)} only calls
+ * it the first time that tab is requested, so unused tabs never reach the heap.
+ * </p>
+ */
+public class FormDataCompiler {
+
+	public static final String PACKAGE = "com.arkcase.sim.gherkin.steps.components.forms";
+
+	private static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
+
+	public static String getClassName(String resource) {
+		String baseName = FilenameUtils.getBaseName(resource);
+		if (StringUtils.isEmpty(baseName)) { return null; }
+		StringBuilder b = new StringBuilder(baseName.length());
+		boolean upper = true;
+		for (char c : baseName.toCharArray()) {
+			if (!Character.isJavaIdentifierPart(c)) {
+				upper = true;
+				continue;
+			}
+			if ((b.length() == 0) && !Character.isJavaIdentifierStart(c)) {
+				b.append('_');
+			}
+			b.append(upper ? Character.toUpperCase(c) : c);
+			upper = false;
+		}
+		return (b.length() > 0 ? b.toString() : null);
+	}
+
+	public static String getQualifiedClassName(String resource) {
+		String className = FormDataCompiler.getClassName(resource);
+		if (className == null) { return null; }
+		return FormDataCompiler.PACKAGE + "." + className;
+	}
+
+	private static String literal(JsonNode node, String name) {
+		JsonNode value = node.get(name);
+		if ((value == null) || value.isNull()) { return "null"; }
+		return FormDataCompiler.literal(value.asText());
+	}
+
+	private static String literal(String str) {
+		if (str == null) { return "null"; }
+		return "\"" + StringEscapeUtils.escapeJava(str) + "\"";
+	}
+
+	private static String options(JsonNode field) {
+		JsonNode options = field.get("options");
+		if ((options == null) || !options.isArray() || (options.size() == 0)) { return "null"; }
+		StringBuilder b = new StringBuilder("Arrays.asList(");
+		boolean first = true;
+		for (JsonNode option : options) {
+			if (!first) {
+				b.append(", ");
+			}
+			b.append(FormDataCompiler.literal(option.isNull() ? null : option.asText()));
+			first = false;
+		}
+		return b.append(')').toString();
+	}
+
+	private static String effects(JsonNode field) {
+		JsonNode effects = field.get("effects");
+		if ((effects == null) || !effects.isArray() || (effects.size() == 0)) { return "null"; }
+		StringBuilder b = new StringBuilder("Arrays.asList(");
+		boolean first = true;
+		for (JsonNode effect : effects) {
+			if (!first) {
+				b.append(", ");
+			}
+			b.append("new Persistent.Effect(") //
+				.append(FormDataCompiler.literal(effect, "type")).append(", ") //
+				.append(FormDataCompiler.literal(effect, "target")).append(", ") //
+				.append(effect.path("optional").asBoolean(false)).append(")") //
+			;
+			first = false;
+		}
+		return b.append(')').toString();
+	}
+
+	private static void renderSection(PrintWriter out, String method, JsonNode section) {
+		out.printf("\tprivate static Persistent.Section %s() {%n", method);
+		out.printf("\t\tfinal Map<String, Persistent.Field> fields = new LinkedHashMap<>();%n");
+		JsonNode fields = section.get("fields");
+		if (fields != null) {
+			for (Iterator<Map.Entry<String, JsonNode>> it = fields.fields(); it.hasNext();) {
+				Map.Entry<String, JsonNode> e = it.next();
+				JsonNode field = e.getValue();
+				out.printf("\t\tfields.put(%s, new Persistent.Field( //%n", FormDataCompiler.literal(e.getKey()));
+				out.printf("\t\t\t%s, // name%n", FormDataCompiler.literal(field, "name"));
+				out.printf("\t\t\t%s, // type%n", FormDataCompiler.literal(field, "type"));
+				out.printf("\t\t\t%s, // locator%n", FormDataCompiler.literal(field, "locator"));
+				out.printf("\t\t\t%s, // locatorType%n", FormDataCompiler.literal(field, "locatorType"));
+				out.printf("\t\t\t%s, // value%n", FormDataCompiler.literal(field, "value"));
+				out.printf("\t\t\t%s, // options%n", FormDataCompiler.options(field));
+				out.printf("\t\t\t%s, // effects%n", FormDataCompiler.effects(field));
+				out.printf("\t\t\t%s // setter%n", FormDataCompiler.literal(field, "setter"));
+				out.printf("\t\t));%n");
+			}
+		}
+		out.printf("\t\treturn new Persistent.Section(%s, %s, %s, %s, fields);%n", //
+			FormDataCompiler.literal(section, "name"), //
+			FormDataCompiler.literal(section, "body"), //
+			FormDataCompiler.literal(section, "title"), //
+			FormDataCompiler.literal(section, "source") //
+		);
+		out.printf("\t}%n%n");
+	}
+
+	private static void renderTab(PrintWriter out, String className, String method, JsonNode tab) {
+		out.printf("\tprivate static Persistent.Tab %s() {%n", method);
+		out.printf("\t\tfinal Map<String, Persistent.Section> sections = new LinkedHashMap<>();%n");
+		JsonNode sections = tab.get("sections");
+		int s = 0;
+		if (sections != null) {
+			for (Iterator<Map.Entry<String, JsonNode>> it = sections.fields(); it.hasNext(); s++) {
+				Map.Entry<String, JsonNode> e = it.next();
+				out.printf("\t\tsections.put(%s, %s.%sSection%d());%n", FormDataCompiler.literal(e.getKey()), className,
+					method, s);
+			}
+		}
+		out.printf("\t\treturn new Persistent.Tab(%s, %s, %s, sections);%n", //
+			FormDataCompiler.literal(tab, "name"), //
+			FormDataCompiler.literal(tab, "body"), //
+			FormDataCompiler.literal(tab, "title") //
+		);
+		out.printf("\t}%n%n");
+
+		// Each section gets its own method, to keep clear of the JVM's method size limits
+		s = 0;
+		if (sections != null) {
+			for (Iterator<JsonNode> it = sections.elements(); it.hasNext(); s++) {
+				FormDataCompiler.renderSection(out, String.format("%sSection%d", method, s), it.next());
+			}
+		}
+	}
+
+	/**
+	 * Validates the given form definition JSON by loading it through {@link FormData}, and then
+	 * writes out the Java source for the class that will produce the same definitions.
+	 */
+	public static void compile(String resource, Reader r, Writer w) throws IOException {
+		Objects.requireNonNull(r, "Must provide a Reader to read the definitions from");
+		Objects.requireNonNull(w, "Must provide a Writer to render the class into");
+		final String className = FormDataCompiler.getClassName(resource);
+		if (className == null) {
+			throw new IllegalArgumentException("Can't derive a class name from the resource [" + resource + "]");
+		}
+
+		final String json = IOUtils.toString(r);
+		try {
+			FormData.loadTabs(new StringReader(json));
+		} catch (Exception e) {
+			throw new IOException("The form definitions at [" + resource + "] are not valid", e);
+		}
+		final JsonNode root = JSON.getReader(JsonNode.class).readTree(json);
+		if ((root == null) || !root.isObject()) {
+			throw new IOException("The form definitions at [" + resource + "] are not a JSON object");
+		}
+
+		final PrintWriter out = new PrintWriter(w);
+		out.printf("package %s;%n%n", FormDataCompiler.PACKAGE);
+		if (Stream.concat(root.findValues("options").stream(), root.findValues("effects").stream())
+			.anyMatch((o) -> o.isArray() && (o.size() > 0))) {
+			out.printf("import java.util.Arrays;%n");
+		}
+		out.printf("import java.util.Collections;%n");
+		out.printf("import java.util.LinkedHashMap;%n");
+		out.printf("import java.util.Map;%n");
+		out.printf("import java.util.function.Supplier;%n%n");
+		out.printf("import com.arkcase.sim.gherkin.steps.components.FormData.Persistent;%n%n");
+		out.printf("/**%n * Generated by {@code %s} from {@code %s} - do not edit%n */%n",
+			FormDataCompiler.class.getName(), resource);
+		out.printf("public final class %s implements Supplier<Map<String, Supplier<Persistent.Tab>>> {%n%n",
+			className);
+		// Only reference the tab builders, so FormData can build each tab the first time it's used
+		out.printf("\tprivate static final Map<String, Supplier<Persistent.Tab>> TABS;%n");
+		out.printf("\tstatic {%n");
+		out.printf("\t\tfinal Map<String, Supplier<Persistent.Tab>> tabs = new LinkedHashMap<>();%n");
+		int t = 0;
+		for (Iterator<String> it = root.fieldNames(); it.hasNext(); t++) {
+			out.printf("\t\ttabs.put(%s, %s::tab%d);%n", FormDataCompiler.literal(it.next()), className, t);
+		}
+		out.printf("\t\tTABS = Collections.unmodifiableMap(tabs);%n");
+		out.printf("\t}%n%n");
+
+		t = 0;
+		for (Iterator<JsonNode> it = root.elements(); it.hasNext(); t++) {
+			FormDataCompiler.renderTab(out, className, String.format("tab%d", t), it.next());
+		}
+
+		out.printf("\t@Override%n");
+		out.printf("\tpublic Map<String, Supplier<Persistent.Tab>> get() {%n");
+		out.printf("\t\treturn %s.TABS;%n", className);
+		out.printf("\t}%n");
+		out.printf("}%n");
+		out.flush();
+	}
+
+	/**
+	 * Compiles the given classpath resource into the given source root directory, returning the
+	 * generated file.
+	 */
+	public static File compile(String resource, File sourceRoot) throws IOException {
+		Objects.requireNonNull(sourceRoot, "Must provide the source root to render the class into");
+		final String className = FormDataCompiler.getQualifiedClassName(resource);
+		if (className == null) {
+			throw new IllegalArgumentException("Can't derive a class name from the resource [" + resource + "]");
+		}
+
+		final File target = new File(sourceRoot, className.replace('.', File.separatorChar) + ".java");
+		final File parent = target.getParentFile();
+		if (!parent.mkdirs() && !parent.isDirectory()) {
+			throw new IOException("Failed to find or create the source directory at [" + parent + "]");
+		}
+
+		ClassLoader cl = Thread.currentThread().getContextClassLoader();
+		try (InputStream in = cl.getResourceAsStream(resource)) {
+			if (in == null) { throw new IOException("Failed to find the form definitions at [" + resource + "]"); }
+			try (Reader r = new InputStreamReader(in, FormDataCompiler.DEFAULT_CHARSET);
+				Writer w = Files.newBufferedWriter(target.toPath(), FormDataCompiler.DEFAULT_CHARSET)) {
+				FormDataCompiler.compile(resource, r, w);
+			}
+		}
+		return target;
+	}
+
+	/**
+	 * Usage: {@code FormDataCompiler sourceRoot resource1 [resource2 ... resourceN]}
+	 */
+	public static void main(String... args) throws IOException {
+		if (args.length < 2) {
+			throw new IllegalArgumentException(
+				"Usage: " + FormDataCompiler.class.getName() + " sourceRoot resource1 [resource2 ... resourceN]");
+		}
+		final File sourceRoot = new File(args[0]).getAbsoluteFile();
+		for (int i = 1; i < args.length; i++) {
+			File f = FormDataCompiler.compile(args[i], sourceRoot);
+			System.out.printf("Compiled the form definitions at [%s] into [%s]%n", args[i], f);
+		}
+	}
+}
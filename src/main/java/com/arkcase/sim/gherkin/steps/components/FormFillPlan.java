@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.gherkin.steps.components;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openqa.selenium.NoSuchElementException;
+
+import com.arkcase.sim.gherkin.steps.components.FormData.FieldType;
+import com.arkcase.sim.gherkin.steps.components.FormData.Live;
+
+/**
+ * <p>
+ * Collects a set of field values spread across several tabs and sections, and applies them in an
+ * order that minimizes the navigation required: each tab is selected once, and each section in it
+ * is expanded once (sections that are already expanded are left alone), following the order in
+ * which they're declared in the form definitions.
+ * </p>
+ * <p>
+ * Fields within a section are set in the order they were added, so dependencies between fields in
+ * the same section (i.e. a radio button that enables a text box) are preserved. Dependencies that
+ * cross sections are not, so those values must be set with separate steps.
+ * </p>
+ */
+public class FormFillPlan {
+
+	public static final class Entry {
+		public final String tab;
+		public final String section;
+		public final String field;
+		public final String value;
+
+		private Entry(String tab, String section, String field, String value) {
+			this.tab = tab;
+			this.section = section;
+			this.field = field;
+			this.value = value;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Entry [tab=%s, section=%s, field=%s, value=%s]", this.tab, this.section,
+				this.field, this.value);
+		}
+	}
+
+	private final Map<String, Map<String, List<Entry>>> entries = new LinkedHashMap<>();
+	private int size = 0;
+
+	public FormFillPlan add(String tab, String section, String field, String value) {
+		if (StringUtils.isEmpty(tab)) { throw new IllegalArgumentException("Must provide a tab name"); }
+		if (StringUtils.isEmpty(section)) { throw new IllegalArgumentException("Must provide a section name"); }
+		if (StringUtils.isEmpty(field)) { throw new IllegalArgumentException("Must provide a field name"); }
+		this.entries //
+			.computeIfAbsent(tab, (t) -> new LinkedHashMap<>()) //
+			.computeIfAbsent(section, (s) -> new ArrayList<>()) //
+			.add(new Entry(tab, section, field, value)) //
+		;
+		this.size++;
+		return this;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return (this.size == 0);
+	}
+
+	public List<Entry> entries(String tab, String section) {
+		Map<String, List<Entry>> sections = this.entries.get(tab);
+		if (sections == null) { return Collections.emptyList(); }
+		List<Entry> l = sections.get(section);
+		if (l == null) { return Collections.emptyList(); }
+		return Collections.unmodifiableList(l);
+	}
+
+	/**
+	 * The browser-facing half of {@link FormFillPlan#apply(FormData, BiFunction)}: the plan decides
+	 * what gets done and in which order, and this does it.
+	 */
+	interface Filler<S> {
+		public void selectTab(String tab);
+
+		public S expandSection(String tab, String section);
+
+		public void setValue(S section, Entry entry);
+	}
+
+	private static final class LiveFiller implements Filler<Live.Section> {
+		private final FormData form;
+		private final BiFunction<FieldType, String, String> renderer;
+
+		private LiveFiller(FormData form, BiFunction<FieldType, String, String> renderer) {
+			this.form = form;
+			this.renderer = renderer;
+		}
+
+		@Override
+		public void selectTab(String tab) {
+			this.form.getTab(tab).select();
+		}
+
+		@Override
+		public Live.Section expandSection(String tab, String section) {
+			Live.Section s = this.form.getTab(tab).getSection(section);
+			// expand() is a no-op if the section is already expanded
+			s.expand();
+			return s;
+		}
+
+		@Override
+		public void setValue(Live.Section section, Entry e) {
+			Live.Field field = section.getField(e.field);
+			if (field == null) {
+				throw new NoSuchElementException("No field named [" + e.field + "] in section [" + e.section
+					+ "] from tab [" + e.tab + "]");
+			}
+			// Only fields with declared effects need to be synchronized on
+			field.setValue(this.renderer != null ? this.renderer.apply(field.getType(), e.value) : e.value, false);
+		}
+	}
+
+	/**
+	 * Checks every tab, section and field in the plan against the form definitions, so a typo
+	 * anywhere is reported before any value is set.
+	 */
+	private void validate(FormData form) {
+		final Set<String> tabs = form.getTabNames();
+		for (Map.Entry<String, Map<String, List<Entry>>> t : this.entries.entrySet()) {
+			final String tab = t.getKey();
+			if (!tabs.contains(tab)) {
+				throw new NoSuchElementException("No tab named [" + tab + "] was found (valid = " + tabs + ")");
+			}
+			final Set<String> sections = form.getSectionNames(tab);
+			for (Map.Entry<String, List<Entry>> s : t.getValue().entrySet()) {
+				final String section = s.getKey();
+				if (!sections.contains(section)) {
+					throw new NoSuchElementException("No section named [" + section + "] was found in tab [" + tab
+						+ "] (valid = " + sections + ")");
+				}
+				final Set<String> fields = form.getFieldNames(tab, section);
+				for (Entry e : s.getValue()) {
+					if (!fields.contains(e.field)) {
+						throw new NoSuchElementException("No field named [" + e.field + "] in section [" + section
+							+ "] from tab [" + tab + "] (valid = " + fields + ")");
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Applies all the values in this plan to the given form, returning the last section that was
+	 * worked on (or {@code null} if the plan is empty). The optional {@code renderer} may be used to
+	 * transform the values before they're applied.
+	 */
+	public Live.Section apply(FormData form, BiFunction<FieldType, String, String> renderer) {
+		Objects.requireNonNull(form, "Must provide the FormData to apply the values to");
+		return apply(form, new LiveFiller(form, renderer));
+	}
+
+	<S> S apply(FormData form, Filler<S> filler) {
+		Objects.requireNonNull(form, "Must provide the FormData to apply the values to");
+		Objects.requireNonNull(filler, "Must provide the Filler to apply the values with");
+		if (isEmpty()) { return null; }
+		validate(form);
+
+		S last = null;
+		// Follow the form's own ordering, not the order in which the values were given
+		for (String tab : form.getTabNames()) {
+			Map<String, List<Entry>> sections = this.entries.get(tab);
+			if (sections == null) {
+				continue;
+			}
+
+			filler.selectTab(tab);
+			for (String sectionName : form.getSectionNames(tab)) {
+				List<Entry> values = sections.get(sectionName);
+				if (values == null) {
+					continue;
+				}
+
+				S section = filler.expandSection(tab, sectionName);
+				for (Entry e : values) {
+					filler.setValue(section, e);
+				}
+				last = section;
+			}
+		}
+		return last;
+	}
+}
@@ -0,0 +1,328 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Publishes what the virtual users are doing over JMX, so stuck or slow users can be diagnosed
+ * with {@code jconsole} (or any other JMX client) while the test is running: the step each thread
+ * is executing, the condition it's waiting on (and for how long), and the locators that have
+ * accumulated the most wait time within a rolling window. The
+ * {@link ArtifactWriter#getDefault() default artifact writer} is published alongside it, for its
+ * queue depth.
+ * </p>
+ * <p>
+ * Monitoring is JVM-wide and disabled by default. Steps are only known while they're being tracked
+ * by {@link StepTimings}, which does so automatically while monitoring is active (as long as the
+ * {@link StepTimings.Monitor} announces them). A thread's step is cleared when {@link StepTimings}
+ * closes it, so idle threads don't report stale steps.
+ * </p>
+ */
+public final class ActivityMonitor implements ActivityMonitorMXBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ActivityMonitor.class);
+
+	public static final String OBJECT_NAME = "com.arkcase.sim:type=ActivityMonitor";
+	public static final String ARTIFACT_WRITER_OBJECT_NAME = "com.arkcase.sim:type=ArtifactWriter,name=";
+	public static final int DEFAULT_TOP_LOCATORS = 10;
+	public static final Duration DEFAULT_WINDOW = Duration.ofMinutes(5);
+	public static final int MAX_LOCATORS = 1000;
+	public static final String OVERFLOW_LOCATOR = "other";
+
+	private static final int BUCKETS = 10;
+
+	private static volatile ActivityMonitor ACTIVE = null;
+
+	private static final class Activity {
+		private final Thread thread;
+		private volatile String step = null;
+		private volatile long stepStart = 0;
+		private volatile String wait = null;
+		private volatile long waitStart = 0;
+
+		private Activity(Thread thread) {
+			this.thread = thread;
+		}
+	}
+
+	private static final class Bucket {
+		private long epoch = -1;
+		// count, total nanos, max nanos
+		private final Map<String, long[]> stats = new HashMap<>();
+	}
+
+	public static boolean isActive() {
+		return (ActivityMonitor.ACTIVE != null);
+	}
+
+	/**
+	 * Starts monitoring, and registers the MBeans with the platform MBean server. If monitoring is
+	 * already active, it's left as is.
+	 */
+	public static synchronized ActivityMonitor start() throws JMException {
+		if (ActivityMonitor.ACTIVE != null) { return ActivityMonitor.ACTIVE; }
+		final ActivityMonitor monitor = new ActivityMonitor(ActivityMonitor.DEFAULT_WINDOW);
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ActivityMonitor.register(server, monitor, new ObjectName(ActivityMonitor.OBJECT_NAME));
+		final ArtifactWriter writer = ArtifactWriter.getDefault();
+		ActivityMonitor.register(server, writer,
+			new ObjectName(ActivityMonitor.ARTIFACT_WRITER_OBJECT_NAME + ObjectName.quote(writer.getName())));
+		ActivityMonitor.ACTIVE = monitor;
+		ActivityMonitor.LOG.info("Publishing virtual user activity as [{}]", ActivityMonitor.OBJECT_NAME);
+		return monitor;
+	}
+
+	private static void register(MBeanServer server, Object mbean, ObjectName name) throws JMException {
+		try {
+			server.registerMBean(mbean, name);
+		} catch (InstanceAlreadyExistsException e) {
+			// Left over from a previous run (i.e. a different class loader)
+			server.unregisterMBean(name);
+			server.registerMBean(mbean, name);
+		}
+	}
+
+	public static synchronized void stop() {
+		if (ActivityMonitor.ACTIVE == null) { return; }
+		ActivityMonitor.ACTIVE = null;
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			server.unregisterMBean(new ObjectName(ActivityMonitor.OBJECT_NAME));
+			server.unregisterMBean(new ObjectName(ActivityMonitor.ARTIFACT_WRITER_OBJECT_NAME
+				+ ObjectName.quote(ArtifactWriter.getDefault().getName())));
+		} catch (InstanceNotFoundException e) {
+			// Already gone
+		} catch (JMException e) {
+			ActivityMonitor.LOG.warn("Failed to unregister the activity MBeans", e);
+		}
+	}
+
+	/**
+	 * Notes that the current thread started executing the given step.
+	 */
+	public static void stepStarted(String step) {
+		final ActivityMonitor monitor = ActivityMonitor.ACTIVE;
+		if (monitor != null) {
+			Activity a = monitor.getActivity();
+			a.stepStart = System.currentTimeMillis();
+			a.step = step;
+		}
+	}
+
+	/**
+	 * Notes that the current thread is no longer executing a step.
+	 */
+	public static void stepEnded() {
+		final ActivityMonitor monitor = ActivityMonitor.ACTIVE;
+		if (monitor != null) {
+			Activity a = monitor.getActivity();
+			a.step = null;
+			a.stepStart = 0;
+		}
+	}
+
+	/**
+	 * Notes that the current thread started waiting on the given condition.
+	 */
+	public static void waitStarted(String condition) {
+		final ActivityMonitor monitor = ActivityMonitor.ACTIVE;
+		if (monitor != null) {
+			Activity a = monitor.getActivity();
+			a.waitStart = System.currentTimeMillis();
+			a.wait = condition;
+		}
+	}
+
+	/**
+	 * Notes that the current thread's wait is over, and accounts the time it took to the given
+	 * locator (or condition). This must be a stable key (i.e. without element or lambda
+	 * identities), or the locators will quickly overflow.
+	 */
+	public static void waitEnded(String locator, long nanos) {
+		final ActivityMonitor monitor = ActivityMonitor.ACTIVE;
+		if (monitor != null) {
+			monitor.getActivity().wait = null;
+			monitor.record(locator, nanos);
+		}
+	}
+
+	private final ConcurrentMap<Long, Activity> threads = new ConcurrentHashMap<>();
+	private final long bucketMillis;
+	private final Bucket[] buckets = new Bucket[ActivityMonitor.BUCKETS];
+	private volatile int topLocators = ActivityMonitor.DEFAULT_TOP_LOCATORS;
+
+	ActivityMonitor(Duration window) {
+		this.bucketMillis = Math.max(1, window.toMillis() / ActivityMonitor.BUCKETS);
+		for (int i = 0; i < this.buckets.length; i++) {
+			this.buckets[i] = new Bucket();
+		}
+	}
+
+	private Activity getActivity() {
+		final Thread t = Thread.currentThread();
+		Activity a = this.threads.get(t.getId());
+		if ((a == null) || (a.thread != t)) {
+			a = new Activity(t);
+			this.threads.put(t.getId(), a);
+		}
+		return a;
+	}
+
+	void record(String locator, long nanos) {
+		if (locator == null) {
+			locator = ActivityMonitor.OVERFLOW_LOCATOR;
+		}
+		final long epoch = System.currentTimeMillis() / this.bucketMillis;
+		synchronized (this.buckets) {
+			final Bucket b = this.buckets[(int) (epoch % this.buckets.length)];
+			if (b.epoch != epoch) {
+				b.epoch = epoch;
+				b.stats.clear();
+			}
+			long[] s = b.stats.get(locator);
+			if (s == null) {
+				if (b.stats.size() >= ActivityMonitor.MAX_LOCATORS) {
+					locator = ActivityMonitor.OVERFLOW_LOCATOR;
+				}
+				s = b.stats.computeIfAbsent(locator, (k) -> new long[3]);
+			}
+			s[0]++;
+			s[1] += nanos;
+			s[2] = Math.max(s[2], nanos);
+		}
+	}
+
+	@Override
+	public List<ThreadActivity> getThreads() {
+		final long now = System.currentTimeMillis();
+		List<ThreadActivity> ret = new ArrayList<>();
+		for (Iterator<Activity> it = this.threads.values().iterator(); it.hasNext();) {
+			final Activity a = it.next();
+			if (!a.thread.isAlive()) {
+				it.remove();
+				continue;
+			}
+			final String step = a.step;
+			final String wait = a.wait;
+			if ((step == null) && (wait == null)) {
+				continue;
+			}
+			ret.add(new ThreadActivity(a.thread.getId(), a.thread.getName(), step,
+				(step != null ? now - a.stepStart : 0), wait, (wait != null ? now - a.waitStart : 0)));
+		}
+		ret.sort((a, b) -> Long.compare(a.getThreadId(), b.getThreadId()));
+		return ret;
+	}
+
+	@Override
+	public int getWaitingThreads() {
+		int count = 0;
+		for (Activity a : this.threads.values()) {
+			if ((a.wait != null) && a.thread.isAlive()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public List<LocatorStats> getSlowestLocators() {
+		final long oldest = (System.currentTimeMillis() / this.bucketMillis) - this.buckets.length;
+		final Map<String, long[]> merged = new HashMap<>();
+		synchronized (this.buckets) {
+			for (Bucket b : this.buckets) {
+				if (b.epoch <= oldest) {
+					continue;
+				}
+				b.stats.forEach((k, s) -> {
+					long[] m = merged.computeIfAbsent(k, (x) -> new long[3]);
+					m[0] += s[0];
+					m[1] += s[1];
+					m[2] = Math.max(m[2], s[2]);
+				});
+			}
+		}
+		List<Map.Entry<String, long[]>> entries = new ArrayList<>(merged.entrySet());
+		entries.sort((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]));
+		final int top = Math.min(this.topLocators, entries.size());
+		if (top <= 0) { return Collections.emptyList(); }
+		List<LocatorStats> ret = new ArrayList<>(top);
+		for (Map.Entry<String, long[]> e : entries.subList(0, top)) {
+			final long[] s = e.getValue();
+			ret.add(new LocatorStats(e.getKey(), s[0], TimeUnit.NANOSECONDS.toMillis(s[1]),
+				TimeUnit.NANOSECONDS.toMillis(s[2])));
+		}
+		return ret;
+	}
+
+	@Override
+	public int getTopLocators() {
+		return this.topLocators;
+	}
+
+	@Override
+	public void setTopLocators(int topLocators) {
+		if (topLocators < 0) { throw new IllegalArgumentException("The number of locators may not be negative"); }
+		this.topLocators = topLocators;
+	}
+
+	@Override
+	public long getWindowSeconds() {
+		return TimeUnit.MILLISECONDS.toSeconds(this.bucketMillis * this.buckets.length);
+	}
+
+	@Override
+	public void resetLocators() {
+		synchronized (this.buckets) {
+			for (Bucket b : this.buckets) {
+				b.epoch = -1;
+				b.stats.clear();
+			}
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.util.List;
+
+/**
+ * The management view of the {@link ActivityMonitor}.
+ */
+public interface ActivityMonitorMXBean {
+
+	public static final class ThreadActivity {
+		private final long threadId;
+		private final String threadName;
+		private final String step;
+		private final long stepMillis;
+		private final String wait;
+		private final long waitMillis;
+
+		public ThreadActivity(long threadId, String threadName, String step, long stepMillis, String wait,
+			long waitMillis) {
+			this.threadId = threadId;
+			this.threadName = threadName;
+			this.step = step;
+			this.stepMillis = stepMillis;
+			this.wait = wait;
+			this.waitMillis = waitMillis;
+		}
+
+		public long getThreadId() {
+			return this.threadId;
+		}
+
+		public String getThreadName() {
+			return this.threadName;
+		}
+
+		/** The step the thread is executing (or executed last) */
+		public String getStep() {
+			return this.step;
+		}
+
+		/** The time since the step started */
+		public long getStepMillis() {
+			return this.stepMillis;
+		}
+
+		/** The condition the thread is waiting on, if any */
+		public String getWait() {
+			return this.wait;
+		}
+
+		/** The time since the wait started, or 0 if the thread isn't waiting */
+		public long getWaitMillis() {
+			return this.waitMillis;
+		}
+	}
+
+	public static final class LocatorStats {
+		private final String locator;
+		private final long count;
+		private final long totalMillis;
+		private final long maxMillis;
+
+		public LocatorStats(String locator, long count, long totalMillis, long maxMillis) {
+			this.locator = locator;
+			this.count = count;
+			this.totalMillis = totalMillis;
+			this.maxMillis = maxMillis;
+		}
+
+		public String getLocator() {
+			return this.locator;
+		}
+
+		public long getCount() {
+			return this.count;
+		}
+
+		public long getTotalMillis() {
+			return this.totalMillis;
+		}
+
+		public long getMaxMillis() {
+			return this.maxMillis;
+		}
+	}
+
+	public List<ThreadActivity> getThreads();
+
+	public int getWaitingThreads();
+
+	/**
+	 * The locators (or conditions) with the most wait time within the last
+	 * {@link #getWindowSeconds() window}, slowest first.
+	 */
+	public List<LocatorStats> getSlowestLocators();
+
+	public int getTopLocators();
+
+	public void setTopLocators(int topLocators);
+
+	public long getWindowSeconds();
+
+	public void resetLocators();
+}
@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Persists artifacts (screenshots, page sources, etc.) on a small pool of background threads, so
+ * the threads producing them (i.e. the virtual users) don't have to wait for the disk. The queue of
+ * pending writes is bounded: when it's full, the {@link OverflowPolicy} decides whether the
+ * producer blocks until there's room ({@link OverflowPolicy#BLOCK}), or the artifact is discarded
+ * and counted ({@link OverflowPolicy#DROP}).
+ * </p>
+ * <p>
+ * Since the writes happen asynchronously, failures can't be reported to the producer. Instead,
+ * they're logged and counted. Use {@link #flush(Duration)} to wait for all pending writes to
+ * complete (i.e. at the end of a test). The {@link #getDefault() default instance} flushes itself
+ * when the JVM shuts down.
+ * </p>
+ */
+public final class ArtifactWriter implements ArtifactWriterMXBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ArtifactWriter.class);
+
+	public static final int DEFAULT_THREADS = 2;
+	public static final int DEFAULT_CAPACITY = 256;
+	public static final Duration DEFAULT_SHUTDOWN_FLUSH = Duration.ofSeconds(30);
+
+	public static enum OverflowPolicy {
+		/** Block the producer until there's room in the queue */
+		BLOCK,
+		/** Discard the artifact, and count it as dropped */
+		DROP,
+		//
+		;
+	}
+
+	@FunctionalInterface
+	public static interface Write {
+		public void write() throws IOException;
+	}
+
+	private static final class DefaultHolder {
+		private static final ArtifactWriter INSTANCE = new ArtifactWriter("artifact-writer",
+			ArtifactWriter.DEFAULT_THREADS, ArtifactWriter.DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+		static {
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				ArtifactWriter w = DefaultHolder.INSTANCE;
+				try {
+					if (!w.flush(ArtifactWriter.DEFAULT_SHUTDOWN_FLUSH)) {
+						ArtifactWriter.LOG.warn("Shutting down with {} artifacts still pending", w.getPending());
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				w.executor.shutdown();
+			}, "artifact-writer-shutdown"));
+		}
+	}
+
+	public static ArtifactWriter getDefault() {
+		return DefaultHolder.INSTANCE;
+	}
+
+	private final String name;
+	private final ThreadPoolExecutor executor;
+	private final OverflowPolicy policy;
+	private final Object lock = new Object();
+	private final AtomicLong pending = new AtomicLong(0);
+	private final AtomicLong submitted = new AtomicLong(0);
+	private final AtomicLong written = new AtomicLong(0);
+	private final AtomicLong dropped = new AtomicLong(0);
+	private final AtomicLong failed = new AtomicLong(0);
+
+	public ArtifactWriter(String name, int threads, int capacity, OverflowPolicy policy) {
+		this.name = Objects.requireNonNull(name, "Must provide a name for the writer threads");
+		if (threads < 1) { throw new IllegalArgumentException("Must have at least one writer thread"); }
+		if (capacity < 1) { throw new IllegalArgumentException("The queue capacity must be at least 1"); }
+		this.policy = Objects.requireNonNull(policy, "Must provide an overflow policy");
+		final AtomicInteger counter = new AtomicInteger(0);
+		final RejectedExecutionHandler onFull = (r, e) -> {
+			if (e.isShutdown()) { throw new RejectedExecutionException("The artifact writer has been shut down"); }
+			if (this.policy == OverflowPolicy.DROP) { throw new RejectedExecutionException("The queue is full"); }
+			try {
+				e.getQueue().put(r);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new RejectedExecutionException("Interrupted while waiting for room in the queue", ex);
+			}
+		};
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<>(capacity), (r) -> {
+				Thread t = new Thread(r, name + "-" + counter.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}, onFull);
+	}
+
+	private void done() {
+		if (this.pending.decrementAndGet() == 0) {
+			synchronized (this.lock) {
+				this.lock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Queues the given write, returning {@code true} if it was queued, or {@code false} if it was
+	 * dropped.
+	 */
+	public boolean submit(String description, Write write) {
+		Objects.requireNonNull(write, "Must provide the write to perform");
+		this.pending.incrementAndGet();
+		try {
+			this.executor.execute(() -> {
+				final Object event = JfrEvents.beginArtifactWrite();
+				boolean ok = false;
+				try {
+					write.write();
+					this.written.incrementAndGet();
+					ok = true;
+				} catch (Throwable t) {
+					this.failed.incrementAndGet();
+					ArtifactWriter.LOG.error("Failed to write the artifact {}", description, t);
+				} finally {
+					JfrEvents.endArtifactWrite(event, description, !ok);
+					done();
+				}
+			});
+			this.submitted.incrementAndGet();
+			return true;
+		} catch (RejectedExecutionException e) {
+			done();
+			long d = this.dropped.incrementAndGet();
+			if ((d == 1) || ((d % 100) == 0)) {
+				ArtifactWriter.LOG.warn("Dropped the artifact {} ({}; {} dropped so far)", description,
+					e.getMessage(), d);
+			}
+			return false;
+		}
+	}
+
+	private static void writeFile(Path target, byte[] data) throws IOException {
+		Path parent = target.getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		Files.write(target, data, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+			StandardOpenOption.WRITE);
+	}
+
+	/**
+	 * Queues the given bytes to be written to the given file, creating its parent directories as
+	 * needed.
+	 */
+	public boolean write(Path target, byte[] data) {
+		Objects.requireNonNull(target, "Must provide a target file");
+		Objects.requireNonNull(data, "Must provide the data to write");
+		return submit(target.toString(), () -> ArtifactWriter.writeFile(target, data));
+	}
+
+	/**
+	 * Queues the given text to be encoded and written to the given file, creating its parent
+	 * directories as needed. The encoding also happens in the background.
+	 */
+	public boolean write(Path target, CharSequence text, Charset charset) {
+		Objects.requireNonNull(target, "Must provide a target file");
+		Objects.requireNonNull(text, "Must provide the text to write");
+		final Charset c = (charset != null ? charset : ScriptTools.DEFAULT_CHARSET);
+		return submit(target.toString(), () -> ArtifactWriter.writeFile(target, text.toString().getBytes(c)));
+	}
+
+	/**
+	 * Waits for all pending writes to complete, up to the given timeout (or indefinitely if it's
+	 * {@code null}). Returns {@code true} if there are no more pending writes.
+	 */
+	public boolean flush(Duration timeout) throws InterruptedException {
+		final long deadline = (timeout != null ? System.nanoTime() + timeout.toNanos() : 0);
+		synchronized (this.lock) {
+			while (this.pending.get() > 0) {
+				if (timeout == null) {
+					this.lock.wait();
+					continue;
+				}
+				long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				if (remaining <= 0) { return false; }
+				this.lock.wait(remaining);
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public OverflowPolicy getPolicy() {
+		return this.policy;
+	}
+
+	/** The number of writes queued or in progress */
+	@Override
+	public long getPending() {
+		return this.pending.get();
+	}
+
+	/** The number of writes waiting in the queue */
+	@Override
+	public int getQueueDepth() {
+		return this.executor.getQueue().size();
+	}
+
+	@Override
+	public long getSubmitted() {
+		return this.submitted.get();
+	}
+
+	@Override
+	public long getWritten() {
+		return this.written.get();
+	}
+
+	@Override
+	public long getDropped() {
+		return this.dropped.get();
+	}
+
+	@Override
+	public long getFailed() {
+		return this.failed.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+			"ArtifactWriter [name=%s, policy=%s, pending=%d, submitted=%d, written=%d, dropped=%d, failed=%d]",
+			this.name, this.policy, getPending(), getSubmitted(), getWritten(), getDropped(), getFailed());
+	}
+}
@@ -0,0 +1,414 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.html5.WebStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A pool of browser sessions, so each iteration doesn't have to pay for a browser's start-up.
+ * Browsers are {@link #acquire() acquired} from the pool (and created with the given factory when
+ * there are none idle), and {@link #release(WebDriver) released} back into it at the end of the
+ * iteration, at which point their state is reset so nothing leaks into the next iteration: the
+ * extra windows are closed, and the cookies and the local and session storage are cleared before
+ * leaving the current page for {@link #BLANK_URL}. Since the cookies and the storage are per
+ * origin (and the cookies are also per path), they're also cleared under each of the application
+ * URLs the pool is given, so they're gone even if the iteration didn't end on the application's
+ * pages. Loading the application itself for that would cost as much as the iteration's first
+ * page, so the pool visits the (nonexistent) {@link #CLEAR_PATH} within the application URL's
+ * directory instead: the server's error page is enough to reach the origin's storage and the
+ * cookies of the application's path. The reset is verified, and a browser which can't be reset is
+ * discarded.
+ * </p>
+ * <p>
+ * Idle browsers are health-checked before they're handed out, and the ones that don't respond are
+ * discarded. Browsers are also recycled (i.e. quit and replaced with a fresh one) after a given
+ * number of uses, to limit the effect of any leaks within the browser itself.
+ * </p>
+ * <p>
+ * The pool used by the steps is the {@link #setDefault(BrowserPool) default} one, which must be
+ * configured beforehand (i.e. from a JSR223 element in a setUp Thread Group):
+ * </p>
+ *
+ * <pre>
+ * com.arkcase.sim.tools.BrowserPool.setDefault(new com.arkcase.sim.tools.BrowserPool({ -&gt;
+ * 	new org.openqa.selenium.chrome.ChromeDriver()
+ * }, 50, 10, ["https://arkcase.example.com/arkcase/"]))
+ * </pre>
+ */
+public final class BrowserPool {
+
+	private static final Logger LOG = LoggerFactory.getLogger(BrowserPool.class);
+
+	public static final String BLANK_URL = "about:blank";
+	public static final int DEFAULT_MAX_USES = 100;
+
+	/**
+	 * The path, relative to each application URL, where its cookies and storage are cleared. It
+	 * doesn't exist, so it's a cheap (if not found) page on the same origin and path.
+	 */
+	public static final String CLEAR_PATH = "browser-pool-reset.txt";
+
+	private static final String CLEAR_STORAGE_JS = "" + //
+		"try { window.localStorage.clear(); } catch (e) { }" + //
+		"try { window.sessionStorage.clear(); } catch (e) { }" + //
+		"var l = 0, s = 0;" + //
+		"try { l = window.localStorage.length; } catch (e) { }" + //
+		"try { s = window.sessionStorage.length; } catch (e) { }" + //
+		"return l + s;";
+
+	private static volatile BrowserPool DEFAULT = null;
+	private static Thread SHUTDOWN_HOOK = null;
+
+	public static BrowserPool getDefault() {
+		return BrowserPool.DEFAULT;
+	}
+
+	/**
+	 * Sets the pool used by the steps, shutting down the previous one (if any). The default pool
+	 * is shut down when the JVM exits, so its browsers don't outlive the test.
+	 */
+	public static synchronized void setDefault(BrowserPool pool) {
+		final BrowserPool previous = BrowserPool.DEFAULT;
+		BrowserPool.DEFAULT = pool;
+		if ((previous != null) && (previous != pool)) {
+			previous.shutdown();
+		}
+		if ((pool != null) && (BrowserPool.SHUTDOWN_HOOK == null)) {
+			BrowserPool.SHUTDOWN_HOOK = new Thread(() -> {
+				BrowserPool p = BrowserPool.DEFAULT;
+				if (p != null) {
+					p.shutdown();
+				}
+			}, "browser-pool-shutdown");
+			Runtime.getRuntime().addShutdownHook(BrowserPool.SHUTDOWN_HOOK);
+		}
+	}
+
+	private final Supplier<WebDriver> factory;
+	private final int maxUses;
+	private final int maxIdle;
+	private final List<String> clearUrls;
+	private final Deque<WebDriver> idle = new ArrayDeque<>();
+	private final Map<WebDriver, int[]> uses = new IdentityHashMap<>();
+	private boolean shutdown = false;
+
+	private final AtomicLong created = new AtomicLong(0);
+	private final AtomicLong reused = new AtomicLong(0);
+	private final AtomicLong recycled = new AtomicLong(0);
+	private final AtomicLong discarded = new AtomicLong(0);
+
+	public BrowserPool(Supplier<WebDriver> factory) {
+		this(factory, BrowserPool.DEFAULT_MAX_USES);
+	}
+
+	public BrowserPool(Supplier<WebDriver> factory, int maxUses) {
+		this(factory, maxUses, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param maxUses
+	 *            the number of times a browser is handed out before it's recycled
+	 * @param maxIdle
+	 *            the number of idle browsers kept in the pool; any others are quit when they're
+	 *            released
+	 */
+	public BrowserPool(Supplier<WebDriver> factory, int maxUses, int maxIdle) {
+		this(factory, maxUses, maxIdle, null);
+	}
+
+	/**
+	 * @param maxUses
+	 *            the number of times a browser is handed out before it's recycled
+	 * @param maxIdle
+	 *            the number of idle browsers kept in the pool; any others are quit when they're
+	 *            released
+	 * @param resetUrls
+	 *            the application URLs whose cookies and storage are cleared when a browser is
+	 *            released (i.e. the application's base URL); they're cleared on the
+	 *            {@link #CLEAR_PATH} next to each one, so the application itself isn't loaded
+	 */
+	public BrowserPool(Supplier<WebDriver> factory, int maxUses, int maxIdle, Collection<String> resetUrls) {
+		this.factory = Objects.requireNonNull(factory, "Must provide a factory for new browsers");
+		if (maxUses < 1) { throw new IllegalArgumentException("The maximum number of uses must be positive"); }
+		if (maxIdle < 0) {
+			throw new IllegalArgumentException("The maximum number of idle browsers may not be negative");
+		}
+		this.maxUses = maxUses;
+		this.maxIdle = maxIdle;
+		Collection<String> clearUrls = new LinkedHashSet<>();
+		if (resetUrls != null) {
+			for (String url : resetUrls) {
+				clearUrls.add(BrowserPool.toClearUrl(url));
+			}
+		}
+		this.clearUrls = Collections.unmodifiableList(new ArrayList<>(clearUrls));
+	}
+
+	/**
+	 * Returns the URL where the given application URL's cookies and storage are cleared: the
+	 * {@link #CLEAR_PATH} within the same directory, without any query or fragment.
+	 */
+	static String toClearUrl(String url) {
+		Objects.requireNonNull(url, "Must provide a non-null application URL");
+		URI uri = URI.create(url);
+		if (!uri.isAbsolute() || !BrowserPool.isWebPage(uri.toString())) {
+			throw new IllegalArgumentException(String.format("The application URL [%s] must be an HTTP(S) URL", url));
+		}
+		String path = uri.getRawPath();
+		path = ((path == null) || path.isEmpty() ? "/" : path.substring(0, path.lastIndexOf('/') + 1));
+		return uri.getScheme() + "://" + uri.getRawAuthority() + path + BrowserPool.CLEAR_PATH;
+	}
+
+	/**
+	 * Hands out a healthy browser, reusing an idle one if possible.
+	 */
+	public WebDriver acquire() {
+		while (true) {
+			final WebDriver browser;
+			synchronized (this) {
+				if (this.shutdown) { throw new IllegalStateException("The browser pool has been shut down"); }
+				browser = this.idle.pollFirst();
+				if (browser == null) {
+					break;
+				}
+			}
+			if (isHealthy(browser)) {
+				synchronized (this) {
+					this.uses.get(browser)[0]++;
+				}
+				this.reused.incrementAndGet();
+				return browser;
+			}
+			BrowserPool.LOG.warn("Discarding an unresponsive browser: {}", browser);
+			discard(browser);
+		}
+
+		final WebDriver browser = this.factory.get();
+		if (browser == null) { throw new IllegalStateException("The browser factory returned null"); }
+		synchronized (this) {
+			this.uses.put(browser, new int[] {
+				1
+			});
+		}
+		this.created.incrementAndGet();
+		return browser;
+	}
+
+	/**
+	 * Resets the given browser and returns it to the pool, unless it's been used too many times
+	 * (in which case it's recycled), or it couldn't be reset (in which case it's discarded).
+	 */
+	public void release(WebDriver browser) {
+		Objects.requireNonNull(browser, "Must provide the browser to release");
+		final int count;
+		synchronized (this) {
+			int[] u = this.uses.get(browser);
+			if (u == null) {
+				throw new IllegalArgumentException("The browser " + browser + " doesn't belong to this pool");
+			}
+			count = u[0];
+		}
+		if (count >= this.maxUses) {
+			this.recycled.incrementAndGet();
+			quit(browser);
+			return;
+		}
+		if (!reset(browser)) {
+			discard(browser);
+			return;
+		}
+		synchronized (this) {
+			if (!this.shutdown && (this.idle.size() < this.maxIdle)) {
+				this.idle.addLast(browser);
+				return;
+			}
+		}
+		quit(browser);
+	}
+
+	private boolean isHealthy(WebDriver browser) {
+		try {
+			return !browser.getWindowHandles().isEmpty() && (browser.getCurrentUrl() != null);
+		} catch (WebDriverException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Clears the browser's state, and verifies that it's actually gone. Returns {@code false} if
+	 * it couldn't be cleared.
+	 */
+	boolean reset(WebDriver browser) {
+		try {
+			// Close every window but the first one
+			Set<String> handles = browser.getWindowHandles();
+			if (handles.isEmpty()) { return false; }
+			Iterator<String> it = handles.iterator();
+			final String main = it.next();
+			while (it.hasNext()) {
+				browser.switchTo().window(it.next());
+				browser.close();
+			}
+			browser.switchTo().window(main);
+
+			// Cookies and storage are per origin, so they must be cleared before leaving the page,
+			// and then under each of the application's URLs
+			if (BrowserPool.isWebPage(browser.getCurrentUrl()) && !clear(browser)) { return false; }
+			for (String url : this.clearUrls) {
+				browser.navigate().to(url);
+				if (!clear(browser)) { return false; }
+			}
+			browser.navigate().to(BrowserPool.BLANK_URL);
+			if (browser.getWindowHandles().size() != 1) {
+				BrowserPool.LOG.warn("Failed to close the extra windows of browser {}", browser);
+				return false;
+			}
+			return true;
+		} catch (WebDriverException e) {
+			BrowserPool.LOG.warn("Failed to reset browser {}", browser, e);
+			return false;
+		}
+	}
+
+	private static boolean isWebPage(String url) {
+		// Other pages (i.e. about:blank) have no cookies, and their storage can't be accessed
+		return (url != null) && (url.startsWith("http://") || url.startsWith("https://"));
+	}
+
+	/**
+	 * Clears the cookies and storage of the current page's origin, and verifies they're gone.
+	 */
+	private boolean clear(WebDriver browser) {
+		browser.manage().deleteAllCookies();
+		long stored = 0;
+		if (WebStorage.class.isInstance(browser)) {
+			WebStorage storage = WebStorage.class.cast(browser);
+			storage.getLocalStorage().clear();
+			storage.getSessionStorage().clear();
+			stored = storage.getLocalStorage().size() + storage.getSessionStorage().size();
+		} else if (JavascriptExecutor.class.isInstance(browser)) {
+			Object ret = JavascriptExecutor.class.cast(browser).executeScript(BrowserPool.CLEAR_STORAGE_JS);
+			stored = (Number.class.isInstance(ret) ? Number.class.cast(ret).longValue() : 0);
+		}
+		if (stored > 0) {
+			BrowserPool.LOG.warn("Failed to clear the storage of browser {} at [{}] ({} items left)", browser,
+				browser.getCurrentUrl(), stored);
+			return false;
+		}
+		if (!browser.manage().getCookies().isEmpty()) {
+			BrowserPool.LOG.warn("Failed to delete the cookies of browser {} at [{}]", browser,
+				browser.getCurrentUrl());
+			return false;
+		}
+		return true;
+	}
+
+	private void discard(WebDriver browser) {
+		this.discarded.incrementAndGet();
+		quit(browser);
+	}
+
+	private void quit(WebDriver browser) {
+		synchronized (this) {
+			this.uses.remove(browser);
+		}
+		try {
+			browser.quit();
+		} catch (WebDriverException e) {
+			BrowserPool.LOG.debug("Failed to quit browser {}", browser, e);
+		}
+	}
+
+	/**
+	 * Quits every browser in the pool, including the ones that have been handed out.
+	 */
+	public void shutdown() {
+		final List<WebDriver> browsers;
+		synchronized (this) {
+			if (this.shutdown) { return; }
+			this.shutdown = true;
+			browsers = new ArrayList<>(this.uses.keySet());
+			this.idle.clear();
+		}
+		for (WebDriver browser : browsers) {
+			quit(browser);
+		}
+	}
+
+	public synchronized int getIdle() {
+		return this.idle.size();
+	}
+
+	public synchronized int getActive() {
+		return this.uses.size() - this.idle.size();
+	}
+
+	public long getCreated() {
+		return this.created.get();
+	}
+
+	public long getReused() {
+		return this.reused.get();
+	}
+
+	public long getRecycled() {
+		return this.recycled.get();
+	}
+
+	public long getDiscarded() {
+		return this.discarded.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+			"BrowserPool [maxUses=%d, idle=%d, active=%d, created=%d, reused=%d, recycled=%d, discarded=%d]",
+			this.maxUses, getIdle(), getActive(), getCreated(), getReused(), getRecycled(), getDiscarded());
+	}
+}
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Per-thread counters for the browser commands issued through an {@link InstrumentedWebDriver}:
+ * how many times each command was issued, how long it took, and roughly how much data was sent
+ * and received (i.e. script sources and results, page sources, screenshots).
+ * </p>
+ * <p>
+ * The counters are cumulative. To measure a given span (i.e. a step, or an iteration), take a
+ * {@link #snapshot()} at its start, and another at its end, and use
+ * {@link Snapshot#since(Snapshot)} to compute the difference.
+ * </p>
+ */
+public final class CommandStats {
+
+	public static final class Counter {
+		public final long count;
+		public final long nanos;
+		public final long maxNanos;
+		public final long bytes;
+
+		private Counter(long count, long nanos, long maxNanos, long bytes) {
+			this.count = count;
+			this.nanos = nanos;
+			this.maxNanos = maxNanos;
+			this.bytes = bytes;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d (%dms, max %dms, %d bytes)", this.count, TimeUnit.NANOSECONDS.toMillis(this.nanos),
+				TimeUnit.NANOSECONDS.toMillis(this.maxNanos), this.bytes);
+		}
+	}
+
+	private static final class MutableCounter {
+		private long count = 0;
+		private long nanos = 0;
+		private long maxNanos = 0;
+		private long bytes = 0;
+	}
+
+	public static final class Snapshot {
+		public final long count;
+		public final long nanos;
+		public final long bytes;
+		public final Map<String, Counter> commands;
+
+		private Snapshot(long count, long nanos, long bytes, Map<String, Counter> commands) {
+			this.count = count;
+			this.nanos = nanos;
+			this.bytes = bytes;
+			this.commands = Collections.unmodifiableMap(commands);
+		}
+
+		/**
+		 * Returns the commands issued between the given (earlier) snapshot and this one. The
+		 * maximum latencies can't be subtracted, so they're carried over as they are.
+		 */
+		public Snapshot since(Snapshot base) {
+			if (base == null) { return this; }
+			Map<String, Counter> commands = new TreeMap<>();
+			for (Map.Entry<String, Counter> e : this.commands.entrySet()) {
+				Counter c = e.getValue();
+				Counter b = base.commands.get(e.getKey());
+				if (b == null) {
+					commands.put(e.getKey(), c);
+				} else if (c.count > b.count) {
+					commands.put(e.getKey(),
+						new Counter(c.count - b.count, c.nanos - b.nanos, c.maxNanos, c.bytes - b.bytes));
+				}
+			}
+			return new Snapshot(this.count - base.count, this.nanos - base.nanos, this.bytes - base.bytes, commands);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d commands (%dms, %d bytes): %s", this.count,
+				TimeUnit.NANOSECONDS.toMillis(this.nanos), this.bytes, this.commands);
+		}
+	}
+
+	private static final ThreadLocal<CommandStats> CURRENT = ThreadLocal.withInitial(CommandStats::new);
+
+	/**
+	 * Returns the current thread's counters.
+	 */
+	public static CommandStats get() {
+		return CommandStats.CURRENT.get();
+	}
+
+	private final Map<String, MutableCounter> commands = new TreeMap<>();
+	private long count = 0;
+	private long nanos = 0;
+	private long bytes = 0;
+
+	private CommandStats() {
+	}
+
+	void record(String command, long nanos, long bytes) {
+		MutableCounter c = this.commands.computeIfAbsent(command, (k) -> new MutableCounter());
+		c.count++;
+		c.nanos += nanos;
+		c.maxNanos = Math.max(c.maxNanos, nanos);
+		c.bytes += bytes;
+		this.count++;
+		this.nanos += nanos;
+		this.bytes += bytes;
+	}
+
+	public long getCount() {
+		return this.count;
+	}
+
+	public long getNanos() {
+		return this.nanos;
+	}
+
+	public long getBytes() {
+		return this.bytes;
+	}
+
+	public Snapshot snapshot() {
+		Map<String, Counter> commands = new TreeMap<>();
+		this.commands.forEach((k, c) -> commands.put(k, new Counter(c.count, c.nanos, c.maxNanos, c.bytes)));
+		return new Snapshot(this.count, this.nanos, this.bytes, commands);
+	}
+
+	public void reset() {
+		this.commands.clear();
+		this.count = 0;
+		this.nanos = 0;
+		this.bytes = 0;
+	}
+
+	@Override
+	public String toString() {
+		return snapshot().toString();
+	}
+}
@@ -0,0 +1,330 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang3.ClassUtils;
+import org.openqa.selenium.Alert;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsDriver;
+import org.openqa.selenium.WrapsElement;
+
+/**
+ * <p>
+ * Decorates a {@link WebDriver} (and every {@link WebElement}, {@link Alert}, and
+ * navigation/option/target locator object obtained through it) such that every browser command
+ * issued is counted, timed, and sized into the current thread's {@link CommandStats}, accounted
+ * to the current step's {@link StepTimings} (as {@link StepTimings.Category#SCRIPT} for script
+ * executions, and {@link StepTimings.Category#COMMAND} for everything else), and reported as a
+ * {@link JfrEvents JFR event}.
+ * </p>
+ * <p>
+ * The decorators implement every interface their target implements (so i.e.
+ * {@code JavascriptExecutor} or {@code TakesScreenshot} casts keep working), plus {@link Wrapper}
+ * and {@link WrapsDriver} or {@link WrapsElement}, so {@link Wrapper#unwrap(Object)} returns the
+ * original object. Calls which don't involve a round trip to the browser (i.e.
+ * {@link WebDriver#manage()}, {@link WebDriver#navigate()}) aren't counted.
+ * </p>
+ */
+public final class InstrumentedWebDriver {
+
+	private static final Set<String> LOCAL_METHODS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList( //
+		"manage", "navigate", "switchTo", "window", "timeouts", "logs", "ime", //
+		"getCapabilities", "getWrappedDriver", "getWrappedElement", "getCoordinates", //
+		"getKeyboard", "getMouse", "getSessionId", "getFileDetector", "setFileDetector", //
+		"toString", "hashCode", "equals" //
+	)));
+
+	private static final Set<String> SCRIPT_METHODS = Collections
+		.unmodifiableSet(new HashSet<>(Arrays.asList("executeScript", "executeAsyncScript")));
+
+	private static final Set<Class<?>> WRAPPED_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList( //
+		WebDriver.class, WebElement.class, Alert.class, //
+		WebDriver.Navigation.class, WebDriver.Options.class, WebDriver.TargetLocator.class, //
+		WebDriver.Timeouts.class, WebDriver.Window.class //
+	)));
+
+	private static final ConcurrentMap<Class<?>, Class<?>[]> INTERFACES = new ConcurrentHashMap<>();
+
+	private static final class Handler implements InvocationHandler {
+		private final Object target;
+		private final String prefix;
+
+		private Handler(Object target) {
+			this.target = target;
+			// Name the commands after the kind of object they're issued to, regardless of which
+			// interface happens to declare them (i.e. findElement())
+			if (target instanceof WebDriver) {
+				this.prefix = "WebDriver.";
+			} else if (target instanceof WebElement) {
+				this.prefix = "WebElement.";
+			} else {
+				this.prefix = null;
+			}
+		}
+
+		private String getCommandName(Method method) {
+			if (this.prefix != null) { return this.prefix + method.getName(); }
+			return method.getDeclaringClass().getSimpleName() + "." + method.getName();
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			final Class<?> declarer = method.getDeclaringClass();
+			final String name = method.getName();
+			if (!declarer.isInstance(this.target)) {
+				// One of the wrapper interfaces we added
+				if ("unwrap".equals(name)) { return Wrapper.unwrap(this.target); }
+				return this.target;
+			}
+
+			if (declarer == Object.class) {
+				if ("equals".equals(name)) { return this.target.equals(InstrumentedWebDriver.unwrap(args[0])); }
+				return method.invoke(this.target, args);
+			}
+
+			final Object[] rawArgs = InstrumentedWebDriver.unwrapAll(args);
+			if (InstrumentedWebDriver.LOCAL_METHODS.contains(name)) {
+				return InstrumentedWebDriver.wrapResult(method, InstrumentedWebDriver.call(method, this.target, rawArgs));
+			}
+
+			final StepTimings.Category category = (InstrumentedWebDriver.SCRIPT_METHODS.contains(name)
+				? StepTimings.Category.SCRIPT
+				: StepTimings.Category.COMMAND);
+			return StepTimings.time(category, () -> {
+				final Object event = JfrEvents.beginCommand();
+				final long start = System.nanoTime();
+				Object result = null;
+				boolean ok = false;
+				try {
+					result = InstrumentedWebDriver.call(method, this.target, rawArgs);
+					ok = true;
+					return InstrumentedWebDriver.wrapResult(method, result);
+				} finally {
+					final long nanos = System.nanoTime() - start;
+					final String command = getCommandName(method);
+					final long bytes = InstrumentedWebDriver.sizeOf(rawArgs) + InstrumentedWebDriver.sizeOf(result);
+					CommandStats.get().record(command, nanos, bytes);
+					JfrEvents.endCommand(event, command, bytes, !ok);
+				}
+			});
+		}
+	}
+
+	private InstrumentedWebDriver() {
+	}
+
+	private static Object call(Method method, Object target, Object[] args) {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) { throw RuntimeException.class.cast(cause); }
+			if (cause instanceof Error) { throw Error.class.cast(cause); }
+			throw new UndeclaredThrowableException(cause);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(
+				String.format("Failed to invoke %s on %s", method, target.getClass().getName()), e);
+		}
+	}
+
+	/**
+	 * Returns a rough estimate of the number of bytes the given value takes up on the wire.
+	 */
+	private static long sizeOf(Object o) {
+		if (o == null) { return 0; }
+		if (o instanceof CharSequence) { return CharSequence.class.cast(o).length(); }
+		if (o instanceof byte[]) { return byte[].class.cast(o).length; }
+		if (o instanceof Object[]) {
+			long size = 0;
+			for (Object e : Object[].class.cast(o)) {
+				size += InstrumentedWebDriver.sizeOf(e);
+			}
+			return size;
+		}
+		if (o instanceof Collection) {
+			long size = 0;
+			for (Object e : Collection.class.cast(o)) {
+				size += InstrumentedWebDriver.sizeOf(e);
+			}
+			return size;
+		}
+		if (o instanceof Map) {
+			long size = 0;
+			for (Map.Entry<?, ?> e : ((Map<?, ?>) o).entrySet()) {
+				size += InstrumentedWebDriver.sizeOf(e.getKey()) + InstrumentedWebDriver.sizeOf(e.getValue());
+			}
+			return size;
+		}
+		// Numbers, booleans, element references, etc.
+		return 8;
+	}
+
+	private static Object[] unwrapAll(Object[] args) {
+		if ((args == null) || (args.length == 0)) { return args; }
+		Object[] ret = null;
+		for (int i = 0; i < args.length; i++) {
+			Object a = args[i];
+			Object u = InstrumentedWebDriver.unwrapDeep(a);
+			if (u != a) {
+				if (ret == null) {
+					ret = args.clone();
+				}
+				ret[i] = u;
+			}
+		}
+		return (ret != null ? ret : args);
+	}
+
+	private static Object unwrapDeep(Object o) {
+		if (o instanceof Object[]) {
+			// i.e. the script arguments
+			Object[] a = Object[].class.cast(o);
+			Object[] u = InstrumentedWebDriver.unwrapAll(a);
+			return (u != a ? u : o);
+		}
+		if (o instanceof List) {
+			List<?> l = List.class.cast(o);
+			List<Object> u = new ArrayList<>(l.size());
+			boolean changed = false;
+			for (Object e : l) {
+				Object r = InstrumentedWebDriver.unwrapDeep(e);
+				changed |= (r != e);
+				u.add(r);
+			}
+			return (changed ? u : o);
+		}
+		return InstrumentedWebDriver.unwrap(o);
+	}
+
+	private static Object wrapResult(Method method, Object result) {
+		if (result == null) { return null; }
+		final Class<?> type = method.getReturnType();
+		if (InstrumentedWebDriver.WRAPPED_TYPES.contains(type)) { return InstrumentedWebDriver.wrap(result); }
+		if ((type == List.class) || (type == Object.class)) {
+			// i.e. findElements(), or script results
+			return InstrumentedWebDriver.wrapDeep(result);
+		}
+		return result;
+	}
+
+	private static Object wrapDeep(Object o) {
+		if (o instanceof WebElement) { return InstrumentedWebDriver.wrap(o); }
+		if (o instanceof List) {
+			List<?> l = List.class.cast(o);
+			List<Object> w = new ArrayList<>(l.size());
+			for (Object e : l) {
+				w.add(InstrumentedWebDriver.wrapDeep(e));
+			}
+			return w;
+		}
+		if (o instanceof Map) {
+			Map<Object, Object> w = new LinkedHashMap<>();
+			((Map<?, ?>) o).forEach((k, v) -> w.put(k, InstrumentedWebDriver.wrapDeep(v)));
+			return w;
+		}
+		return o;
+	}
+
+	private static Class<?>[] getInterfaces(Class<?> klass) {
+		return InstrumentedWebDriver.INTERFACES.computeIfAbsent(klass, (k) -> {
+			final ClassLoader cl = InstrumentedWebDriver.class.getClassLoader();
+			Set<Class<?>> interfaces = new LinkedHashSet<>();
+			for (Class<?> i : ClassUtils.getAllInterfaces(k)) {
+				// Only the interfaces we can see (and implement)
+				try {
+					if (Modifier.isPublic(i.getModifiers())
+						&& (Class.forName(i.getName(), false, cl) == i)) {
+						interfaces.add(i);
+					}
+				} catch (ClassNotFoundException e) {
+					// Not visible, so skip it
+				}
+			}
+			if (WebElement.class.isAssignableFrom(k)) {
+				interfaces.add(WrapsElement.class);
+				interfaces.add(WebElementWrapper.class);
+			} else {
+				if (WebDriver.class.isAssignableFrom(k)) {
+					interfaces.add(WrapsDriver.class);
+				}
+				interfaces.add(Wrapper.class);
+			}
+			return interfaces.toArray(new Class<?>[interfaces.size()]);
+		});
+	}
+
+	private static Object wrap(Object target) {
+		if ((target == null) || InstrumentedWebDriver.isInstrumented(target)) { return target; }
+		return Proxy.newProxyInstance(InstrumentedWebDriver.class.getClassLoader(),
+			InstrumentedWebDriver.getInterfaces(target.getClass()), new Handler(target));
+	}
+
+	/**
+	 * Returns an instrumented decorator for the given browser, or the browser itself if it's
+	 * already instrumented.
+	 */
+	public static WebDriver instrument(WebDriver browser) {
+		Objects.requireNonNull(browser, "Must provide a WebDriver instance");
+		return WebDriver.class.cast(InstrumentedWebDriver.wrap(browser));
+	}
+
+	public static boolean isInstrumented(Object o) {
+		return (o != null) && Proxy.isProxyClass(o.getClass())
+			&& (Proxy.getInvocationHandler(o) instanceof Handler);
+	}
+
+	/**
+	 * Returns the object decorated by the given instrumented decorator, or the object itself if
+	 * it's not an instrumented decorator.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T unwrap(T o) {
+		if (!InstrumentedWebDriver.isInstrumented(o)) { return o; }
+		return (T) Handler.class.cast(Proxy.getInvocationHandler(o)).target;
+	}
+}
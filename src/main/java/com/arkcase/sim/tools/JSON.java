@@ -33,15 +33,70 @@ import java.io.Reader;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 
 import org.apache.commons.lang3.StringUtils;
 
 import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 public class JSON {
 
+	// The mapper is only used to build readers and types, and is never reconfigured, so it's safe
+	// to share it across threads. The readers themselves are immutable.
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	private static final ConcurrentMap<JavaType, ObjectReader> READERS = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the shared {@link ObjectReader} for the given type, creating (and caching) it if
+	 * necessary. The reader's root deserializer is resolved when it's created, so subsequent reads
+	 * don't need to re-introspect the target type.
+	 */
+	public static ObjectReader getReader(JavaType type) {
+		Objects.requireNonNull(type, "Must provide a type to read");
+		ObjectReader reader = JSON.READERS.get(type);
+		if (reader == null) {
+			reader = JSON.READERS.computeIfAbsent(type, JSON.MAPPER::readerFor);
+		}
+		return reader;
+	}
+
+	public static ObjectReader getReader(Class<?> klazz) {
+		Objects.requireNonNull(klazz, "Must provide a class to read");
+		return JSON.getReader(JSON.MAPPER.constructType(klazz));
+	}
+
+	public static ObjectReader getReader(Function<ObjectMapper, JavaType> typeMapper) {
+		Objects.requireNonNull(typeMapper, "Must provide a type mapper");
+		return JSON.getReader(typeMapper.apply(JSON.MAPPER));
+	}
+
+	/**
+	 * Creates and caches the readers for all the given types, so the cost of introspecting them is
+	 * paid up front (i.e. at startup) instead of on the first read.
+	 */
+	public static void prewarm(Class<?>... classes) {
+		if (classes == null) { return; }
+		for (Class<?> c : classes) {
+			if (c != null) {
+				JSON.getReader(c);
+			}
+		}
+	}
+
+	public static void prewarm(JavaType... types) {
+		if (types == null) { return; }
+		for (JavaType t : types) {
+			if (t != null) {
+				JSON.getReader(t);
+			}
+		}
+	}
+
 	protected static InputStream findResource(String resource, ClassLoader cl) throws IOException {
 		if (StringUtils.isEmpty(resource)) {
 			throw new IllegalArgumentException("Must provide a non-empty resource name");
@@ -52,6 +107,34 @@ public class JSON {
 		return cl.getResourceAsStream(resource);
 	}
 
+	private static JsonNode readTree(InputStream in, Charset charset) throws IOException {
+		if (charset == null) {
+			charset = Charset.defaultCharset();
+		}
+		return JSON.getReader(JsonNode.class).readTree(new InputStreamReader(in, charset));
+	}
+
+	/**
+	 * <p>
+	 * Returns the parsed tree for the given classpath resource, via the {@link ResourceCache}, or
+	 * {@code null} if there's no such resource. The resource and {@link URL} variants of
+	 * {@code unmarshal()} bind a new value from this tree on every call, so they neither re-read
+	 * nor re-tokenize the JSON, and callers never share (and thus can't corrupt) each other's
+	 * values.
+	 * </p>
+	 * <p>
+	 * The trees themselves never leave this class, so they're effectively immutable. To pick up
+	 * changes to a resource, it must be {@link ResourceCache#invalidate(String) invalidated}.
+	 * </p>
+	 */
+	private static JsonNode findTree(ClassLoader cl, String resource, Charset charset) throws IOException {
+		return ResourceCache.get(cl, resource, charset, JsonNode.class, JSON::readTree);
+	}
+
+	private static JsonNode findTree(URL url, Charset charset) throws IOException {
+		return ResourceCache.get(url, charset, JsonNode.class, JSON::readTree);
+	}
+
 	public static <T> T unmarshal(Class<T> klazz, String resource) throws IOException {
 		return JSON.unmarshal(klazz, null, resource, null);
 	}
@@ -65,11 +148,10 @@ public class JSON {
 	}
 
 	public static <T> T unmarshal(Class<T> klazz, ClassLoader cl, String resource, Charset charset) throws IOException {
-		final InputStream in = JSON.findResource(resource, cl);
-		if (in == null) { return null; }
-		try (InputStream i = in) {
-			return JSON.unmarshal(klazz, in, charset);
-		}
+		Objects.requireNonNull(klazz, "Must provide a class to unmarshal");
+		final JsonNode tree = JSON.findTree(cl, resource, charset);
+		if (tree == null) { return null; }
+		return JSON.getReader(klazz).readValue(tree);
 	}
 
 	public static <T> T unmarshal(Class<T> klazz, URL url) throws IOException {
@@ -79,9 +161,9 @@ public class JSON {
 	public static <T> T unmarshal(Class<T> klazz, URL url, Charset charset) throws IOException {
 		Objects.requireNonNull(klazz, "Must provide a class to unmarshal");
 		Objects.requireNonNull(url, "Must provide a URL to read from");
-		try (InputStream in = url.openStream()) {
-			return JSON.unmarshal(klazz, in, charset);
-		}
+		final JsonNode tree = JSON.findTree(url, charset);
+		if (tree == null) { return null; }
+		return JSON.getReader(klazz).readValue(tree);
 	}
 
 	public static <T> T unmarshal(Class<T> klazz, InputStream in) throws IOException {
@@ -100,8 +182,7 @@ public class JSON {
 	public static <T> T unmarshal(Class<T> klazz, Reader r) throws IOException {
 		Objects.requireNonNull(klazz, "Must provide a class to unmarshal");
 		Objects.requireNonNull(r, "Must provide a Reader to read from");
-		ObjectMapper mapper = new ObjectMapper();
-		return mapper.readValue(r, klazz);
+		return JSON.getReader(klazz).readValue(r);
 	}
 
 	public static <T> T unmarshal(Function<ObjectMapper, JavaType> typeMapper, String resource) throws IOException {
@@ -120,11 +201,10 @@ public class JSON {
 
 	public static <T> T unmarshal(Function<ObjectMapper, JavaType> typeMapper, ClassLoader cl, String resource,
 		Charset charset) throws IOException {
-		final InputStream in = JSON.findResource(resource, cl);
-		if (in == null) { return null; }
-		try (InputStream i = in) {
-			return JSON.unmarshal(typeMapper, in, charset);
-		}
+		Objects.requireNonNull(typeMapper, "Must provide a class to unmarshal");
+		final JsonNode tree = JSON.findTree(cl, resource, charset);
+		if (tree == null) { return null; }
+		return JSON.getReader(typeMapper).readValue(tree);
 	}
 
 	public static <T> T unmarshal(Function<ObjectMapper, JavaType> typeMapper, URL url) throws IOException {
@@ -135,9 +215,9 @@ public class JSON {
 		throws IOException {
 		Objects.requireNonNull(typeMapper, "Must provide a class to unmarshal");
 		Objects.requireNonNull(url, "Must provide a URL to read from");
-		try (InputStream in = url.openStream()) {
-			return JSON.unmarshal(typeMapper, in, charset);
-		}
+		final JsonNode tree = JSON.findTree(url, charset);
+		if (tree == null) { return null; }
+		return JSON.getReader(typeMapper).readValue(tree);
 	}
 
 	public static <T> T unmarshal(Function<ObjectMapper, JavaType> typeMapper, InputStream in) throws IOException {
@@ -157,8 +237,6 @@ public class JSON {
 	public static <T> T unmarshal(Function<ObjectMapper, JavaType> typeMapper, Reader r) throws IOException {
 		Objects.requireNonNull(typeMapper, "Must provide a class to unmarshal");
 		Objects.requireNonNull(r, "Must provide a Reader to read from");
-		ObjectMapper mapper = new ObjectMapper();
-		JavaType type = (typeMapper != null ? typeMapper.apply(mapper) : null);
-		return mapper.readValue(r, type);
+		return JSON.getReader(typeMapper).readValue(r);
 	}
 }
\ No newline at end of file
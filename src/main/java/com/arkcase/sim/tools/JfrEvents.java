@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.StackTrace;
+
+/**
+ * <p>
+ * Java Flight Recorder events for the Gherkin steps, the waits, the browser commands, and the
+ * artifact writes, so they show up in JFR recordings correlated with GC and thread activity.
+ * </p>
+ * <p>
+ * The JFR classes are only touched if JFR is available (JDK 11+, or 8u262+), so callers only
+ * deal with opaque event handles obtained from the {@code begin*()} methods, which return
+ * {@code null} (at the cost of a volatile read) unless a recording is running and the event is
+ * enabled in it. The {@code end*()} methods accept {@code null} handles.
+ * </p>
+ */
+public final class JfrEvents {
+
+	private static final String CATEGORY = "ArkCase";
+
+	@Name("com.arkcase.sim.Step")
+	@Label("Gherkin Step")
+	@Description("A Gherkin step, as announced by the step monitor, or else from the start of its first browser"
+		+ " interaction to the end of its last one")
+	@Category({
+		JfrEvents.CATEGORY, "Gherkin"
+	})
+	@StackTrace(false)
+	static final class StepEvent extends Event {
+		@Label("Step")
+		String step;
+	}
+
+	@Name("com.arkcase.sim.Wait")
+	@Label("Wait")
+	@Description("A wait for a condition in the browser")
+	@Category({
+		JfrEvents.CATEGORY, "WebDriver"
+	})
+	static final class WaitEvent extends Event {
+		@Label("Condition")
+		String condition;
+
+		@Label("Target")
+		String target;
+
+		@Label("Timeout (ms)")
+		long timeout;
+
+		@Label("Polls")
+		int polls;
+
+		@Label("Satisfied")
+		boolean satisfied;
+	}
+
+	@Name("com.arkcase.sim.Command")
+	@Label("Browser Command")
+	@Description("A WebDriver command issued to the browser")
+	@Category({
+		JfrEvents.CATEGORY, "WebDriver"
+	})
+	@StackTrace(false)
+	static final class CommandEvent extends Event {
+		@Label("Command")
+		String command;
+
+		@Label("Payload (bytes)")
+		long bytes;
+
+		@Label("Failed")
+		boolean failed;
+	}
+
+	@Name("com.arkcase.sim.ArtifactWrite")
+	@Label("Artifact Write")
+	@Description("A screenshot, page source or other artifact written to disk")
+	@Category({
+		JfrEvents.CATEGORY, "Artifacts"
+	})
+	@StackTrace(false)
+	static final class ArtifactWriteEvent extends Event {
+		@Label("Artifact")
+		String artifact;
+
+		@Label("Failed")
+		boolean failed;
+	}
+
+	/**
+	 * Only loaded (and thus only links against JFR) if JFR is available, so all the code that
+	 * touches the JFR classes must live here.
+	 */
+	private static final class Recorder {
+		private static volatile boolean recording = false;
+
+		private static void update() {
+			boolean running = false;
+			if (FlightRecorder.isInitialized()) {
+				for (Recording r : FlightRecorder.getFlightRecorder().getRecordings()) {
+					if (r.getState() == RecordingState.RUNNING) {
+						running = true;
+						break;
+					}
+				}
+			}
+			Recorder.recording = running;
+		}
+
+		private static boolean install() {
+			if (!FlightRecorder.isAvailable()) { return false; }
+			FlightRecorder.addListener(new FlightRecorderListener() {
+				@Override
+				public void recordingStateChanged(Recording recording) {
+					Recorder.update();
+				}
+
+				@Override
+				public void recorderInitialized(FlightRecorder recorder) {
+					Recorder.update();
+				}
+			});
+			Recorder.update();
+			return true;
+		}
+
+		private static <E extends Event> E begin(E event) {
+			if (!event.isEnabled()) { return null; }
+			event.begin();
+			return event;
+		}
+
+		private static Object beginStep(String step) {
+			StepEvent e = Recorder.begin(new StepEvent());
+			if (e != null) {
+				e.step = step;
+			}
+			return e;
+		}
+
+		private static Object beginWait() {
+			return Recorder.begin(new WaitEvent());
+		}
+
+		private static Object beginCommand() {
+			return Recorder.begin(new CommandEvent());
+		}
+
+		private static Object beginArtifactWrite() {
+			return Recorder.begin(new ArtifactWriteEvent());
+		}
+
+		private static void continueStep(Object handle) {
+			StepEvent.class.cast(handle).end();
+		}
+
+		private static void endStep(Object handle) {
+			// The end was already set by continueStep()
+			StepEvent.class.cast(handle).commit();
+		}
+
+		private static void endWait(Object handle, Object condition, Object target, long timeout, int polls,
+			boolean satisfied) {
+			WaitEvent e = WaitEvent.class.cast(handle);
+			e.end();
+			e.condition = (condition != null ? condition.toString() : null);
+			e.target = (target != null ? target.toString() : null);
+			e.timeout = timeout;
+			e.polls = polls;
+			e.satisfied = satisfied;
+			e.commit();
+		}
+
+		private static void endCommand(Object handle, String command, long bytes, boolean failed) {
+			CommandEvent e = CommandEvent.class.cast(handle);
+			e.end();
+			e.command = command;
+			e.bytes = bytes;
+			e.failed = failed;
+			e.commit();
+		}
+
+		private static void endArtifactWrite(Object handle, String artifact, boolean failed) {
+			ArtifactWriteEvent e = ArtifactWriteEvent.class.cast(handle);
+			e.end();
+			e.artifact = artifact;
+			e.failed = failed;
+			e.commit();
+		}
+	}
+
+	private static final boolean AVAILABLE;
+	static {
+		boolean available = false;
+		try {
+			Class.forName("jdk.jfr.FlightRecorder");
+			available = Recorder.install();
+		} catch (ClassNotFoundException | LinkageError e) {
+			available = false;
+		}
+		AVAILABLE = available;
+	}
+
+	private JfrEvents() {
+	}
+
+	private static boolean isRecording() {
+		return JfrEvents.AVAILABLE && Recorder.recording;
+	}
+
+	/**
+	 * Returns {@code true} if JFR is recording, and thus it's worth gathering the data for the
+	 * events.
+	 */
+	public static boolean isActive() {
+		return JfrEvents.isRecording();
+	}
+
+	public static Object beginStep(String step) {
+		return (JfrEvents.isRecording() ? Recorder.beginStep(step) : null);
+	}
+
+	/**
+	 * Extends the step's event up to the present moment.
+	 */
+	public static void continueStep(Object handle) {
+		if (handle != null) {
+			Recorder.continueStep(handle);
+		}
+	}
+
+	public static void endStep(Object handle) {
+		if (handle != null) {
+			Recorder.endStep(handle);
+		}
+	}
+
+	public static Object beginWait() {
+		return (JfrEvents.isRecording() ? Recorder.beginWait() : null);
+	}
+
+	public static void endWait(Object handle, Object condition, Object target, long timeout, int polls,
+		boolean satisfied) {
+		if (handle != null) {
+			Recorder.endWait(handle, condition, target, timeout, polls, satisfied);
+		}
+	}
+
+	public static Object beginCommand() {
+		return (JfrEvents.isRecording() ? Recorder.beginCommand() : null);
+	}
+
+	public static void endCommand(Object handle, String command, long bytes, boolean failed) {
+		if (handle != null) {
+			Recorder.endCommand(handle, command, bytes, failed);
+		}
+	}
+
+	public static Object beginArtifactWrite() {
+		return (JfrEvents.isRecording() ? Recorder.beginArtifactWrite() : null);
+	}
+
+	public static void endArtifactWrite(Object handle, String artifact, boolean failed) {
+		if (handle != null) {
+			Recorder.endArtifactWrite(handle, artifact, failed);
+		}
+	}
+}
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Reads the source lines spanned by each method from a class's {@code LineNumberTable}s, which is
+ * the only way to tell which of several overloads a stack frame belongs to.
+ * </p>
+ */
+final class LineNumbers {
+
+	private static final int MAGIC = 0xCAFEBABE;
+
+	private LineNumbers() {
+	}
+
+	private static String getDescriptor(Class<?> type) {
+		if (type.isArray()) { return type.getName().replace('.', '/'); }
+		if (!type.isPrimitive()) { return "L" + type.getName().replace('.', '/') + ";"; }
+		if (type == Void.TYPE) { return "V"; }
+		if (type == Boolean.TYPE) { return "Z"; }
+		if (type == Long.TYPE) { return "J"; }
+		// All the others are named after their first letter
+		return type.getName().substring(0, 1).toUpperCase();
+	}
+
+	static String getDescriptor(Method method) {
+		StringBuilder b = new StringBuilder(method.getName()).append('(');
+		for (Class<?> p : method.getParameterTypes()) {
+			b.append(LineNumbers.getDescriptor(p));
+		}
+		return b.append(')').append(LineNumbers.getDescriptor(method.getReturnType())).toString();
+	}
+
+	/**
+	 * Returns the first and last source lines of each method in the given class, keyed by the
+	 * method's name and descriptor (as returned by {@link #getDescriptor(Method)}). Methods without
+	 * line numbers (i.e. abstract ones, or if the class was compiled without them) are left out.
+	 */
+	static Map<String, int[]> read(Class<?> klass) throws IOException {
+		final String name = klass.getName();
+		try (InputStream raw = klass.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class")) {
+			if (raw == null) { return Collections.emptyMap(); }
+			final DataInputStream in = new DataInputStream(new BufferedInputStream(raw));
+			if (in.readInt() != LineNumbers.MAGIC) { throw new IOException("Not a class file for " + name); }
+			in.skipBytes(4); // minor and major versions
+
+			final int constants = in.readUnsignedShort();
+			final String[] utf8 = new String[constants];
+			for (int i = 1; i < constants; i++) {
+				final int tag = in.readUnsignedByte();
+				switch (tag) {
+					case 1: // Utf8
+						utf8[i] = in.readUTF();
+						break;
+					case 7: // Class
+					case 8: // String
+					case 16: // MethodType
+					case 19: // Module
+					case 20: // Package
+						in.skipBytes(2);
+						break;
+					case 15: // MethodHandle
+						in.skipBytes(3);
+						break;
+					case 3: // Integer
+					case 4: // Float
+					case 9: // Fieldref
+					case 10: // Methodref
+					case 11: // InterfaceMethodref
+					case 12: // NameAndType
+					case 17: // Dynamic
+					case 18: // InvokeDynamic
+						in.skipBytes(4);
+						break;
+					case 5: // Long
+					case 6: // Double
+						in.skipBytes(8);
+						i++; // These take up two entries
+						break;
+					default:
+						throw new IOException("Unknown constant pool tag " + tag + " in " + name);
+				}
+			}
+
+			in.skipBytes(6); // access flags, this class and superclass
+			in.skipBytes(2 * in.readUnsignedShort()); // interfaces
+			for (int f = in.readUnsignedShort(); f > 0; f--) {
+				in.skipBytes(6); // access flags, name and descriptor
+				LineNumbers.skipAttributes(in);
+			}
+
+			final Map<String, int[]> lines = new HashMap<>();
+			for (int m = in.readUnsignedShort(); m > 0; m--) {
+				in.skipBytes(2); // access flags
+				final String method = utf8[in.readUnsignedShort()] + utf8[in.readUnsignedShort()];
+				for (int a = in.readUnsignedShort(); a > 0; a--) {
+					final String attribute = utf8[in.readUnsignedShort()];
+					final int length = in.readInt();
+					if (!"Code".equals(attribute)) {
+						in.skipBytes(length);
+						continue;
+					}
+					in.skipBytes(4); // max stack and max locals
+					in.skipBytes(in.readInt()); // the code itself
+					in.skipBytes(8 * in.readUnsignedShort()); // exception table
+					for (int c = in.readUnsignedShort(); c > 0; c--) {
+						final String codeAttribute = utf8[in.readUnsignedShort()];
+						final int codeLength = in.readInt();
+						if (!"LineNumberTable".equals(codeAttribute)) {
+							in.skipBytes(codeLength);
+							continue;
+						}
+						for (int l = in.readUnsignedShort(); l > 0; l--) {
+							in.skipBytes(2); // start pc
+							final int line = in.readUnsignedShort();
+							final int[] range = lines.computeIfAbsent(method, (k) -> new int[] {
+								line, line
+							});
+							range[0] = Math.min(range[0], line);
+							range[1] = Math.max(range[1], line);
+						}
+					}
+				}
+			}
+			return lines;
+		}
+	}
+
+	private static void skipAttributes(DataInputStream in) throws IOException {
+		for (int a = in.readUnsignedShort(); a > 0; a--) {
+			in.skipBytes(2); // name
+			in.skipBytes(in.readInt());
+		}
+	}
+
+	/**
+	 * Returns the method among the given candidates (all declared by the given class) whose source
+	 * lines include the given line, or {@code null} if there's no such method or if the class has
+	 * no line numbers.
+	 */
+	static Method find(Class<?> klass, Iterable<Method> candidates, int line) throws IOException {
+		if (line <= 0) { return null; }
+		final Map<String, int[]> lines = LineNumbers.read(klass);
+		for (Method m : candidates) {
+			final int[] range = lines.get(LineNumbers.getDescriptor(m));
+			if ((range != null) && (range[0] <= line) && (line <= range[1])) { return m; }
+		}
+		return null;
+	}
+}
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.HdrHistogram.EncodableHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+import org.HdrHistogram.HistogramLogWriter;
+
+/**
+ * <p>
+ * Merges the {@link MetricsLog metrics logs} written by every node of a distributed test, and
+ * reports the global percentiles for each step and wait condition as tab-separated values (in
+ * milliseconds). Optionally, the merged histograms can also be written out as a single log, for
+ * use with other HdrHistogram tools.
+ * </p>
+ *
+ * <pre>
+ * java -cp ... com.arkcase.sim.tools.MetricsAggregator [--hlog merged.hlog] logOrDir...
+ * </pre>
+ */
+public final class MetricsAggregator {
+
+	private static final String LOG_EXTENSION = ".hlog";
+	private static final String UNTAGGED = "untagged";
+	private static final double[] PERCENTILES = {
+		50.0, 90.0, 95.0, 99.0, 99.9
+	};
+
+	private MetricsAggregator() {
+	}
+
+	private static List<Path> findLogs(Collection<Path> paths) throws IOException {
+		List<Path> logs = new ArrayList<>();
+		for (Path p : paths) {
+			if (Files.isDirectory(p)) {
+				try (Stream<Path> s = Files.list(p)) {
+					logs.addAll(s //
+						.filter((f) -> f.getFileName().toString().endsWith(MetricsAggregator.LOG_EXTENSION)) //
+						.filter(Files::isRegularFile) //
+						.sorted() //
+						.collect(Collectors.toList()) //
+					);
+				}
+			} else {
+				logs.add(p);
+			}
+		}
+		return logs;
+	}
+
+	/**
+	 * Merges every interval in the given logs (or directories containing them), by tag.
+	 */
+	public static Map<String, Histogram> merge(Collection<Path> paths) throws IOException {
+		Map<String, Histogram> merged = new TreeMap<>();
+		for (Path log : MetricsAggregator.findLogs(paths)) {
+			final HistogramLogReader reader;
+			try {
+				reader = new HistogramLogReader(log.toFile());
+			} catch (FileNotFoundException e) {
+				throw new IOException("Metrics log [" + log + "] doesn't exist", e);
+			}
+			try {
+				EncodableHistogram interval = null;
+				while ((interval = reader.nextIntervalHistogram()) != null) {
+					if (!Histogram.class.isInstance(interval)) {
+						continue;
+					}
+					final Histogram h = Histogram.class.cast(interval);
+					final String tag = (h.getTag() != null ? h.getTag() : MetricsAggregator.UNTAGGED);
+					final Histogram total = merged.computeIfAbsent(tag, (k) -> {
+						Histogram t = new Histogram(h.getNumberOfSignificantValueDigits());
+						t.setTag(k);
+						t.setStartTimeStamp(Long.MAX_VALUE);
+						return t;
+					});
+					total.add(h);
+					total.setStartTimeStamp(Math.min(total.getStartTimeStamp(), h.getStartTimeStamp()));
+					total.setEndTimeStamp(Math.max(total.getEndTimeStamp(), h.getEndTimeStamp()));
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		return merged;
+	}
+
+	private static String toMillis(double micros) {
+		return String.format("%.3f", micros / 1000.0);
+	}
+
+	public static void report(Map<String, Histogram> merged, PrintStream out) {
+		StringBuilder b = new StringBuilder("key\tcount\tmin");
+		for (double p : MetricsAggregator.PERCENTILES) {
+			b.append("\tp").append(p == Math.floor(p) ? String.valueOf((long) p) : String.valueOf(p));
+		}
+		out.println(b.append("\tmax\tmean"));
+		for (Map.Entry<String, Histogram> e : merged.entrySet()) {
+			final Histogram h = e.getValue();
+			b.setLength(0);
+			b.append(MetricsLog.fromTag(e.getKey())).append('\t').append(h.getTotalCount());
+			b.append('\t').append(MetricsAggregator.toMillis(h.getMinValue()));
+			for (double p : MetricsAggregator.PERCENTILES) {
+				b.append('\t').append(MetricsAggregator.toMillis(h.getValueAtPercentile(p)));
+			}
+			b.append('\t').append(MetricsAggregator.toMillis(h.getMaxValue()));
+			b.append('\t').append(MetricsAggregator.toMillis(h.getMean()));
+			out.println(b);
+		}
+	}
+
+	public static void write(Map<String, Histogram> merged, Path target) throws IOException {
+		try (PrintStream out = new PrintStream(Files.newOutputStream(target), false, "UTF-8")) {
+			HistogramLogWriter writer = new HistogramLogWriter(out);
+			writer.outputLogFormatVersion();
+			writer.outputComment("Merged by " + MetricsAggregator.class.getName());
+			writer.setBaseTime(0);
+			writer.outputBaseTime(0);
+			writer.outputLegend();
+			for (Histogram h : merged.values()) {
+				writer.outputIntervalHistogram(h);
+			}
+		}
+	}
+
+	public static void main(String... args) throws IOException {
+		Path hlog = null;
+		List<Path> paths = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			if ("--hlog".equals(args[i]) && (i + 1) < args.length) {
+				hlog = Paths.get(args[++i]);
+			} else {
+				paths.add(Paths.get(args[i]));
+			}
+		}
+		if (paths.isEmpty()) {
+			System.err.printf("Usage: %s [--hlog mergedLog] logOrDir...%n", MetricsAggregator.class.getName());
+			System.exit(1);
+		}
+		Map<String, Histogram> merged = MetricsAggregator.merge(paths);
+		MetricsAggregator.report(merged, System.out);
+		if (hlog != null) {
+			MetricsAggregator.write(merged, hlog);
+		}
+	}
+}
@@ -0,0 +1,272 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.management.ManagementFactory;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Writes the durations of steps and waits to an interval histogram log (in the
+ * <a href="https://github.com/HdrHistogram/HdrHistogram">HdrHistogram</a> log format), so the
+ * metrics gathered on every node of a distributed test can be merged after the fact into true
+ * global percentiles with {@link MetricsAggregator}. Averages can't be combined that way.
+ * </p>
+ * <p>
+ * Each step and each wait condition gets its own histogram, tagged with its kind and name (i.e.
+ * {@code step:the+user+logs+in}). The names are URL-encoded, since tags may not contain
+ * whitespace or commas. Values are recorded in microseconds, and every interval is written with
+ * absolute timestamps so logs from different nodes line up. At most {@link #MAX_KEYS} distinct
+ * names are tracked; any others are accounted to {@link #OVERFLOW_NAME}.
+ * </p>
+ * <p>
+ * Logging is JVM-wide and disabled by default. Once {@link #start(Path, Duration) started}, it
+ * writes to {@code metrics-<host>-<pid>.hlog} in the given directory until it's
+ * {@link #stop() stopped} or the JVM shuts down. Steps are only known while they're being tracked
+ * by {@link StepTimings}, which does so automatically while logging is active (as long as the
+ * {@link StepTimings.Monitor} announces them).
+ * </p>
+ */
+public final class MetricsLog {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MetricsLog.class);
+
+	public static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(10);
+	public static final int MAX_KEYS = 1000;
+	public static final String OVERFLOW_NAME = "other";
+	public static final String STEP = "step";
+	public static final String WAIT = "wait";
+
+	private static final int SIGNIFICANT_DIGITS = 3;
+	private static final String ENCODING = "UTF-8";
+
+	private static volatile MetricsLog ACTIVE = null;
+	private static ScheduledExecutorService SCHEDULER = null;
+	private static Thread SHUTDOWN_HOOK = null;
+
+	public static boolean isActive() {
+		return (MetricsLog.ACTIVE != null);
+	}
+
+	/**
+	 * Starts logging to the given directory, flushing an interval every {@code interval}. If
+	 * logging is already active, it's left as is.
+	 *
+	 * @return the log file being written
+	 */
+	public static synchronized Path start(Path dir, Duration interval) throws IOException {
+		Objects.requireNonNull(dir, "Must provide a directory to write the log to");
+		Objects.requireNonNull(interval, "Must provide a flush interval");
+		if (interval.isNegative() || interval.isZero()) {
+			throw new IllegalArgumentException("The flush interval must be positive");
+		}
+		if (MetricsLog.ACTIVE != null) { return MetricsLog.ACTIVE.file; }
+
+		final MetricsLog log = new MetricsLog(dir.toAbsolutePath().normalize().resolve(MetricsLog.getFileName()));
+		final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor((r) -> {
+			Thread t = new Thread(r, "metrics-log");
+			t.setDaemon(true);
+			return t;
+		});
+		scheduler.scheduleAtFixedRate(() -> {
+			try {
+				log.flush();
+			} catch (RuntimeException e) {
+				MetricsLog.LOG.warn("Failed to write an interval to the metrics log at [{}]", log.file, e);
+			}
+		}, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+		final Thread hook = new Thread(MetricsLog::stop, "metrics-log-shutdown");
+		Runtime.getRuntime().addShutdownHook(hook);
+
+		MetricsLog.ACTIVE = log;
+		MetricsLog.SCHEDULER = scheduler;
+		MetricsLog.SHUTDOWN_HOOK = hook;
+		MetricsLog.LOG.info("Logging metrics to [{}]", log.file);
+		return log.file;
+	}
+
+	/**
+	 * Stops logging, writing out whatever was recorded since the last interval.
+	 */
+	public static synchronized void stop() {
+		final MetricsLog log = MetricsLog.ACTIVE;
+		if (log == null) { return; }
+		MetricsLog.ACTIVE = null;
+		MetricsLog.SCHEDULER.shutdownNow();
+		MetricsLog.SCHEDULER = null;
+		try {
+			Runtime.getRuntime().removeShutdownHook(MetricsLog.SHUTDOWN_HOOK);
+		} catch (IllegalStateException e) {
+			// We're already shutting down
+		}
+		MetricsLog.SHUTDOWN_HOOK = null;
+		log.close();
+	}
+
+	public static void recordStep(String step, long nanos) {
+		MetricsLog.record(MetricsLog.STEP, step, nanos);
+	}
+
+	public static void recordWait(String condition, long nanos) {
+		MetricsLog.record(MetricsLog.WAIT, condition, nanos);
+	}
+
+	private static void record(String kind, String name, long nanos) {
+		final MetricsLog log = MetricsLog.ACTIVE;
+		if (log != null) {
+			log.record(MetricsLog.toTag(kind, name), nanos);
+		}
+	}
+
+	/**
+	 * Returns a name for this node (i.e. {@code host-pid}) suitable for use in file names, so the
+	 * files written by each node of a distributed test don't clash.
+	 */
+	public static String getNodeName() {
+		// The runtime's name is usually "pid@host"
+		String name = ManagementFactory.getRuntimeMXBean().getName();
+		int at = name.indexOf('@');
+		if (at > 0) {
+			name = name.substring(at + 1) + "-" + name.substring(0, at);
+		}
+		return name.replaceAll("[^\\w.-]", "_");
+	}
+
+	private static String getFileName() {
+		return "metrics-" + MetricsLog.getNodeName() + ".hlog";
+	}
+
+	static String toTag(String kind, String name) {
+		if (name == null) {
+			name = MetricsLog.OVERFLOW_NAME;
+		}
+		// Lambdas and anonymous objects have names that vary between JVMs
+		name = name.replaceAll("\\$\\$Lambda\\$[\\w/$.]*", "\\$\\$Lambda").replaceAll("(?<=[\\w$])@[0-9a-f]+\\b", "");
+		try {
+			return kind + ":" + URLEncoder.encode(name, MetricsLog.ENCODING);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Turns a histogram tag written by this class back into its {@code kind:name} key.
+	 */
+	public static String fromTag(String tag) {
+		if (tag == null) { return null; }
+		try {
+			return URLDecoder.decode(tag, MetricsLog.ENCODING);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private final Path file;
+	private final PrintStream out;
+	private final HistogramLogWriter writer;
+	private final ConcurrentMap<String, Recorder> recorders = new ConcurrentHashMap<>();
+	private final Map<String, Histogram> recycled = new HashMap<>();
+	private boolean closed = false;
+
+	MetricsLog(Path file) throws IOException {
+		this.file = file;
+		Files.createDirectories(file.getParent());
+		this.out = new PrintStream(Files.newOutputStream(file), false, MetricsLog.ENCODING);
+		this.writer = new HistogramLogWriter(this.out);
+		final long now = System.currentTimeMillis();
+		this.writer.outputLogFormatVersion();
+		this.writer
+			.outputComment("Step and wait durations (in microseconds), written by " + MetricsLog.class.getName());
+		this.writer.outputStartTime(now);
+		// Absolute timestamps, so logs from different nodes can be merged
+		this.writer.setBaseTime(0);
+		this.writer.outputBaseTime(0);
+		this.writer.outputLegend();
+		this.out.flush();
+	}
+
+	Path getFile() {
+		return this.file;
+	}
+
+	void record(String tag, long nanos) {
+		Recorder recorder = this.recorders.get(tag);
+		if (recorder == null) {
+			if (this.recorders.size() >= MetricsLog.MAX_KEYS) {
+				tag = tag.substring(0, tag.indexOf(':') + 1) + MetricsLog.OVERFLOW_NAME;
+			}
+			recorder = this.recorders.computeIfAbsent(tag, (k) -> new Recorder(MetricsLog.SIGNIFICANT_DIGITS));
+		}
+		recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos)));
+	}
+
+	/**
+	 * Writes out an interval for every key that recorded anything since the last one.
+	 */
+	synchronized void flush() {
+		if (this.closed) { return; }
+		for (Map.Entry<String, Recorder> e : this.recorders.entrySet()) {
+			final String tag = e.getKey();
+			final Histogram interval = e.getValue().getIntervalHistogram(this.recycled.get(tag));
+			this.recycled.put(tag, interval);
+			if (interval.getTotalCount() == 0) {
+				continue;
+			}
+			interval.setTag(tag);
+			this.writer.outputIntervalHistogram(interval);
+		}
+		this.out.flush();
+	}
+
+	synchronized void close() {
+		if (this.closed) { return; }
+		flush();
+		this.closed = true;
+		this.writer.close();
+	}
+}
@@ -0,0 +1,542 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * <p>
+ * An append-only archive of page sources, stored as a series of rolling ZIP segments plus a plain
+ * text index. Each page source is stored in one of three ways:
+ * </p>
+ * <ul>
+ * <li>{@link Kind#DUPLICATE}: the content is identical (by SHA-1) to a recently stored page
+ * source, so only the index entry is written</li>
+ * <li>{@link Kind#DELTA}: the content is stored as a line-based delta against the previous page
+ * source archived for the same thread, if that's substantially smaller than the content</li>
+ * <li>{@link Kind#FULL}: the content is stored in its entirety</li>
+ * </ul>
+ * <p>
+ * Delta chains are bounded (see {@link #MAX_DELTA_CHAIN}), so any entry can be restored from at
+ * most that many stored entries. Use {@link Reader} to read the archive back, or run
+ * {@link #main(String...)} to extract it into plain files.
+ * </p>
+ * <p>
+ * ZIP segments can only be read once they've been closed, so segments are rolled over once they
+ * reach {@link #MAX_SEGMENT_BYTES} bytes of content, and all archives are closed when the JVM
+ * shuts down (after the {@link ArtifactWriter#getDefault() default artifact writer} has been
+ * flushed).
+ * </p>
+ */
+public final class PageSourceArchive implements Closeable {
+
+	public static final String INDEX_NAME = "index.txt";
+	public static final long MAX_SEGMENT_BYTES = 64L * 1024 * 1024;
+	public static final int MAX_DELTA_CHAIN = 16;
+	public static final int MAX_HASHES = 10000;
+
+	private static final Charset CHARSET = StandardCharsets.UTF_8;
+	private static final String SEGMENT_FORMAT = "pagesources-%05d.zip";
+	private static final byte OP_COPY = 'C';
+	private static final byte OP_INSERT = 'I';
+
+	public static enum Kind {
+		FULL, DUPLICATE, DELTA,
+		//
+		;
+	}
+
+	public static final class Entry {
+		public final long id;
+		public final Instant timestamp;
+		public final long thread;
+		public final Kind kind;
+		public final String hash;
+		/** The entry this one is a duplicate of, or a delta against (or -1 if it's {@link Kind#FULL}) */
+		public final long base;
+		public final String segment;
+		public final String entryName;
+		public final int size;
+		public final String name;
+
+		private Entry(long id, Instant timestamp, long thread, Kind kind, String hash, long base, String segment,
+			String entryName, int size, String name) {
+			this.id = id;
+			this.timestamp = timestamp;
+			this.thread = thread;
+			this.kind = kind;
+			this.hash = hash;
+			this.base = base;
+			this.segment = segment;
+			this.entryName = entryName;
+			this.size = size;
+			this.name = name;
+		}
+
+		private String render() {
+			return StringUtils.joinWith("\t", this.id, this.timestamp, this.thread, this.kind.name(), this.hash,
+				this.base, StringUtils.defaultString(this.segment, "-"), StringUtils.defaultString(this.entryName, "-"),
+				this.size, StringUtils.replaceChars(this.name, "\t\r\n", "   "));
+		}
+
+		private static Entry parse(String line) {
+			String[] s = StringUtils.splitPreserveAllTokens(line, '\t');
+			if (s.length != 10) { throw new IllegalArgumentException("Malformed index line: [" + line + "]"); }
+			return new Entry(Long.parseLong(s[0]), Instant.parse(s[1]), Long.parseLong(s[2]), Kind.valueOf(s[3]),
+				s[4], Long.parseLong(s[5]), ("-".equals(s[6]) ? null : s[6]), ("-".equals(s[7]) ? null : s[7]),
+				Integer.parseInt(s[8]), s[9]);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Entry [%s]", render());
+		}
+	}
+
+	private static final class Last {
+		private final long id;
+		private final List<String> lines;
+		private final int chain;
+
+		private Last(long id, List<String> lines, int chain) {
+			this.id = id;
+			this.lines = lines;
+			this.chain = chain;
+		}
+	}
+
+	/**
+	 * Where a recently stored page source was stored, and how long its delta chain is, so
+	 * duplicates of it can carry the chain's real length on to the deltas based on them.
+	 */
+	private static final class Stored {
+		private final long id;
+		private final int chain;
+
+		private Stored(long id, int chain) {
+			this.id = id;
+			this.chain = chain;
+		}
+	}
+
+	private static final ConcurrentMap<Path, PageSourceArchive> ARCHIVES = new ConcurrentHashMap<>();
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				ArtifactWriter.getDefault().flush(ArtifactWriter.DEFAULT_SHUTDOWN_FLUSH);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			PageSourceArchive.closeAll();
+		}, "pagesource-archive-shutdown"));
+	}
+
+	/**
+	 * Returns the (shared) archive for the given directory, opening it if necessary.
+	 */
+	public static PageSourceArchive get(Path dir) {
+		Objects.requireNonNull(dir, "Must provide a directory for the archive");
+		return PageSourceArchive.ARCHIVES.computeIfAbsent(dir.toAbsolutePath().normalize(), PageSourceArchive::new);
+	}
+
+	public static void closeAll() {
+		for (PageSourceArchive a : PageSourceArchive.ARCHIVES.values()) {
+			try {
+				a.close();
+			} catch (IOException e) {
+				// Nothing else we can do
+			}
+		}
+	}
+
+	private final Path dir;
+	private final Map<String, Stored> hashes = new LinkedHashMap<String, Stored>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Stored> eldest) {
+			return (size() > PageSourceArchive.MAX_HASHES);
+		}
+	};
+	private final Map<Long, Last> last = new HashMap<>();
+	private Writer index = null;
+	private ZipOutputStream segment = null;
+	private String segmentName = null;
+	private long segmentBytes = 0;
+	private int segmentNumber = 0;
+	private long nextId = 0;
+
+	private PageSourceArchive(Path dir) {
+		this.dir = dir;
+	}
+
+	public Path getDirectory() {
+		return this.dir;
+	}
+
+	private void open() throws IOException {
+		if (this.index != null) { return; }
+		Files.createDirectories(this.dir);
+		final Path indexFile = this.dir.resolve(PageSourceArchive.INDEX_NAME);
+		// Pick up where any previous run left off
+		if (Files.exists(indexFile)) {
+			for (String line : Files.readAllLines(indexFile, PageSourceArchive.CHARSET)) {
+				if (StringUtils.isNotBlank(line)) {
+					this.nextId = Math.max(this.nextId, Entry.parse(line).id + 1);
+				}
+			}
+		}
+		while (Files.exists(this.dir.resolve(String.format(PageSourceArchive.SEGMENT_FORMAT, this.segmentNumber)))) {
+			this.segmentNumber++;
+		}
+		this.index = Files.newBufferedWriter(indexFile, PageSourceArchive.CHARSET, StandardOpenOption.CREATE,
+			StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+	}
+
+	private void closeSegment() throws IOException {
+		if (this.segment == null) { return; }
+		try {
+			this.segment.close();
+		} finally {
+			this.segment = null;
+			this.segmentName = null;
+			this.segmentBytes = 0;
+		}
+	}
+
+	private void writeEntry(String entryName, byte[] data) throws IOException {
+		if ((this.segment != null) && (this.segmentBytes >= PageSourceArchive.MAX_SEGMENT_BYTES)) {
+			closeSegment();
+		}
+		if (this.segment == null) {
+			this.segmentName = String.format(PageSourceArchive.SEGMENT_FORMAT, this.segmentNumber++);
+			this.segment = new ZipOutputStream(Files.newOutputStream(this.dir.resolve(this.segmentName),
+				StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+		}
+		this.segment.putNextEntry(new ZipEntry(entryName));
+		this.segment.write(data);
+		this.segment.closeEntry();
+		this.segmentBytes += data.length;
+	}
+
+	private static List<String> splitLines(String content) {
+		// Keep the line terminators, so the content can be reassembled exactly
+		List<String> lines = new ArrayList<>();
+		int start = 0;
+		final int length = content.length();
+		for (int i = 0; i < length; i++) {
+			if (content.charAt(i) == '\n') {
+				lines.add(content.substring(start, i + 1));
+				start = i + 1;
+			}
+		}
+		if (start < length) {
+			lines.add(content.substring(start));
+		}
+		return lines;
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] b = s.getBytes(PageSourceArchive.CHARSET);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] b = new byte[in.readInt()];
+		in.readFully(b);
+		return new String(b, PageSourceArchive.CHARSET);
+	}
+
+	/**
+	 * Encodes the given lines as a series of copies (of line ranges from the base) and inserts (of
+	 * new lines). Lines are matched greedily, preferring to extend the current copy.
+	 */
+	private static byte[] encodeDelta(List<String> base, List<String> lines) throws IOException {
+		final Map<String, Integer> positions = new HashMap<>();
+		for (int i = base.size() - 1; i >= 0; i--) {
+			positions.put(base.get(i), i);
+		}
+		final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(buf)) {
+			int copyStart = -1;
+			int copyCount = 0;
+			StringBuilder insert = new StringBuilder();
+			for (String line : lines) {
+				final int next = copyStart + copyCount;
+				if ((copyStart >= 0) && (next < base.size()) && base.get(next).equals(line)) {
+					copyCount++;
+					continue;
+				}
+				final Integer pos = positions.get(line);
+				if (copyStart >= 0) {
+					out.writeByte(PageSourceArchive.OP_COPY);
+					out.writeInt(copyStart);
+					out.writeInt(copyCount);
+					copyStart = -1;
+					copyCount = 0;
+				}
+				if (pos != null) {
+					if (insert.length() > 0) {
+						out.writeByte(PageSourceArchive.OP_INSERT);
+						PageSourceArchive.writeString(out, insert.toString());
+						insert.setLength(0);
+					}
+					copyStart = pos;
+					copyCount = 1;
+				} else {
+					insert.append(line);
+				}
+			}
+			if (copyStart >= 0) {
+				out.writeByte(PageSourceArchive.OP_COPY);
+				out.writeInt(copyStart);
+				out.writeInt(copyCount);
+			}
+			if (insert.length() > 0) {
+				out.writeByte(PageSourceArchive.OP_INSERT);
+				PageSourceArchive.writeString(out, insert.toString());
+			}
+		}
+		return buf.toByteArray();
+	}
+
+	private static String applyDelta(List<String> base, byte[] delta) throws IOException {
+		final StringBuilder b = new StringBuilder();
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(delta))) {
+			while (true) {
+				final int op = in.read();
+				if (op < 0) {
+					break;
+				}
+				switch (op) {
+					case OP_COPY:
+						final int start = in.readInt();
+						final int count = in.readInt();
+						for (int i = start; i < (start + count); i++) {
+							b.append(base.get(i));
+						}
+						break;
+					case OP_INSERT:
+						b.append(PageSourceArchive.readString(in));
+						break;
+					default:
+						throw new IOException("Corrupt delta: unknown operation " + op);
+				}
+			}
+		}
+		return b.toString();
+	}
+
+	/**
+	 * Appends the given page source to the archive, returning the index entry that describes how it
+	 * was stored.
+	 */
+	public synchronized Entry append(long thread, String name, Instant timestamp, String content)
+		throws IOException {
+		Objects.requireNonNull(content, "Must provide the content to archive");
+		if (timestamp == null) {
+			timestamp = Instant.now();
+		}
+		open();
+		final long id = this.nextId++;
+		final String hash = DigestUtils.sha1Hex(content);
+		final byte[] full = content.getBytes(PageSourceArchive.CHARSET);
+		final List<String> lines = PageSourceArchive.splitLines(content);
+		final Last previous = this.last.get(thread);
+
+		Entry entry = null;
+		final Stored duplicate = this.hashes.get(hash);
+		if (duplicate != null) {
+			entry = new Entry(id, timestamp, thread, Kind.DUPLICATE, hash, duplicate.id, null, null, full.length,
+				name);
+			// Duplicates don't lengthen the chain, since they resolve to their target directly, but
+			// deltas based on them extend the target's chain (not this thread's)
+			this.last.put(thread, new Last(duplicate.id, lines, duplicate.chain));
+		} else {
+			if ((previous != null) && (previous.chain < PageSourceArchive.MAX_DELTA_CHAIN)) {
+				byte[] delta = PageSourceArchive.encodeDelta(previous.lines, lines);
+				// Only worth it if it's substantially smaller
+				if (delta.length < (full.length / 2)) {
+					final String entryName = String.format("%08d.delta", id);
+					writeEntry(entryName, delta);
+					entry = new Entry(id, timestamp, thread, Kind.DELTA, hash, previous.id, this.segmentName, entryName,
+						full.length, name);
+					this.last.put(thread, new Last(id, lines, previous.chain + 1));
+				}
+			}
+			if (entry == null) {
+				final String entryName = String.format("%08d.html", id);
+				writeEntry(entryName, full);
+				entry = new Entry(id, timestamp, thread, Kind.FULL, hash, -1, this.segmentName, entryName, full.length,
+					name);
+				this.last.put(thread, new Last(id, lines, 0));
+			}
+			this.hashes.put(hash, new Stored(id, this.last.get(thread).chain));
+		}
+		this.index.write(entry.render());
+		this.index.write(System.lineSeparator());
+		this.index.flush();
+		return entry;
+	}
+
+	/**
+	 * Closes the current segment and the index. The archive may still be appended to afterwards, in
+	 * which case a new segment is started.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			closeSegment();
+		} finally {
+			if (this.index != null) {
+				try {
+					this.index.close();
+				} finally {
+					this.index = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads back the page sources in an archive. Only entries in closed segments can be read.
+	 */
+	public static final class Reader implements Closeable {
+		private final Path dir;
+		private final Map<Long, Entry> entries;
+		private final Map<String, ZipFile> segments = new HashMap<>();
+
+		public Reader(Path dir) throws IOException {
+			this.dir = Objects.requireNonNull(dir, "Must provide the archive's directory");
+			final Path indexFile = dir.resolve(PageSourceArchive.INDEX_NAME);
+			if (!Files.exists(indexFile)) { throw new FileNotFoundException(indexFile.toString()); }
+			Map<Long, Entry> entries = new LinkedHashMap<>();
+			for (String line : Files.readAllLines(indexFile, PageSourceArchive.CHARSET)) {
+				if (StringUtils.isNotBlank(line)) {
+					Entry e = Entry.parse(line);
+					entries.put(e.id, e);
+				}
+			}
+			this.entries = Collections.unmodifiableMap(entries);
+		}
+
+		public Collection<Entry> getEntries() {
+			return this.entries.values();
+		}
+
+		private byte[] readEntry(Entry e) throws IOException {
+			ZipFile zip = this.segments.get(e.segment);
+			if (zip == null) {
+				zip = new ZipFile(this.dir.resolve(e.segment).toFile());
+				this.segments.put(e.segment, zip);
+			}
+			ZipEntry z = zip.getEntry(e.entryName);
+			if (z == null) { throw new FileNotFoundException(e.segment + "!" + e.entryName); }
+			try (InputStream in = zip.getInputStream(z)) {
+				return IOUtils.toByteArray(in);
+			}
+		}
+
+		public String read(long id) throws IOException {
+			final Entry e = this.entries.get(id);
+			if (e == null) { throw new IllegalArgumentException("No entry with ID " + id); }
+			switch (e.kind) {
+				case DUPLICATE:
+					return read(e.base);
+				case DELTA:
+					return PageSourceArchive.applyDelta(PageSourceArchive.splitLines(read(e.base)), readEntry(e));
+				case FULL:
+				default:
+					return new String(readEntry(e), PageSourceArchive.CHARSET);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			for (ZipFile z : this.segments.values()) {
+				z.close();
+			}
+			this.segments.clear();
+		}
+	}
+
+	/**
+	 * Extracts every page source in the archive at {@code args[0]} into the directory
+	 * {@code args[1]}, one file per entry.
+	 */
+	public static void main(String... args) throws IOException {
+		if (args.length != 2) {
+			System.err.printf("Usage: %s archiveDir targetDir%n", PageSourceArchive.class.getName());
+			System.exit(1);
+		}
+		final Path target = Paths.get(args[1]);
+		Files.createDirectories(target);
+		try (Reader r = new Reader(Paths.get(args[0]))) {
+			for (Entry e : r.getEntries()) {
+				final String file = String.format("%08d.t%08x.%s.html", e.id, e.thread,
+					e.name.replaceAll("[^\\w.-]", "_"));
+				try (OutputStream out = Files.newOutputStream(target.resolve(file))) {
+					out.write(r.read(e.id).getBytes(PageSourceArchive.CHARSET));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * <p>
+ * A bounded buffer of the most recent page states (URL, page source and optionally a screenshot)
+ * captured by a single virtual user, meant to be written out only when something goes wrong. Page
+ * sources are kept GZIP-compressed, and the buffer is bounded both by the number of states and by
+ * their total (compressed) size, evicting the oldest states first.
+ * </p>
+ * <p>
+ * Instances are not thread-safe, and are meant to be confined to the virtual user's thread.
+ * </p>
+ */
+public final class PageStateBuffer {
+
+	public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+	public static final class State {
+		public final Instant timestamp;
+		public final String label;
+		public final String url;
+		private final byte[] source;
+		private final byte[] screenshot;
+
+		private State(Instant timestamp, String label, String url, byte[] source, byte[] screenshot) {
+			this.timestamp = timestamp;
+			this.label = label;
+			this.url = url;
+			this.source = source;
+			this.screenshot = screenshot;
+		}
+
+		public boolean hasScreenshot() {
+			return (this.screenshot != null);
+		}
+
+		private long size() {
+			return (this.source != null ? this.source.length : 0)
+				+ (this.screenshot != null ? this.screenshot.length : 0);
+		}
+	}
+
+	private final int capacity;
+	private final long maxBytes;
+	private final Deque<State> states;
+	private long bytes = 0;
+
+	public PageStateBuffer(int capacity) {
+		this(capacity, PageStateBuffer.DEFAULT_MAX_BYTES);
+	}
+
+	public PageStateBuffer(int capacity, long maxBytes) {
+		if (capacity < 1) { throw new IllegalArgumentException("The capacity must be at least 1"); }
+		if (maxBytes < 1) { throw new IllegalArgumentException("The maximum size must be at least 1 byte"); }
+		this.capacity = capacity;
+		this.maxBytes = maxBytes;
+		this.states = new ArrayDeque<>(capacity);
+	}
+
+	private static byte[] compress(String source) {
+		if (source == null) { return null; }
+		ByteArrayOutputStream buf = new ByteArrayOutputStream(Math.max(64, source.length() / 8));
+		try (GZIPOutputStream out = new GZIPOutputStream(buf)) {
+			out.write(source.getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			// Can't happen with in-memory streams
+			throw new UncheckedIOException(e);
+		}
+		return buf.toByteArray();
+	}
+
+	/**
+	 * Adds a new state, evicting the oldest states if the buffer is full.
+	 */
+	public void add(String label, String url, String source, byte[] screenshot) {
+		State s = new State(Instant.now(), StringUtils.defaultIfBlank(label, "state"), url,
+			PageStateBuffer.compress(source), screenshot);
+		this.states.addLast(s);
+		this.bytes += s.size();
+		while ((this.states.size() > this.capacity) || ((this.bytes > this.maxBytes) && (this.states.size() > 1))) {
+			this.bytes -= this.states.removeFirst().size();
+		}
+	}
+
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	public long getMaxBytes() {
+		return this.maxBytes;
+	}
+
+	public int size() {
+		return this.states.size();
+	}
+
+	public long getBytes() {
+		return this.bytes;
+	}
+
+	public boolean isEmpty() {
+		return this.states.isEmpty();
+	}
+
+	public List<State> getStates() {
+		return new ArrayList<>(this.states);
+	}
+
+	public void clear() {
+		this.states.clear();
+		this.bytes = 0;
+	}
+
+	/**
+	 * Queues all the buffered states to be written into the given directory, oldest first, and
+	 * clears the buffer. Each state produces a {@code .url.txt} file, a {@code .html.gz} file with
+	 * the page source, and a {@code .png} file with the screenshot (if one was captured). Returns
+	 * the number of states written.
+	 */
+	public int flush(Path dir, ArtifactWriter writer) {
+		Objects.requireNonNull(dir, "Must provide a directory to write to");
+		Objects.requireNonNull(writer, "Must provide an artifact writer");
+		int count = 0;
+		for (State s : this.states) {
+			final String base = String.format("%03d.%s", count++, s.label.replaceAll("[^\\w.-]", "_"));
+			writer.write(dir.resolve(base + ".url.txt"),
+				String.format("%s%n%s%n", s.timestamp, StringUtils.defaultString(s.url)), StandardCharsets.UTF_8);
+			if (s.source != null) {
+				writer.write(dir.resolve(base + ".html.gz"), s.source);
+			}
+			if (s.screenshot != null) {
+				writer.write(dir.resolve(base + ".png"), s.screenshot);
+			}
+		}
+		clear();
+		return count;
+	}
+}
@@ -0,0 +1,251 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * <p>
+ * A JVM-wide, size-bounded (LRU) cache for decoded classpath or URL resources, keyed by the
+ * {@link ClassLoader} the resource was loaded through, the resource's name, the {@link Charset}
+ * used to decode it, and the type it was decoded into. This allows helpers such as
+ * {@link ScriptTools#loadScript(String)}, {@link JSON#unmarshal(Class, String)} and the form
+ * definition loader to be called from hot code without re-reading and re-decoding the resource on
+ * every call.
+ * </p>
+ * <p>
+ * The cached values are shared, so decoders must only produce immutable values (i.e. strings, or
+ * read-only views). Missing resources are not cached. Entries may be explicitly invalidated by
+ * resource name, by {@link ClassLoader}, or wholesale.
+ * </p>
+ */
+public final class ResourceCache {
+
+	@FunctionalInterface
+	public static interface Decoder<T> {
+		public T decode(InputStream in, Charset charset) throws IOException;
+	}
+
+	public static final int DEFAULT_MAX_SIZE = 256;
+
+	private static final class Key {
+		private final ClassLoader classLoader;
+		private final String resource;
+		private final Charset charset;
+		private final Object type;
+		private final int hash;
+
+		private Key(ClassLoader classLoader, String resource, Charset charset, Object type) {
+			this.classLoader = classLoader;
+			this.resource = resource;
+			this.charset = charset;
+			this.type = type;
+			this.hash = Objects.hash(System.identityHashCode(classLoader), resource, charset, type);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) { return true; }
+			if (!(obj instanceof Key)) { return false; }
+			Key other = Key.class.cast(obj);
+			// ClassLoaders are compared by identity on purpose
+			if (this.classLoader != other.classLoader) { return false; }
+			if (!Objects.equals(this.resource, other.resource)) { return false; }
+			if (!Objects.equals(this.charset, other.charset)) { return false; }
+			if (!Objects.equals(this.type, other.type)) { return false; }
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Key [classLoader=%s, resource=%s, charset=%s, type=%s]", this.classLoader,
+				this.resource, this.charset, this.type);
+		}
+	}
+
+	private static int MAX_SIZE = ResourceCache.DEFAULT_MAX_SIZE;
+	private static final Map<Key, Object> CACHE = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+			return (size() > ResourceCache.MAX_SIZE);
+		}
+	};
+
+	private ResourceCache() {
+	}
+
+	private static Object get(Key key) {
+		synchronized (ResourceCache.CACHE) {
+			return ResourceCache.CACHE.get(key);
+		}
+	}
+
+	private static <T> T put(Key key, T value) {
+		synchronized (ResourceCache.CACHE) {
+			// If another thread beat us to it, keep the first value so all callers share it
+			Object existing = ResourceCache.CACHE.putIfAbsent(key, value);
+			if (existing != null) {
+				@SuppressWarnings("unchecked")
+				T t = (T) existing;
+				return t;
+			}
+			return value;
+		}
+	}
+
+	private static <T> T load(Key key, URL url, Decoder<T> decoder) throws IOException {
+		@SuppressWarnings("unchecked")
+		T value = (T) ResourceCache.get(key);
+		if (value != null) { return value; }
+
+		// Decode outside the lock - at worst, two threads decode the same resource once
+		try (InputStream in = url.openStream()) {
+			value = decoder.decode(in, key.charset);
+		}
+		if (value == null) { return null; }
+		return ResourceCache.put(key, value);
+	}
+
+	/**
+	 * Returns the cached value for the given classpath resource, decoding it if it's not cached.
+	 * Returns {@code null} if the resource doesn't exist. If no {@link ClassLoader} is given, the
+	 * current thread's context {@link ClassLoader} is used.
+	 */
+	public static <T> T get(ClassLoader cl, String resource, Charset charset, Object type, Decoder<T> decoder)
+		throws IOException {
+		if (StringUtils.isEmpty(resource)) {
+			throw new IllegalArgumentException("Must provide a non-empty resource name");
+		}
+		Objects.requireNonNull(decoder, "Must provide a decoder");
+		if (cl == null) {
+			cl = Thread.currentThread().getContextClassLoader();
+		}
+		final Key key = new Key(cl, resource, charset, type);
+		@SuppressWarnings("unchecked")
+		T value = (T) ResourceCache.get(key);
+		if (value != null) { return value; }
+		final URL url = cl.getResource(resource);
+		if (url == null) { return null; }
+		return ResourceCache.load(key, url, decoder);
+	}
+
+	/**
+	 * Returns the cached value for the given {@link URL}, decoding it if it's not cached. URLs are
+	 * cached by their external form.
+	 */
+	public static <T> T get(URL url, Charset charset, Object type, Decoder<T> decoder) throws IOException {
+		Objects.requireNonNull(url, "Must provide a URL to read from");
+		Objects.requireNonNull(decoder, "Must provide a decoder");
+		return ResourceCache.load(new Key(null, url.toExternalForm(), charset, type), url, decoder);
+	}
+
+	private static int invalidate(Predicate<Key> predicate) {
+		int count = 0;
+		synchronized (ResourceCache.CACHE) {
+			for (Iterator<Key> it = ResourceCache.CACHE.keySet().iterator(); it.hasNext();) {
+				if (predicate.test(it.next())) {
+					it.remove();
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Removes all entries for the given resource name (or {@link URL#toExternalForm() URL}),
+	 * regardless of {@link ClassLoader}, {@link Charset} or type. Returns the number of entries
+	 * removed.
+	 */
+	public static int invalidate(String resource) {
+		return ResourceCache.invalidate((k) -> Objects.equals(resource, k.resource));
+	}
+
+	public static int invalidate(URL url) {
+		return ResourceCache.invalidate(Objects.requireNonNull(url, "Must provide a URL").toExternalForm());
+	}
+
+	/**
+	 * Removes all entries loaded through the given {@link ClassLoader}. Returns the number of
+	 * entries removed.
+	 */
+	public static int invalidate(ClassLoader cl) {
+		Objects.requireNonNull(cl, "Must provide a ClassLoader");
+		return ResourceCache.invalidate((k) -> (k.classLoader == cl));
+	}
+
+	public static void invalidateAll() {
+		synchronized (ResourceCache.CACHE) {
+			ResourceCache.CACHE.clear();
+		}
+	}
+
+	public static int size() {
+		synchronized (ResourceCache.CACHE) {
+			return ResourceCache.CACHE.size();
+		}
+	}
+
+	public static int getMaxSize() {
+		synchronized (ResourceCache.CACHE) {
+			return ResourceCache.MAX_SIZE;
+		}
+	}
+
+	/**
+	 * Sets the maximum number of cached entries, evicting the least recently used entries if the
+	 * cache is currently larger than the new maximum.
+	 */
+	public static void setMaxSize(int maxSize) {
+		if (maxSize < 1) { throw new IllegalArgumentException("The maximum size must be at least 1"); }
+		synchronized (ResourceCache.CACHE) {
+			ResourceCache.MAX_SIZE = maxSize;
+			Iterator<Key> it = ResourceCache.CACHE.keySet().iterator();
+			while ((ResourceCache.CACHE.size() > maxSize) && it.hasNext()) {
+				it.next();
+				it.remove();
+			}
+		}
+	}
+}
@@ -28,35 +28,164 @@ package com.arkcase.sim.tools;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.regex.Pattern;
 
 import org.apache.commons.io.IOUtils;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
 
 public class ScriptTools {
 
 	public static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
 
+	private static final Pattern IDENTIFIER = Pattern.compile("^[a-zA-Z_$][a-zA-Z0-9_$]*$");
+
+	/**
+	 * <p>
+	 * A named set of JavaScript functions which is installed into the page (as a property of
+	 * {@code window}) the first time one of them is called, and then invoked by name, so each
+	 * command only ships a tiny stub to the browser instead of the full script.
+	 * </p>
+	 * <p>
+	 * Each function is given as the body of a script as it would be passed to
+	 * {@link JavascriptExecutor#executeScript(String, Object...)} (i.e. using {@code arguments} and
+	 * {@code return}). The installed library is stamped with a version, so a missing library (i.e.
+	 * after navigating to a new document) or a stale one is detected by the stub, and re-installed
+	 * along with the call that found it missing, at the cost of a single additional round trip.
+	 * </p>
+	 */
+	public static final class Library {
+		private final String name;
+		private final String version;
+		private final String missing;
+		private final Map<String, String> calls;
+		private final Map<String, String> installAndCalls;
+
+		public Library(String name, Map<String, String> functions) {
+			Objects.requireNonNull(name, "Must provide a library name");
+			if (!ScriptTools.IDENTIFIER.matcher(name).matches()) {
+				throw new IllegalArgumentException("The library name [" + name + "] is not a valid identifier");
+			}
+			Objects.requireNonNull(functions, "Must provide the library's functions");
+			if (functions.isEmpty()) { throw new IllegalArgumentException("Must provide at least one function"); }
+
+			final String global = "window.__ark_" + name;
+			StringBuilder b = new StringBuilder();
+			for (Map.Entry<String, String> e : functions.entrySet()) {
+				final String fn = e.getKey();
+				if ((fn == null) || !ScriptTools.IDENTIFIER.matcher(fn).matches()) {
+					throw new IllegalArgumentException("The function name [" + fn + "] is not a valid identifier");
+				}
+				b.append(fn).append(" : function() {\n") //
+					.append(Objects.requireNonNull(e.getValue(), "No script given for function [" + fn + "]")) //
+					.append("\n},\n");
+			}
+			final String body = b.toString();
+			this.name = name;
+			this.version = Integer.toHexString(body.hashCode());
+			this.missing = "__ark_missing_" + name + "_" + this.version;
+			final String install = global + " = {\n" + body + "$v : '" + this.version + "'\n};\n";
+
+			Map<String, String> calls = new LinkedHashMap<>();
+			Map<String, String> installAndCalls = new LinkedHashMap<>();
+			for (String fn : functions.keySet()) {
+				final String call = global + "." + fn + ".apply(null, arguments);";
+				// Keep the stub as small as possible, since it's sent on every call
+				calls.put(fn, "var l=" + global + ";return(l&&l.$v==='" + this.version + "')?l." + fn
+					+ ".apply(null,arguments):'" + this.missing + "';");
+				installAndCalls.put(fn, install + "return " + call);
+			}
+			this.calls = Collections.unmodifiableMap(calls);
+			this.installAndCalls = Collections.unmodifiableMap(installAndCalls);
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public String getVersion() {
+			return this.version;
+		}
+
+		public boolean hasFunction(String function) {
+			return this.calls.containsKey(function);
+		}
+
+		/**
+		 * Invokes the named function in the browser's current document, installing the library first
+		 * if necessary, and returns whatever the function returned.
+		 */
+		public Object call(WebDriver driver, String function, Object... args) {
+			Objects.requireNonNull(driver, "Must provide a WebDriver instance");
+			final String call = this.calls.get(function);
+			if (call == null) {
+				throw new NoSuchElementException(
+					"No function named [" + function + "] in script library [" + this.name + "]");
+			}
+			final JavascriptExecutor js = JavascriptExecutor.class.cast(driver);
+			return StepTimings.time(StepTimings.Category.SCRIPT, () -> {
+				Object ret = js.executeScript(call, args);
+				if (this.missing.equals(ret)) {
+					ret = js.executeScript(this.installAndCalls.get(function), args);
+				}
+				return ret;
+			});
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Library [name=%s, version=%s, functions=%s]", this.name, this.version,
+				this.calls.keySet());
+		}
+	}
+
+	/**
+	 * Creates a library with a single function, whose script is loaded from the given classpath
+	 * resource. This is meant for static initializers, so a missing resource is unchecked.
+	 */
+	public static Library loadLibrary(String name, String function, String scriptName) {
+		try {
+			return new Library(name, Collections.singletonMap(function, ScriptTools.loadScript(scriptName)));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to load the script " + scriptName + " for " + name, e);
+		}
+	}
+
 	public static String loadScript(String scriptName) throws IOException {
 		return ScriptTools.loadScript(scriptName, null);
 	}
 
+	/**
+	 * Loads the script from the given classpath resource. The script's text is kept in the
+	 * {@link ResourceCache}, so subsequent calls don't re-read the resource.
+	 */
 	public static String loadScript(String scriptName, Charset charset) throws IOException {
-		ClassLoader cl = Thread.currentThread().getContextClassLoader();
-		URL url = cl.getResource(scriptName);
-		if (url == null) { throw new FileNotFoundException(scriptName); }
-		return ScriptTools.loadScript(url, charset);
+		if (charset == null) {
+			charset = ScriptTools.DEFAULT_CHARSET;
+		}
+		String script = ResourceCache.get(null, scriptName, charset, String.class, IOUtils::toString);
+		if (script == null) { throw new FileNotFoundException(scriptName); }
+		return script;
 	}
 
+	/**
+	 * Loads the script from the given {@link URL}. The script's text is kept in the
+	 * {@link ResourceCache}, so subsequent calls don't re-read the URL.
+	 */
 	public static String loadScript(URL url, Charset charset) throws IOException {
+		Objects.requireNonNull(url, "Must provide a URL to fetch");
 		if (charset == null) {
 			charset = ScriptTools.DEFAULT_CHARSET;
 		}
-		try (InputStream in = Objects.requireNonNull(url, "Must provide a URL to fetch").openStream()) {
-			return IOUtils.toString(in, charset);
-		}
+		return ResourceCache.get(url, charset, String.class, IOUtils::toString);
 	}
 }
@@ -0,0 +1,573 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.jmeter.samplers.SampleResult;
+import org.jbehave.core.annotations.Alias;
+import org.jbehave.core.annotations.Aliases;
+import org.jbehave.core.annotations.Given;
+import org.jbehave.core.annotations.Then;
+import org.jbehave.core.annotations.When;
+import org.jbehave.core.steps.NullStepMonitor;
+import org.jbehave.core.steps.StepMonitor;
+
+/**
+ * <p>
+ * Breaks down the time spent in each Gherkin step into the time spent waiting for conditions
+ * ({@link Category#WAIT}), executing WebDriver commands ({@link Category#COMMAND}), and executing
+ * JavaScript in the browser ({@link Category#SCRIPT}). Whatever time is left over within the step
+ * is accounted as JVM-side overhead.
+ * </p>
+ * <p>
+ * JBehave only reports the boundaries of each step to its {@link StepMonitor}, so the steps are
+ * delimited exactly when the runner's configuration includes a {@link Monitor}:
+ * </p>
+ *
+ * <pre>
+ * configuration.useStepMonitor(new DelegatingStepMonitor(configuration.stepMonitor(), new StepTimings.Monitor()))
+ * </pre>
+ * <p>
+ * Each step invocation then gets its own record, named after the {@link Given}, {@link When},
+ * {@link Then} or {@link Alias} pattern it matched, which spans the whole step (so its JVM time
+ * includes everything the step did besides the timed operations). Otherwise, and only while timing
+ * is enabled for the thread, the step is identified from the call stack whenever an outermost
+ * timed operation begins (nested operations, such as the script executions within a wait, are
+ * accounted to the outermost one), and is named after the first pattern of the step method
+ * (telling overloads apart by their line numbers). Since consecutive executions of the same step
+ * can't be told apart from the stack, they're merged into a single record, up until the end of
+ * the scenario, and the record only spans from the start of the step's first timed operation to
+ * the end of its last one, so the JVM time spent before and after those isn't accounted.
+ * </p>
+ * <p>
+ * The records are kept per thread, and can be attached to the Gherkin sampler's result as
+ * sub-results by way of a JSR223 PostProcessor:
+ * </p>
+ *
+ * <pre>
+ * com.arkcase.sim.tools.StepTimings.attachTo(prev)
+ * </pre>
+ * <p>
+ * Timing is disabled by default, and is enabled per thread via {@link #setEnabled(boolean)}. The
+ * steps announced by the {@link Monitor} are still tracked (but no records are kept) while JFR is
+ * recording, or while the {@link MetricsLog} or the {@link ActivityMonitor} are active, so each
+ * one can be reported as a {@link JfrEvents JFR event}, logged and monitored. Without the
+ * {@link Monitor}, those don't see any steps, since walking the stack on every timed operation
+ * would cost more than they're worth.
+ * </p>
+ */
+public final class StepTimings {
+
+	public static enum Category {
+		//
+		WAIT, //
+		COMMAND, //
+		SCRIPT, //
+		;
+
+		private final String label = name().toLowerCase();
+	}
+
+	private static final Category[] CATEGORIES = Category.values();
+
+	public static final int MAX_RECORDS = 1024;
+
+	private static final String STEPS_PACKAGE = "com.arkcase.sim.gherkin.steps.";
+
+	private static final Map<String, String> STEP_NAMES = new ConcurrentHashMap<>();
+
+	private static final Map<Method, Map<String, Pattern>> STEP_PATTERNS = new ConcurrentHashMap<>();
+
+	private static final Pattern PARAMETER = Pattern.compile("\\$\\w+");
+
+	private static final Pattern KEYWORD = Pattern.compile("^\\s*\\S+\\s+");
+
+	// Marks frames that aren't step methods, since ConcurrentHashMap can't hold nulls
+	private static final String NOT_A_STEP = new String("<not a step>");
+
+	public static final class Record {
+		public final String name;
+		// The step's position among the thread's steps, as counted by the Monitor (or 0 without it)
+		public final long index;
+		public final long startMillis;
+		public final long elapsedNanos;
+		private final long[] nanos;
+		private final int[] counts;
+		private boolean failed = false;
+
+		private Record(String name, long index, long startMillis, long elapsedNanos, long[] nanos, int[] counts) {
+			this.name = name;
+			this.index = index;
+			this.startMillis = startMillis;
+			this.elapsedNanos = elapsedNanos;
+			this.nanos = nanos;
+			this.counts = counts;
+		}
+
+		public long getNanos(Category category) {
+			return this.nanos[category.ordinal()];
+		}
+
+		public int getCount(Category category) {
+			return this.counts[category.ordinal()];
+		}
+
+		public long getJvmNanos() {
+			long jvm = this.elapsedNanos;
+			for (long n : this.nanos) {
+				jvm -= n;
+			}
+			return Math.max(0, jvm);
+		}
+
+		public boolean isFailed() {
+			return this.failed;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder b = new StringBuilder(this.name).append(": ")
+				.append(TimeUnit.NANOSECONDS.toMillis(this.elapsedNanos)).append("ms (");
+			for (Category c : StepTimings.CATEGORIES) {
+				b.append(c.label).append('=').append(TimeUnit.NANOSECONDS.toMillis(getNanos(c))).append("ms/")
+					.append(getCount(c)).append(", ");
+			}
+			return b.append("jvm=").append(TimeUnit.NANOSECONDS.toMillis(getJvmNanos())).append("ms)").toString();
+		}
+	}
+
+	private static final class State {
+		private boolean enabled = false;
+		private Category active = null;
+
+		// The step announced by the Monitor, if any, and how many steps it has announced
+		private String current = null;
+		private long index = 0;
+
+		// Set for steps that report on the previous one, so they're neither recorded nor counted
+		private boolean transparent = false;
+
+		private String step = null;
+		private long startMillis = 0;
+		private long startNanos = 0;
+		private long endNanos = 0;
+		private long[] nanos = null;
+		private int[] counts = null;
+		private Object event = null;
+
+		private final Deque<Record> records = new ArrayDeque<>();
+
+		private void begin(String step, long now) {
+			close();
+			this.step = step;
+			this.startMillis = System.currentTimeMillis();
+			this.startNanos = now;
+			this.endNanos = now;
+			this.nanos = new long[StepTimings.CATEGORIES.length];
+			this.counts = new int[StepTimings.CATEGORIES.length];
+			this.event = JfrEvents.beginStep(step);
+			ActivityMonitor.stepStarted(step);
+		}
+
+		private void close() {
+			if (this.step == null) { return; }
+			JfrEvents.endStep(this.event);
+			MetricsLog.recordStep(this.step, this.endNanos - this.startNanos);
+			if (this.enabled && !this.transparent) {
+				final long index = (this.current != null ? this.index : 0);
+				SubResults.keep(this.records, new Record(this.step, index, this.startMillis,
+					this.endNanos - this.startNanos, this.nanos, this.counts), StepTimings.MAX_RECORDS);
+			}
+			this.step = null;
+			this.event = null;
+			this.nanos = null;
+			this.counts = null;
+			ActivityMonitor.stepEnded();
+		}
+	}
+
+	private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+	// Kept apart from the state, since it outlives the timings being disabled
+	private static final ThreadLocal<Consumer<String>> STEP_END_ACTION = new ThreadLocal<>();
+
+	private StepTimings() {
+	}
+
+	public static boolean isEnabled() {
+		return StepTimings.STATE.get().enabled;
+	}
+
+	/**
+	 * Enables or disables step timing for the current thread. Disabling it also discards any
+	 * records collected so far.
+	 */
+	public static void setEnabled(boolean enabled) {
+		if (enabled) {
+			StepTimings.STATE.get().enabled = true;
+		} else {
+			StepTimings.STATE.remove();
+		}
+	}
+
+	/**
+	 * Steps announced by the {@link Monitor} are also tracked (without keeping records) while
+	 * something else wants to know about them.
+	 */
+	private static boolean isObserved() {
+		return JfrEvents.isActive() || MetricsLog.isActive() || ActivityMonitor.isActive();
+	}
+
+	/**
+	 * Returns the step method's patterns (keyed by their text), in order of declaration.
+	 */
+	private static Map<String, Pattern> getPatterns(Method method) {
+		return StepTimings.STEP_PATTERNS.computeIfAbsent(method, (m) -> {
+			List<String> patterns = new ArrayList<>();
+			Given g = m.getAnnotation(Given.class);
+			if (g != null) {
+				patterns.add(g.value());
+			}
+			When w = m.getAnnotation(When.class);
+			if (w != null) {
+				patterns.add(w.value());
+			}
+			Then t = m.getAnnotation(Then.class);
+			if (t != null) {
+				patterns.add(t.value());
+			}
+			Alias alias = m.getAnnotation(Alias.class);
+			if (alias != null) {
+				patterns.add(alias.value());
+			}
+			Aliases aliases = m.getAnnotation(Aliases.class);
+			if (aliases != null) {
+				Collections.addAll(patterns, aliases.values());
+			}
+			Map<String, Pattern> ret = new LinkedHashMap<>();
+			for (String pattern : patterns) {
+				// Parameters may match anything, and everything else must match literally
+				StringBuilder regex = new StringBuilder();
+				int last = 0;
+				Matcher parameter = StepTimings.PARAMETER.matcher(pattern);
+				while (parameter.find()) {
+					regex.append(Pattern.quote(pattern.substring(last, parameter.start()))).append("(.*)");
+					last = parameter.end();
+				}
+				regex.append(Pattern.quote(pattern.substring(last)));
+				ret.putIfAbsent(pattern, Pattern.compile(regex.toString(), Pattern.DOTALL));
+			}
+			return Collections.unmodifiableMap(ret);
+		});
+	}
+
+	/**
+	 * Returns the pattern of the given step method which the given step matches (or its first
+	 * pattern, if the step is {@code null} or matches none), or {@code null} if it's not a step
+	 * method.
+	 */
+	public static String getStepName(Method method, String step) {
+		final Map<String, Pattern> patterns = StepTimings.getPatterns(method);
+		if (patterns.isEmpty()) { return null; }
+		if ((step != null) && (patterns.size() > 1)) {
+			final String text = StepTimings.KEYWORD.matcher(step).replaceFirst("");
+			for (Map.Entry<String, Pattern> e : patterns.entrySet()) {
+				if (e.getValue().matcher(text).matches()) { return e.getKey(); }
+			}
+		}
+		return patterns.keySet().iterator().next();
+	}
+
+	private static String getStepName(StackTraceElement frame) {
+		final String className = frame.getClassName();
+		if (!className.startsWith(StepTimings.STEPS_PACKAGE)) { return null; }
+		final String key = className + "#" + frame.getMethodName() + ":" + frame.getLineNumber();
+		String name = StepTimings.STEP_NAMES.computeIfAbsent(key, (k) -> {
+			final Class<?> klass;
+			try {
+				klass = Class.forName(className, false, StepTimings.class.getClassLoader());
+			} catch (ClassNotFoundException e) {
+				return StepTimings.NOT_A_STEP;
+			}
+			List<Method> methods = new ArrayList<>();
+			for (Method m : klass.getDeclaredMethods()) {
+				if (m.getName().equals(frame.getMethodName()) && !StepTimings.getPatterns(m).isEmpty()) {
+					methods.add(m);
+				}
+			}
+			if (methods.isEmpty()) { return StepTimings.NOT_A_STEP; }
+			if (methods.size() == 1) { return StepTimings.getStepName(methods.get(0), null); }
+			try {
+				Method m = LineNumbers.find(klass, methods, frame.getLineNumber());
+				if (m != null) { return StepTimings.getStepName(m, null); }
+			} catch (IOException e) {
+				// Fall back to the method's name
+			}
+			return klass.getSimpleName() + "." + frame.getMethodName() + "()";
+		});
+		return (name != StepTimings.NOT_A_STEP ? name : null);
+	}
+
+	private static String findStep() {
+		// The outermost step method is the one JBehave invoked
+		StackTraceElement[] stack = new Throwable().getStackTrace();
+		for (int i = stack.length - 1; i >= 0; i--) {
+			String name = StepTimings.getStepName(stack[i]);
+			if (name != null) { return name; }
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the name of the step the current thread is executing (as announced by the
+	 * {@link Monitor}, or else inferred from the stack), or {@code null} if it's not executing one.
+	 */
+	public static String getCurrentStep() {
+		final String current = StepTimings.STATE.get().current;
+		return (current != null ? current : StepTimings.findStep());
+	}
+
+	/**
+	 * Returns {@code true} if the current thread is executing a step announced by the
+	 * {@link Monitor}.
+	 */
+	public static boolean isMonitored() {
+		return (StepTimings.STATE.get().current != null);
+	}
+
+	/**
+	 * Sets the action to run on the current thread (with the step's name) whenever one of its steps
+	 * ends, as announced by the {@link Monitor}, or removes it if {@code null}. The action runs
+	 * outside of the step, whether it failed or not, and must not throw.
+	 */
+	public static void setStepEndAction(Consumer<String> action) {
+		if (action == null) {
+			StepTimings.STEP_END_ACTION.remove();
+		} else {
+			StepTimings.STEP_END_ACTION.set(action);
+		}
+	}
+
+	/**
+	 * Closes the current step's record, so the next timed operation starts a new one even if it's
+	 * for the same step (i.e. at the end of a scenario).
+	 */
+	public static void endStep() {
+		final State state = StepTimings.STATE.get();
+		state.close();
+		state.current = null;
+		if (state.transparent) {
+			// It didn't count as a step, so the next one follows the one before it
+			state.index--;
+			state.transparent = false;
+		}
+	}
+
+	/**
+	 * A {@link StepMonitor} which tells {@link StepTimings} exactly where each step begins and
+	 * ends, and which pattern it matched. Dry runs are ignored.
+	 */
+	public static final class Monitor extends NullStepMonitor {
+
+		@Override
+		public void beforePerforming(String step, boolean dryRun, Method method) {
+			if (dryRun || (method == null)) { return; }
+			StepTimings.endStep();
+			final State state = StepTimings.STATE.get();
+			state.current = StepTimings.getStepName(method, step);
+			state.index++;
+			if (state.enabled || StepTimings.isObserved()) {
+				// The record spans the whole step, even if it does nothing timed
+				state.begin(state.current, System.nanoTime());
+			}
+		}
+
+		@Override
+		public void afterPerforming(String step, boolean dryRun, Method method) {
+			if (dryRun || (method == null)) { return; }
+			final State state = StepTimings.STATE.get();
+			final String name = state.current;
+			if (state.step != null) {
+				state.endNanos = System.nanoTime();
+			}
+			StepTimings.endStep();
+			final Consumer<String> action = StepTimings.STEP_END_ACTION.get();
+			if ((action != null) && (name != null)) {
+				action.accept(name);
+			}
+		}
+	}
+
+	/**
+	 * Runs the given operation, accounting the time it takes to the given category within the
+	 * current step. Nested operations are accounted to the outermost one.
+	 */
+	public static <T> T time(Category category, Supplier<T> operation) {
+		Objects.requireNonNull(category, "Must provide a category");
+		final State state = StepTimings.STATE.get();
+		if (state.active != null) { return operation.get(); }
+
+		final String step;
+		if (state.current != null) {
+			if (!state.enabled && (state.step == null) && !StepTimings.isObserved()) { return operation.get(); }
+			step = state.current;
+		} else {
+			// Without the Monitor, the step must be found on the stack, which is only worth it when
+			// the timings were explicitly enabled
+			if (!state.enabled) { return operation.get(); }
+			step = StepTimings.findStep();
+			if (step == null) {
+				// Not within a step (i.e. a scenario hook)
+				return operation.get();
+			}
+		}
+		final long start = System.nanoTime();
+		if (!step.equals(state.step)) {
+			state.begin(step, start);
+		}
+		state.active = category;
+		try {
+			return operation.get();
+		} finally {
+			final long end = System.nanoTime();
+			state.active = null;
+			state.nanos[category.ordinal()] += (end - start);
+			state.counts[category.ordinal()]++;
+			state.endNanos = end;
+			JfrEvents.continueStep(state.event);
+		}
+	}
+
+	public static void time(Category category, Runnable operation) {
+		StepTimings.time(category, () -> {
+			operation.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Marks the most recent step as failed, i.e. from a scenario failure hook.
+	 */
+	public static void markFailed() {
+		final State state = StepTimings.STATE.get();
+		state.close();
+		if (!state.records.isEmpty()) {
+			state.records.getLast().failed = true;
+		}
+	}
+
+	/**
+	 * <p>
+	 * Returns the record of the step performed right before the current one, or {@code null} if
+	 * that step wasn't recorded (i.e. timing was enabled halfway through it). The records are kept.
+	 * </p>
+	 * <p>
+	 * The current step is then neither recorded nor counted as a step, so several steps which
+	 * report on the previous one can be chained. Only the {@link Monitor} can tell consecutive steps
+	 * apart, so this fails with an {@link IllegalStateException} if it's not announcing them.
+	 * </p>
+	 */
+	public static Record getPreviousRecord() {
+		final State state = StepTimings.STATE.get();
+		if (state.current == null) {
+			throw new IllegalStateException(
+				"The previous step can only be told apart while the StepTimings.Monitor announces the steps");
+		}
+		state.transparent = true;
+		for (Iterator<Record> it = state.records.descendingIterator(); it.hasNext();) {
+			final Record r = it.next();
+			if (r.index == (state.index - 1)) { return r; }
+			if (r.index < (state.index - 1)) { break; }
+		}
+		return null;
+	}
+
+	/**
+	 * Closes the current step's record and returns all the records collected so far for the
+	 * current thread, removing them.
+	 */
+	public static List<Record> drain() {
+		final State state = StepTimings.STATE.get();
+		state.close();
+		return SubResults.drain(state.records);
+	}
+
+	private static SampleResult newSubResult(SampleResult parent, String label, long startMillis, long nanos) {
+		return SubResults.newSubResult(parent, label, startMillis, TimeUnit.NANOSECONDS.toMillis(nanos));
+	}
+
+	/**
+	 * Drains the current thread's records, and attaches each one to the given sample as a
+	 * sub-result named after its step, which in turn contains one sub-result per category (named
+	 * {@code "<step> [wait]"}, {@code "<step> [command]"}, {@code "<step> [script]"} and
+	 * {@code "<step> [jvm]"}) so each one gets its own percentiles in the JMeter reports. Returns
+	 * the number of records attached.
+	 */
+	public static int attachTo(SampleResult parent) {
+		if (parent == null) { return 0; }
+		List<Record> records = StepTimings.drain();
+		for (Record record : records) {
+			SampleResult step = StepTimings.newSubResult(parent, record.name, record.startMillis,
+				record.elapsedNanos);
+			step.setSuccessful(!record.failed);
+			step.setResponseMessage(record.toString());
+			for (Category c : StepTimings.CATEGORIES) {
+				step.addRawSubResult(StepTimings.newSubResult(parent, record.name + " [" + c.label + "]",
+					record.startMillis, record.getNanos(c)));
+			}
+			step.addRawSubResult(StepTimings.newSubResult(parent, record.name + " [jvm]", record.startMillis,
+				record.getJvmNanos()));
+			parent.addRawSubResult(step);
+		}
+		return records.size();
+	}
+
+	/**
+	 * Attaches the current thread's records to the thread's previous sample result (i.e. the
+	 * Gherkin sampler's, when invoked from a PostProcessor).
+	 */
+	public static int attachToPrevious() {
+		return SubResults.attachToPrevious(StepTimings::attachTo);
+	}
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterContextService;
+
+/**
+ * <p>
+ * The plumbing shared by the classes which collect measurements per thread, and attach them to
+ * the Gherkin sampler's result as sub-results by way of a JSR223 PostProcessor: keeping a bounded
+ * backlog of the pending measurements, draining it, and building the sub-results.
+ * </p>
+ */
+public final class SubResults {
+
+	private SubResults() {
+	}
+
+	/**
+	 * Adds the given item to the end of the backlog, discarding the oldest items so it holds at
+	 * most {@code max} of them. Returns the number of items discarded.
+	 */
+	public static <T> int keep(Deque<T> backlog, T item, int max) {
+		backlog.addLast(item);
+		int dropped = 0;
+		while (backlog.size() > max) {
+			backlog.removeFirst();
+			dropped++;
+		}
+		return dropped;
+	}
+
+	/**
+	 * Returns (and removes) the backlog's items, oldest first.
+	 */
+	public static <T> List<T> drain(Collection<T> backlog) {
+		if (backlog.isEmpty()) { return Collections.emptyList(); }
+		List<T> ret = new ArrayList<>(backlog);
+		backlog.clear();
+		return ret;
+	}
+
+	/**
+	 * Creates a successful sub-result for the given parent, with the given label and times.
+	 */
+	public static SampleResult newSubResult(SampleResult parent, String label, long startMillis, long elapsedMillis) {
+		SampleResult r = new SampleResult(startMillis, elapsedMillis);
+		r.setSampleLabel(label);
+		r.setThreadName(parent.getThreadName());
+		r.setSuccessful(true);
+		r.setResponseCodeOK();
+		r.setResponseMessageOK();
+		return r;
+	}
+
+	/**
+	 * Attaches the current thread's measurements to the thread's previous sample result (i.e. the
+	 * Gherkin sampler's, when invoked from a PostProcessor) by way of the given {@code attachTo}
+	 * method, and returns what it returns.
+	 */
+	public static int attachToPrevious(ToIntFunction<SampleResult> attachTo) {
+		return attachTo.applyAsInt(JMeterContextService.getContext().getPreviousResult());
+	}
+}
@@ -0,0 +1,406 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * <p>
+ * Renders values that contain generator expressions of the form
+ * {@code $gen(type[,param1,param2,...,paramN])} into random (or sequential) test data, so each
+ * virtual user can submit different data. Literal text around the expressions is preserved, so
+ * {@code "$gen(firstName) $gen(lastName)"} renders a full name.
+ * </p>
+ * <p>
+ * Each distinct value is parsed only once into a {@link Template}, which is cached and reused on
+ * every subsequent render. Only values that contain generator expressions are cached, and the
+ * cache is bounded (LRU) to {@value #MAX_TEMPLATES} entries, so arbitrary literal data doesn't
+ * accumulate for the life of the JVM. Random data is drawn from a per-thread {@link SplittableRandom}, so
+ * rendering neither allocates parsers nor contends on a shared {@link java.util.Random}.
+ * </p>
+ * <p>
+ * Supported types (parameters in brackets are optional):
+ * </p>
+ * <ul>
+ * <li>{@code firstName}, {@code lastName}, {@code fullName}</li>
+ * <li>{@code street}, {@code city}, {@code state}, {@code zip}</li>
+ * <li>{@code phone[,pattern]} - the pattern defaults to {@code ###-###-####}</li>
+ * <li>{@code pattern,pattern} - {@code #} renders a digit, {@code ?} renders an uppercase letter</li>
+ * <li>{@code digits,count}, {@code letters,count}</li>
+ * <li>{@code number[,min[,max]]} - {@code min} is inclusive, {@code max} is exclusive</li>
+ * <li>{@code date[,format[,minDays[,maxDays]]]} - a date between {@code minDays} and
+ * {@code maxDays} days from today (both inclusive), with the format defaulting to
+ * {@code MM/dd/yyyy}</li>
+ * <li>{@code seq[,name[,start]]} - a JVM-wide sequence, shared by all expressions using the same
+ * name. The sequence starts at the first {@code start} given for that name (or 1), and it's an
+ * error for a later expression to give a different {@code start}</li>
+ * <li>{@code pick,value1[,value2,...,valueN]}</li>
+ * <li>{@code uuid}</li>
+ * </ul>
+ */
+public class ValueGenerator {
+
+	@FunctionalInterface
+	public static interface Generator {
+		public void generate(SplittableRandom random, StringBuilder out);
+	}
+
+	private static final String PREFIX = "$gen(";
+	private static final char OPEN = '(';
+	private static final char SUFFIX = ')';
+	private static final String SEPARATOR = ",";
+
+	private static final String[] FIRST_NAMES = {
+		"James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael", "Linda", "William", "Elizabeth", "David",
+		"Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah", "Charles", "Karen", "Daniel", "Nancy",
+		"Matthew", "Lisa", "Anthony", "Betty", "Mark", "Margaret", "Donald", "Sandra", "Steven", "Ashley", "Paul",
+		"Kimberly", "Andrew", "Emily", "Joshua", "Donna", "Kenneth", "Michelle",
+	};
+
+	private static final String[] LAST_NAMES = {
+		"Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez", "Martinez",
+		"Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Martin", "Lee",
+		"Perez", "Thompson", "White", "Harris", "Sanchez", "Clark", "Ramirez", "Lewis", "Robinson", "Walker", "Young",
+		"Allen", "King", "Wright", "Scott", "Torres", "Nguyen", "Hill", "Flores",
+	};
+
+	private static final String[] STREET_NAMES = {
+		"Main", "Oak", "Pine", "Maple", "Cedar", "Elm", "Washington", "Lake", "Hill", "Park", "Riveredge", "Sunset",
+		"Highland", "Forest", "Meadow", "Church", "Spring", "Ridge", "Mill", "Valley",
+	};
+
+	private static final String[] STREET_SUFFIXES = {
+		"St", "Ave", "Blvd", "Rd", "Ln", "Dr", "Ct", "Pkwy", "Way", "Pl",
+	};
+
+	private static final String[] CITIES = {
+		"Atlanta", "Austin", "Boston", "Chicago", "Columbus", "Dallas", "Denver", "Houston", "Jacksonville",
+		"Indianapolis", "Memphis", "Nashville", "Phoenix", "Portland", "Raleigh", "Sacramento", "Seattle", "Tampa",
+	};
+
+	private static final String[] STATES = {
+		"Alabama", "Alaska", "Arizona", "Arkansas", "California", "Colorado", "Connecticut", "Delaware", "Florida",
+		"Georgia", "Hawaii", "Idaho", "Illinois", "Indiana", "Iowa", "Kansas", "Kentucky", "Louisiana", "Maine",
+		"Maryland", "Massachusetts", "Michigan", "Minnesota", "Mississippi", "Missouri", "Montana", "Nebraska",
+		"Nevada", "New Hampshire", "New Jersey", "New Mexico", "New York", "North Carolina", "North Dakota", "Ohio",
+		"Oklahoma", "Oregon", "Pennsylvania", "Rhode Island", "South Carolina", "South Dakota", "Tennessee", "Texas",
+		"Utah", "Vermont", "Virginia", "Washington", "West Virginia", "Wisconsin", "Wyoming",
+	};
+
+	private static final String DEFAULT_PHONE = "###-###-####";
+	private static final String DEFAULT_DATE_FORMAT = "MM/dd/yyyy";
+	private static final String DEFAULT_SEQUENCE = "default";
+	private static final String DEFAULT_SEQUENCE_START = "1";
+	public static final int MAX_TEMPLATES = 1000;
+
+	private static final SplittableRandom ROOT_RANDOM = new SplittableRandom();
+	private static final ThreadLocal<SplittableRandom> RANDOM = ThreadLocal.withInitial(() -> {
+		// SplittableRandom isn't thread-safe, but this only happens once per thread
+		synchronized (ValueGenerator.ROOT_RANDOM) {
+			return ValueGenerator.ROOT_RANDOM.split();
+		}
+	});
+
+	private static final class Sequence {
+		private final long start;
+		private final AtomicLong next;
+
+		private Sequence(long start) {
+			this.start = start;
+			this.next = new AtomicLong(start);
+		}
+	}
+
+	private static final ConcurrentMap<String, Sequence> SEQUENCES = new ConcurrentHashMap<>();
+	private static final Map<String, Template> TEMPLATES = new LinkedHashMap<String, Template>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Template> eldest) {
+			return (size() > ValueGenerator.MAX_TEMPLATES);
+		}
+	};
+
+	private static final Map<String, Function<String[], Generator>> FACTORIES;
+	static {
+		Map<String, Function<String[], Generator>> f = new HashMap<>();
+		f.put("firstname", (p) -> ValueGenerator.pick(ValueGenerator.FIRST_NAMES));
+		f.put("lastname", (p) -> ValueGenerator.pick(ValueGenerator.LAST_NAMES));
+		f.put("fullname", (p) -> {
+			Generator first = ValueGenerator.pick(ValueGenerator.FIRST_NAMES);
+			Generator last = ValueGenerator.pick(ValueGenerator.LAST_NAMES);
+			return (r, o) -> {
+				first.generate(r, o);
+				o.append(' ');
+				last.generate(r, o);
+			};
+		});
+		f.put("street", (p) -> {
+			Generator name = ValueGenerator.pick(ValueGenerator.STREET_NAMES);
+			Generator suffix = ValueGenerator.pick(ValueGenerator.STREET_SUFFIXES);
+			return (r, o) -> {
+				o.append(r.nextInt(1, 10000)).append(' ');
+				name.generate(r, o);
+				o.append(' ');
+				suffix.generate(r, o);
+			};
+		});
+		f.put("city", (p) -> ValueGenerator.pick(ValueGenerator.CITIES));
+		f.put("state", (p) -> ValueGenerator.pick(ValueGenerator.STATES));
+		f.put("zip", (p) -> ValueGenerator.pattern("#####"));
+		f.put("phone", (p) -> ValueGenerator.pattern(ValueGenerator.param(p, 0, ValueGenerator.DEFAULT_PHONE)));
+		f.put("pattern", (p) -> ValueGenerator.pattern(ValueGenerator.requiredParam(p, 0, "pattern")));
+		f.put("digits", (p) -> ValueGenerator.pattern(
+			StringUtils.repeat('#', Integer.parseInt(ValueGenerator.requiredParam(p, 0, "digits")))));
+		f.put("letters", (p) -> ValueGenerator.pattern(
+			StringUtils.repeat('?', Integer.parseInt(ValueGenerator.requiredParam(p, 0, "letters")))));
+		f.put("number", (p) -> {
+			final long min = Long.parseLong(ValueGenerator.param(p, 0, "0"));
+			final long max = Long.parseLong(ValueGenerator.param(p, 1, String.valueOf(Integer.MAX_VALUE)));
+			if (max <= min) {
+				throw new IllegalArgumentException(String.format("The number range [%d, %d) is empty", min, max));
+			}
+			return (r, o) -> o.append(r.nextLong(min, max));
+		});
+		f.put("date", (p) -> {
+			final DateTimeFormatter format = DateTimeFormatter
+				.ofPattern(ValueGenerator.param(p, 0, ValueGenerator.DEFAULT_DATE_FORMAT));
+			final long min = Long.parseLong(ValueGenerator.param(p, 1, "0"));
+			final long max = Long.parseLong(ValueGenerator.param(p, 2, String.valueOf(min)));
+			if (max < min) {
+				throw new IllegalArgumentException(String.format("The day range [%d, %d] is empty", min, max));
+			}
+			return (r, o) -> format.formatTo(LocalDate.now().plusDays(r.nextLong(min, max + 1)), o);
+		});
+		f.put("seq", (p) -> {
+			final String name = ValueGenerator.param(p, 0, ValueGenerator.DEFAULT_SEQUENCE);
+			final String startStr = ValueGenerator.param(p, 1, null);
+			final long start = Long
+				.parseLong(StringUtils.defaultString(startStr, ValueGenerator.DEFAULT_SEQUENCE_START));
+			final Sequence seq = ValueGenerator.SEQUENCES.computeIfAbsent(name, (n) -> new Sequence(start));
+			if ((startStr != null) && (seq.start != start)) {
+				throw new IllegalArgumentException(String.format(
+					"The sequence [%s] already starts at %d, can't start it at %d", name, seq.start, start));
+			}
+			final AtomicLong next = seq.next;
+			return (r, o) -> o.append(next.getAndIncrement());
+		});
+		f.put("pick", (p) -> {
+			if (p.length < 1) { throw new IllegalArgumentException("Must provide at least one value to pick from"); }
+			return ValueGenerator.pick(p);
+		});
+		f.put("uuid", (p) -> (r, o) -> o.append(new UUID(r.nextLong(), r.nextLong())));
+		FACTORIES = Collections.unmodifiableMap(f);
+	}
+
+	private static Generator pick(String... values) {
+		final String[] v = values.clone();
+		return (r, o) -> o.append(v[r.nextInt(v.length)]);
+	}
+
+	private static Generator pattern(String pattern) {
+		final char[] p = pattern.toCharArray();
+		return (r, o) -> {
+			for (char c : p) {
+				switch (c) {
+					case '#':
+						o.append((char) ('0' + r.nextInt(10)));
+						break;
+					case '?':
+						o.append((char) ('A' + r.nextInt(26)));
+						break;
+					default:
+						o.append(c);
+						break;
+				}
+			}
+		};
+	}
+
+	private static String param(String[] params, int pos, String def) {
+		if (pos >= params.length) { return def; }
+		return StringUtils.defaultIfEmpty(params[pos], def);
+	}
+
+	private static String requiredParam(String[] params, int pos, String type) {
+		String p = ValueGenerator.param(params, pos, null);
+		if (p == null) {
+			throw new IllegalArgumentException(
+				String.format("The [%s] generator requires a value for parameter # %d", type, pos + 1));
+		}
+		return p;
+	}
+
+	/**
+	 * A pre-compiled value, which renders a new value on every call to {@link #render()}.
+	 */
+	public static final class Template {
+		private final String source;
+		private final Generator[] parts;
+
+		private Template(String source, List<Generator> parts) {
+			this.source = source;
+			this.parts = parts.toArray(new Generator[parts.size()]);
+		}
+
+		public String getSource() {
+			return this.source;
+		}
+
+		public boolean isLiteral() {
+			return (this.parts.length == 0);
+		}
+
+		public String render() {
+			if (isLiteral()) { return this.source; }
+			final SplittableRandom random = ValueGenerator.RANDOM.get();
+			final StringBuilder b = new StringBuilder(this.source.length());
+			for (Generator g : this.parts) {
+				g.generate(random, b);
+			}
+			return b.toString();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Template [%s]", this.source);
+		}
+	}
+
+	private static Generator compileExpression(String expression) {
+		String[] p = StringUtils.splitPreserveAllTokens(expression, ValueGenerator.SEPARATOR);
+		if ((p == null) || (p.length < 1)) { throw new IllegalArgumentException("No generator type was given"); }
+		for (int i = 0; i < p.length; i++) {
+			p[i] = StringUtils.strip(p[i]);
+		}
+		String type = StringUtils.lowerCase(p[0]);
+		Function<String[], Generator> factory = ValueGenerator.FACTORIES.get(type);
+		if (factory == null) {
+			throw new IllegalArgumentException(String.format("Unknown generator type [%s] (supported = %s)", p[0],
+				ValueGenerator.FACTORIES.keySet()));
+		}
+		String[] params = new String[p.length - 1];
+		System.arraycopy(p, 1, params, 0, params.length);
+		return factory.apply(params);
+	}
+
+	private static int findEnd(String value, int start) {
+		// Parameters may contain balanced parentheses (i.e. "(###) ###-####")
+		int depth = 0;
+		for (int i = start; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == ValueGenerator.OPEN) {
+				depth++;
+			} else if ((c == ValueGenerator.SUFFIX) && (depth-- == 0)) { return i; }
+		}
+		return -1;
+	}
+
+	/**
+	 * Parses the given value into a {@link Template}, without caching it.
+	 */
+	public static Template compile(String value) {
+		Objects.requireNonNull(value, "Must provide a value to compile");
+		final List<Generator> parts = new ArrayList<>();
+		int start = 0;
+		while (true) {
+			int pos = value.indexOf(ValueGenerator.PREFIX, start);
+			if (pos < 0) {
+				break;
+			}
+			int end = ValueGenerator.findEnd(value, pos + ValueGenerator.PREFIX.length());
+			if (end < 0) {
+				throw new IllegalArgumentException(
+					String.format("Unterminated generator expression at position %d in [%s]", pos, value));
+			}
+			if (pos > start) {
+				final String literal = value.substring(start, pos);
+				parts.add((r, o) -> o.append(literal));
+			}
+			String expression = value.substring(pos + ValueGenerator.PREFIX.length(), end);
+			try {
+				parts.add(ValueGenerator.compileExpression(expression));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException(
+					String.format("Invalid generator expression [%s] in [%s]: %s", expression, value, e.getMessage()),
+					e);
+			}
+			start = end + 1;
+		}
+		if (parts.isEmpty()) { return new Template(value, parts); }
+		if (start < value.length()) {
+			final String literal = value.substring(start);
+			parts.add((r, o) -> o.append(literal));
+		}
+		return new Template(value, parts);
+	}
+
+	/**
+	 * Returns the cached {@link Template} for the given value, compiling it if necessary. Values
+	 * without generator expressions aren't cached.
+	 */
+	public static Template getTemplate(String value) {
+		Objects.requireNonNull(value, "Must provide a value to compile");
+		if (!value.contains(ValueGenerator.PREFIX)) { return ValueGenerator.compile(value); }
+		Template t;
+		synchronized (ValueGenerator.TEMPLATES) {
+			t = ValueGenerator.TEMPLATES.get(value);
+		}
+		if (t != null) { return t; }
+
+		// Compile outside the lock - at worst, two threads compile the same value once
+		t = ValueGenerator.compile(value);
+		synchronized (ValueGenerator.TEMPLATES) {
+			Template existing = ValueGenerator.TEMPLATES.putIfAbsent(value, t);
+			return (existing != null ? existing : t);
+		}
+	}
+
+	/**
+	 * Renders the given value, returning it as-is if it contains no generator expressions.
+	 */
+	public static String render(String value) {
+		if ((value == null) || !value.contains(ValueGenerator.PREFIX)) { return value; }
+		return ValueGenerator.getTemplate(value).render();
+	}
+}
@@ -0,0 +1,101 @@
+// Profiles the client side of the application: how many AngularJS digests ran and how long they
+// took, and the long tasks (over 50ms) reported by the browser. Returns (and resets) the counters
+// accumulated since the previous call, along with the current number of scopes and watchers. The
+// profiler is installed on the first call in every document.
+var p = window.__ark_angularProfiler;
+var installed = !!p;
+var now = function() {
+	return (window.performance ? window.performance.now() : Date.now());
+};
+var reset = function(p) {
+	p.digests = 0;
+	p.applies = 0;
+	p.digestTime = 0;
+	p.maxDigest = 0;
+	p.longTasks = 0;
+	p.longTaskTime = 0;
+	p.maxLongTask = 0;
+};
+if (!p) {
+	p = window.__ark_angularProfiler = { angular : false, longTaskObserver : false, depth : 0 };
+	reset(p);
+	if (window.PerformanceObserver) {
+		try {
+			new PerformanceObserver(function(list) {
+				list.getEntries().forEach(function(e) {
+					p.longTasks++;
+					p.longTaskTime += e.duration;
+					p.maxLongTask = Math.max(p.maxLongTask, e.duration);
+				});
+			}).observe({ entryTypes : [ 'longtask' ] });
+			p.longTaskObserver = true;
+		} catch (err) {
+			// Long tasks aren't supported by this browser
+		}
+	}
+}
+
+// AngularJS may not have been bootstrapped when the profiler was installed
+var $rootScope = null;
+if (window.angular) {
+	try {
+		var injector = window.angular.element(document.body).injector();
+		$rootScope = (injector ? injector.get('$rootScope') : null);
+	} catch (err) {
+		// Not bootstrapped yet
+	}
+}
+if ($rootScope && !p.angular) {
+	// Every scope (including the isolated ones) inherits these from the Scope prototype
+	var scope = Object.getPrototypeOf($rootScope);
+	var digest = scope.$digest;
+	var apply = scope.$apply;
+	scope.$digest = function() {
+		if (p.depth++ > 0) { return digest.apply(this, arguments); }
+		var t0 = now();
+		try {
+			return digest.apply(this, arguments);
+		} finally {
+			p.depth = 0;
+			var t = now() - t0;
+			p.digests++;
+			p.digestTime += t;
+			p.maxDigest = Math.max(p.maxDigest, t);
+		}
+	};
+	scope.$apply = function() {
+		p.applies++;
+		return apply.apply(this, arguments);
+	};
+	p.angular = true;
+}
+
+var result = {
+	installed : installed,
+	angular : p.angular,
+	longTaskObserver : p.longTaskObserver,
+	digests : p.digests,
+	applies : p.applies,
+	digestTime : p.digestTime,
+	maxDigest : p.maxDigest,
+	longTasks : p.longTasks,
+	longTaskTime : p.longTaskTime,
+	maxLongTask : p.maxLongTask,
+	scopes : 0,
+	watchers : 0
+};
+reset(p);
+
+// Count the scopes and watchers by walking the scope tree
+if ($rootScope) {
+	var pending = [ $rootScope ];
+	while (pending.length) {
+		var s = pending.pop();
+		result.scopes++;
+		result.watchers += (s.$$watchers ? s.$$watchers.length : 0);
+		for (var c = s.$$childHead; c; c = c.$$nextSibling) {
+			pending.push(c);
+		}
+	}
+}
+return result;
@@ -0,0 +1,27 @@
+// Takes a cheap sample of the page's memory footprint: the JavaScript heap (performance.memory is
+// only available in Chromium-based browsers), the number of DOM elements, and the number of event
+// listeners added (and not removed) since the counter was installed, which happens on the first
+// call in every document.
+var c = window.__ark_listenerCounter;
+if (!c && window.EventTarget && window.EventTarget.prototype) {
+	c = window.__ark_listenerCounter = { count : 0 };
+	var proto = window.EventTarget.prototype;
+	var add = proto.addEventListener;
+	var remove = proto.removeEventListener;
+	proto.addEventListener = function(type, listener) {
+		if (listener) { c.count++; }
+		return add.apply(this, arguments);
+	};
+	proto.removeEventListener = function(type, listener) {
+		if (listener) { c.count = Math.max(0, c.count - 1); }
+		return remove.apply(this, arguments);
+	};
+}
+var m = (window.performance ? window.performance.memory : null);
+return {
+	usedHeap : (m ? m.usedJSHeapSize : -1),
+	totalHeap : (m ? m.totalJSHeapSize : -1),
+	heapLimit : (m ? m.jsHeapSizeLimit : -1),
+	nodes : document.getElementsByTagName('*').length,
+	listeners : (c ? c.count : -1)
+};
@@ -0,0 +1,79 @@
+// Serializes the live DOM - including the current form values, open dialogs and the contents of
+// same-origin (i)frames - in a single script execution. Scripts are stripped from the copy.
+//
+// arguments[0] : an optional CSS selector for the element to be returned alongside the snapshot
+//                (i.e. for element-scoped screenshots)
+var maxDepth = 5;
+var result = { frames : 0, crossOriginFrames : 0, scripts : 0, dialogs : [] };
+
+var describe = function(e) {
+	var d = e.tagName.toLowerCase();
+	if (e.id) { d += '#' + e.id; }
+	if (typeof e.className === 'string' && e.className.trim()) { d += '.' + e.className.trim().split(/\s+/).join('.'); }
+	var label = e.getAttribute('aria-label') || e.getAttribute('title');
+	if (!label) {
+		var h = e.querySelector('h1,h2,h3,h4,h5,.modal-title');
+		label = (h ? h.textContent : '');
+	}
+	label = (label || '').replace(/\s+/g, ' ').trim();
+	return (label ? d + ' [' + label.substring(0, 100) + ']' : d);
+};
+
+var isVisible = function(e) {
+	return !!(e.offsetWidth || e.offsetHeight || e.getClientRects().length);
+};
+
+var snapshot = function(doc, depth) {
+	var live = doc.documentElement;
+	if (!live) { return ''; }
+	var copy = live.cloneNode(true);
+	var selector = 'input,textarea,select,iframe,frame,script,dialog,[role=dialog],[role=alertdialog],.modal';
+	// cloneNode() preserves the structure, so both lists line up one-to-one
+	var a = live.querySelectorAll(selector);
+	var b = copy.querySelectorAll(selector);
+	for (var i = 0; i < a.length; i++) {
+		var l = a[i], c = b[i], tag = l.tagName.toLowerCase();
+		if (tag === 'input') {
+			var type = (l.type || '').toLowerCase();
+			if (type === 'checkbox' || type === 'radio') {
+				if (l.checked) { c.setAttribute('checked', 'checked'); } else { c.removeAttribute('checked'); }
+			} else if (type === 'password') {
+				c.removeAttribute('value');
+			} else if (type !== 'file') {
+				c.setAttribute('value', l.value);
+			}
+		} else if (tag === 'textarea') {
+			c.textContent = l.value;
+		} else if (tag === 'select') {
+			for (var o = 0; o < l.options.length; o++) {
+				if (l.options[o].selected) { c.options[o].setAttribute('selected', 'selected'); } else { c.options[o].removeAttribute('selected'); }
+			}
+		} else if (tag === 'iframe' || tag === 'frame') {
+			var inner = null;
+			try { inner = l.contentDocument; } catch (e) { inner = null; }
+			if (inner && inner.documentElement && depth < maxDepth) {
+				result.frames++;
+				c.setAttribute('data-ark-src', l.getAttribute('src') || '');
+				c.removeAttribute('src');
+				c.setAttribute('srcdoc', snapshot(inner, depth + 1));
+			} else {
+				result.crossOriginFrames++;
+				c.setAttribute('data-ark-cross-origin', 'true');
+			}
+		} else if (tag === 'script') {
+			result.scripts++;
+			c.parentNode.removeChild(c);
+		} else if ((tag !== 'dialog' || l.open) && isVisible(l)) {
+			c.setAttribute('data-ark-open-dialog', 'true');
+			result.dialogs.push((depth > 0 ? '(frame) ' : '') + describe(l));
+		}
+	}
+	var doctype = (doc.doctype ? '<!DOCTYPE ' + doc.doctype.name + '>\n' : '');
+	return doctype + copy.outerHTML;
+};
+
+result.url = document.location.href;
+result.title = document.title;
+result.html = snapshot(document, 0);
+result.element = (arguments[0] ? document.querySelector(arguments[0]) : null);
+return result;
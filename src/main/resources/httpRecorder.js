@@ -0,0 +1,105 @@
+// Records every backend request the page makes (method, URL, status, duration), and returns (and
+// removes) the ones recorded since the previous call. The recorder is installed on the first call
+// in every document, so requests made before that aren't seen.
+//
+// Requests are recorded at the XMLHttpRequest level (and fetch(), if available), since that's the
+// only hook left once the application has been bootstrapped. When AngularJS is present, its $http
+// service is hooked as well, so the requests it issues are recorded with the URL they were given
+// (i.e. before the parameters were added) and marked as coming from $http.
+var maxEntries = 1000;
+var r = window.__ark_httpRecorder;
+var installed = !!r;
+if (!r) {
+	r = window.__ark_httpRecorder = { entries : [], dropped : 0, pending : null };
+	var add = function(e) {
+		if (r.entries.length >= maxEntries) {
+			r.entries.shift();
+			r.dropped++;
+		}
+		r.entries.push(e);
+	};
+
+	var XHR = window.XMLHttpRequest;
+	if (XHR && XHR.prototype) {
+		var open = XHR.prototype.open;
+		var send = XHR.prototype.send;
+		XHR.prototype.open = function(method, url) {
+			var e = { method : String(method).toUpperCase(), url : String(url), template : null, source : 'xhr' };
+			var p = r.pending;
+			if (p && (e.url.indexOf(p.url) === 0)) {
+				e.template = p.url;
+				e.source = '$http';
+			}
+			r.pending = null;
+			this.__ark_request = e;
+			return open.apply(this, arguments);
+		};
+		XHR.prototype.send = function() {
+			var e = this.__ark_request;
+			if (e) {
+				var xhr = this;
+				e.start = Date.now();
+				var t0 = window.performance ? window.performance.now() : e.start;
+				xhr.addEventListener('loadend', function() {
+					var t1 = window.performance ? window.performance.now() : Date.now();
+					e.duration = Math.round((t1 - t0) * 1000) / 1000;
+					e.status = xhr.status;
+					add(e);
+				});
+			}
+			return send.apply(this, arguments);
+		};
+	}
+
+	if (window.fetch) {
+		var fetch = window.fetch;
+		window.fetch = function(input, init) {
+			var e = {
+				method : String((init && init.method) || (input && input.method) || 'GET').toUpperCase(),
+				url : String((input && input.url) || input),
+				template : null,
+				source : 'fetch',
+				start : Date.now()
+			};
+			var t0 = window.performance ? window.performance.now() : e.start;
+			var done = function(status) {
+				var t1 = window.performance ? window.performance.now() : Date.now();
+				e.duration = Math.round((t1 - t0) * 1000) / 1000;
+				e.status = status;
+				add(e);
+			};
+			return fetch.apply(this, arguments).then(function(response) {
+				done(response.status);
+				return response;
+			}, function(error) {
+				done(0);
+				throw error;
+			});
+		};
+	}
+}
+
+// AngularJS' $http pushes each request's configuration into pendingRequests right before handing
+// it to the XHR backend, so we can tell which XHR it became
+if (window.angular && !r.angular) {
+	try {
+		var injector = window.angular.element(document.body).injector();
+		var pending = (injector ? injector.get('$http').pendingRequests : null);
+		if (pending) {
+			var push = pending.push;
+			pending.push = function(config) {
+				r.pending = config;
+				return push.apply(this, arguments);
+			};
+			r.angular = true;
+		}
+	} catch (err) {
+		// Not bootstrapped yet
+	}
+}
+
+var entries = r.entries;
+var dropped = r.dropped;
+r.entries = [];
+r.dropped = 0;
+return { installed : installed, entries : entries, dropped : dropped };
@@ -0,0 +1,60 @@
+// Collects what the browser itself measured through the Performance API - the navigation, resource
+// and paint entries - in a single script execution. The resource buffer is cleared afterwards, so
+// each collection only returns the resources loaded since the previous one. The navigation and
+// paint entries can't be cleared, so they're only returned once per document (the navigation
+// entry, once the document has finished loading).
+var perf = window.performance;
+if (!perf || !perf.getEntriesByType) { return null; }
+
+var round = function(v) {
+	return (typeof v === 'number' ? Math.round(v * 1000) / 1000 : 0);
+};
+var result = {
+	url : window.location.href,
+	timeOrigin : round(perf.timeOrigin || (perf.timing ? perf.timing.navigationStart : 0)),
+	navigation : [],
+	resource : [],
+	paint : []
+};
+
+if (!window.__ark_perfNavigation) {
+	perf.getEntriesByType('navigation').forEach(function(e) {
+		if (!(e.loadEventEnd > 0)) { return; }
+		result.navigation.push({
+			name : e.name,
+			type : e.type,
+			startTime : round(e.startTime),
+			duration : round(e.loadEventEnd - e.startTime),
+			responseStart : round(e.responseStart),
+			domContentLoaded : round(e.domContentLoadedEventEnd),
+			transferSize : e.transferSize || 0
+		});
+		window.__ark_perfNavigation = true;
+	});
+}
+
+if (!window.__ark_perfPaint) {
+	perf.getEntriesByType('paint').forEach(function(e) {
+		result.paint.push({ name : e.name, startTime : round(e.startTime), duration : 0 });
+		window.__ark_perfPaint = true;
+	});
+}
+
+perf.getEntriesByType('resource').forEach(function(e) {
+	result.resource.push({
+		name : e.name,
+		type : e.initiatorType,
+		startTime : round(e.startTime),
+		duration : round(e.duration),
+		transferSize : e.transferSize || 0
+	});
+});
+if (perf.clearResourceTimings) {
+	perf.clearResourceTimings();
+}
+if (!window.__ark_perfBuffer && perf.setResourceTimingBufferSize) {
+	// The default buffer (usually 250 entries) fills up quickly in a single page application
+	perf.setResourceTimingBufferSize(2000);
+	window.__ark_perfBuffer = true;
+}
+return result;
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.components;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+public class AngularProfilerTest {
+
+	private static interface ScriptDriver extends WebDriver, JavascriptExecutor {
+	}
+
+	private static Map<String, Object> counters(long digests, double digestTime, long watchers, double longTask) {
+		Map<String, Object> m = new HashMap<>();
+		m.put("digests", digests);
+		m.put("applies", 1L);
+		m.put("digestTime", digestTime);
+		m.put("maxDigest", digestTime / digests);
+		m.put("watchers", watchers);
+		m.put("scopes", 10L);
+		m.put("longTasks", (longTask > 0 ? 1L : 0L));
+		m.put("longTaskTime", longTask);
+		m.put("maxLongTask", longTask);
+		return m;
+	}
+
+	@Test
+	public void testProfiles() {
+		final ScriptDriver driver = EasyMock.createMock(ScriptDriver.class);
+		EasyMock.expect(driver.executeScript(EasyMock.anyString()))
+			.andReturn(AngularProfilerTest.counters(3, 30.0, 500, 0));
+		EasyMock.replay(driver);
+
+		AngularProfiler.setEnabled(true);
+		try {
+			// Not within a step
+			Assertions.assertEquals(AngularProfiler.NO_STEP, AngularProfiler.collect(driver).step);
+
+			AngularProfiler.keep("open the case", AngularProfilerTest.counters(2, 40.0, 800, 120.0));
+			AngularProfiler.Profile p = AngularProfiler.keep("open the case",
+				AngularProfilerTest.counters(4, 60.0, 700, 80.0));
+			Assertions.assertEquals(6, p.getDigests());
+			Assertions.assertEquals(2, p.getApplies());
+			Assertions.assertEquals(100.0, p.getDigestMillis());
+			Assertions.assertEquals(20.0, p.getMaxDigestMillis());
+			Assertions.assertEquals(800, p.getWatchers());
+			Assertions.assertEquals(2, p.getLongTasks());
+			Assertions.assertEquals(200.0, p.getLongTaskMillis());
+			Assertions.assertEquals(120.0, p.getMaxLongTaskMillis());
+			AngularProfiler.keep("close the case", AngularProfilerTest.counters(1, 5.0, 100, 0));
+
+			List<AngularProfiler.Profile> profiles = AngularProfiler.drain();
+			Assertions.assertEquals(3, profiles.size());
+			Assertions.assertSame(p, profiles.get(1));
+			Assertions.assertTrue(AngularProfiler.drain().isEmpty());
+		} finally {
+			AngularProfiler.setEnabled(false);
+		}
+		EasyMock.verify(driver);
+	}
+}
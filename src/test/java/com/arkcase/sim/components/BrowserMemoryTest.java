@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.components;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BrowserMemoryTest {
+
+	@Test
+	public void testSeries(@TempDir Path dir) throws IOException {
+		BrowserMemory.reset();
+		try {
+			for (int i = 0; i < (BrowserMemory.MAX_SAMPLES + 10); i++) {
+				BrowserMemory.keep(new BrowserMemory.Sample(i, i * 1000L, i * 2000L, i, -1));
+			}
+			BrowserMemory.Series series = BrowserMemory.getSeries();
+			Assertions.assertEquals(BrowserMemory.MAX_SAMPLES, series.size());
+			// The oldest samples were overwritten
+			Assertions.assertEquals(10, series.get(0).timestamp);
+			Assertions.assertEquals((BrowserMemory.MAX_SAMPLES + 9) * 1000L,
+				series.get(BrowserMemory.MAX_SAMPLES - 1).usedHeap);
+			Assertions.assertThrows(IndexOutOfBoundsException.class, () -> series.get(BrowserMemory.MAX_SAMPLES));
+
+			Path file = dir.resolve("memory.csv");
+			BrowserMemory.export(file);
+			List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+			Assertions.assertEquals("timestamp,thread,usedHeap,totalHeap,nodes,listeners", lines.get(0));
+			Assertions.assertTrue(lines.size() > BrowserMemory.MAX_SAMPLES);
+		} finally {
+			BrowserMemory.reset();
+		}
+	}
+
+	@Test
+	public void testCheckpoints() {
+		BrowserMemory.reset();
+		try {
+			// Compares against the checkpoint from 3 iterations ago, once there is one
+			Assertions.assertNull(BrowserMemory.checkpoint("a", new BrowserMemory.Sample(0, 100, 0, 0, 0), 3));
+			Assertions.assertNull(BrowserMemory.checkpoint("a", new BrowserMemory.Sample(1, 200, 0, 0, 0), 3));
+			Assertions.assertNull(BrowserMemory.checkpoint("a", new BrowserMemory.Sample(2, 300, 0, 0, 0), 3));
+			BrowserMemory.Sample base = BrowserMemory.checkpoint("a", new BrowserMemory.Sample(3, 400, 0, 0, 0), 3);
+			Assertions.assertEquals(100, base.usedHeap);
+			base = BrowserMemory.checkpoint("a", new BrowserMemory.Sample(4, 500, 0, 0, 0), 3);
+			Assertions.assertEquals(200, base.usedHeap);
+
+			// A new browser starts over
+			Assertions.assertNull(BrowserMemory.checkpoint("b", new BrowserMemory.Sample(5, 100, 0, 0, 0), 1));
+			base = BrowserMemory.checkpoint("b", new BrowserMemory.Sample(6, 200, 0, 0, 0), 1);
+			Assertions.assertEquals(5, base.timestamp);
+			Assertions.assertThrows(IllegalArgumentException.class,
+				() -> BrowserMemory.checkpoint("a", new BrowserMemory.Sample(7, 0, 0, 0, 0), 0));
+		} finally {
+			BrowserMemory.reset();
+		}
+	}
+}
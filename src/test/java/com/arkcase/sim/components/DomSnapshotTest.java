@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.components;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+public class DomSnapshotTest {
+
+	private static interface ScriptDriver extends WebDriver, JavascriptExecutor {
+	}
+
+	@Test
+	public void testCapture() {
+		final WebElement element = EasyMock.createMock(WebElement.class);
+		final Map<String, Object> result = new HashMap<>();
+		result.put("url", "http://localhost/--page");
+		result.put("title", "Title");
+		result.put("html", "<html><body><input value=\"abc\"></body></html>");
+		result.put("dialogs", Arrays.asList("div#confirm.modal [Confirm]"));
+		result.put("frames", 2L);
+		result.put("crossOriginFrames", 1L);
+		result.put("scripts", 5L);
+		result.put("element", element);
+
+		final Map<String, Object> missing = new HashMap<>(result);
+		missing.remove("element");
+
+		final ScriptDriver driver = EasyMock.createMock(ScriptDriver.class);
+		EasyMock.expect(driver.executeScript(EasyMock.anyString(), EasyMock.eq("#main"))).andReturn(result);
+		EasyMock.expect(driver.executeScript(EasyMock.anyString(), EasyMock.eq("#missing"))).andReturn(missing);
+		EasyMock.expect(element.getScreenshotAs(OutputType.BYTES)).andReturn(new byte[] {
+			1, 2, 3
+		});
+		EasyMock.replay(driver, element);
+
+		DomSnapshot s = DomSnapshot.capture(driver, "#main");
+		Assertions.assertEquals("http://localhost/--page", s.url);
+		Assertions.assertEquals(2, s.frames);
+		Assertions.assertEquals(1, s.crossOriginFrames);
+		Assertions.assertEquals(5, s.scripts);
+		Assertions.assertEquals(Arrays.asList("div#confirm.modal [Confirm]"), s.dialogs);
+		Assertions.assertSame(element, s.element);
+		Assertions.assertEquals(3, s.takeScreenshot(driver).length);
+
+		String html = s.toHtml();
+		Assertions.assertTrue(html.endsWith(String.valueOf(result.get("html"))));
+		Assertions.assertTrue(html.contains("open dialog: div#confirm.modal [Confirm]"));
+		// The comment must remain a valid HTML comment
+		Assertions.assertEquals(html.indexOf("-->"), html.lastIndexOf("--"));
+
+		Assertions.assertThrows(NoSuchElementException.class, () -> DomSnapshot.capture(driver, "#missing"));
+		EasyMock.verify(driver, element);
+	}
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.components;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+public class HttpRequestLogTest {
+
+	private static interface ScriptDriver extends WebDriver, JavascriptExecutor {
+	}
+
+	@Test
+	public void testNormalize() {
+		Assertions.assertEquals("/arkcase/api/v1/plugin/casefile/byId/{id}",
+			HttpRequestLog.normalize("https://arkcase.local:8443/arkcase/api/v1/plugin/casefile/byId/1024?_=1581"));
+		Assertions.assertEquals("/api/v1/service/ecm/folder/{id}/{id}",
+			HttpRequestLog.normalize("/api/v1/service/ecm/folder/a0eebc99-9c0b-4ef8-bb6d-6bb9bd380a11/ORDER-000123"));
+		Assertions.assertEquals("/api/files/{id}/",
+			HttpRequestLog.normalize("/api/files/3f786850e387550fdab836ed7e6dc881de23001b/"));
+		Assertions.assertEquals("/api/v1/users", HttpRequestLog.normalize("/api/v1/users#top"));
+	}
+
+	private static Map<String, Object> request(String method, String url, String template, long status) {
+		Map<String, Object> r = new HashMap<>();
+		r.put("method", method);
+		r.put("url", url);
+		r.put("template", template);
+		r.put("source", (template != null ? "$http" : "xhr"));
+		r.put("status", status);
+		r.put("start", 1600000000000L);
+		r.put("duration", 123.4);
+		return r;
+	}
+
+	@Test
+	public void testCollect() {
+		final Map<String, Object> result = new HashMap<>();
+		result.put("installed", Boolean.TRUE);
+		result.put("dropped", 2L);
+		result.put("entries", Arrays.asList( //
+			HttpRequestLogTest.request("GET", "/api/v1/casefile/12345?start=0", "/api/v1/casefile/12345", 200L), //
+			HttpRequestLogTest.request("POST", "/api/v1/casefile", null, 500L) //
+		));
+
+		final ScriptDriver driver = EasyMock.createMock(ScriptDriver.class);
+		EasyMock.expect(driver.executeScript(EasyMock.anyString())).andReturn(result);
+		EasyMock.replay(driver);
+
+		HttpRequestLog.setEnabled(true);
+		try {
+			List<HttpRequestLog.Request> requests = HttpRequestLog.collect(driver);
+			Assertions.assertEquals(2, requests.size());
+			Assertions.assertEquals("GET /api/v1/casefile/{id}", requests.get(0).getLabel());
+			Assertions.assertTrue(requests.get(0).isSuccessful());
+			Assertions.assertEquals("POST /api/v1/casefile", requests.get(1).getLabel());
+			Assertions.assertFalse(requests.get(1).isSuccessful());
+			Assertions.assertEquals(2, HttpRequestLog.getDropped());
+
+			Assertions.assertEquals(requests.size(), HttpRequestLog.drain().size());
+			Assertions.assertTrue(HttpRequestLog.drain().isEmpty());
+			Assertions.assertEquals(0, HttpRequestLog.getDropped());
+		} finally {
+			HttpRequestLog.setEnabled(false);
+		}
+		EasyMock.verify(driver);
+	}
+}
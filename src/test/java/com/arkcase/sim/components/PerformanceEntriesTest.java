@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.components;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+public class PerformanceEntriesTest {
+
+	private static interface ScriptDriver extends WebDriver, JavascriptExecutor {
+	}
+
+	private static Map<String, Object> entry(String name, double startTime, double duration) {
+		Map<String, Object> e = new HashMap<>();
+		e.put("name", name);
+		e.put("type", "xmlhttprequest");
+		e.put("startTime", startTime);
+		e.put("duration", duration);
+		e.put("transferSize", 100L);
+		return e;
+	}
+
+	@Test
+	public void testCollect() {
+		final Map<String, Object> navigation = PerformanceEntriesTest.entry("http://localhost/home?x=1", 0, 1500.5);
+		navigation.put("responseStart", 120.0);
+		navigation.put("domContentLoaded", 900L);
+		final Map<String, Object> load = new HashMap<>();
+		load.put("url", "http://localhost/home?x=1");
+		load.put("timeOrigin", 1600000000000.0);
+		load.put("navigation", Arrays.asList(navigation));
+		load.put("resource", Arrays.asList(PerformanceEntriesTest.entry("http://localhost/api/a?t=1", 10, 300),
+			PerformanceEntriesTest.entry("http://localhost/api/b", 20, 50)));
+		load.put("paint", Arrays.asList(PerformanceEntriesTest.entry("first-contentful-paint", 400, 0)));
+
+		final Map<String, Object> later = new HashMap<>(load);
+		later.put("navigation", Collections.emptyList());
+		later.put("paint", Collections.emptyList());
+		later.put("resource", Arrays.asList(PerformanceEntriesTest.entry("http://localhost/api/c", 5000, 700)));
+
+		final ScriptDriver driver = EasyMock.createMock(ScriptDriver.class);
+		EasyMock.expect(driver.executeScript(EasyMock.anyString())).andReturn(load).andReturn(later)
+			.andReturn(null);
+		EasyMock.replay(driver);
+
+		PerformanceEntries.reset();
+		PerformanceEntries first = PerformanceEntries.collect(driver);
+		Assertions.assertEquals(1500.5, first.navigation.entry.duration);
+		Assertions.assertEquals(120.0, first.navigation.responseStart);
+		Assertions.assertEquals(2, first.resources.size());
+		PerformanceEntries.collect(driver);
+
+		// The resources accumulate until the next page load
+		Assertions.assertSame(first.navigation, PerformanceEntries.getPageLoad());
+		Assertions.assertEquals(3, PerformanceEntries.getPageResources().size());
+		Assertions.assertEquals("http://localhost/api/c",
+			PerformanceEntries.getSlowest(PerformanceEntries.getPageResources()).name);
+
+		Assertions.assertEquals(2, PerformanceEntries.drain().size());
+		Assertions.assertTrue(PerformanceEntries.drain().isEmpty());
+
+		// No Performance API
+		Assertions.assertThrows(IllegalStateException.class, () -> PerformanceEntries.capture(driver));
+		EasyMock.verify(driver);
+		PerformanceEntries.reset();
+	}
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.gherkin.steps;
+
+import java.lang.reflect.Method;
+
+import org.jbehave.core.annotations.When;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.arkcase.sim.tools.StepTimings;
+import com.arkcase.sim.tools.StepTimings.Category;
+
+public class BudgetStepsTest {
+
+	public static class TestSteps {
+		@When("selecting a queue")
+		public void selectQueue() {
+			for (int i = 0; i < 5; i++) {
+				StepTimings.time(Category.COMMAND, () -> "command");
+			}
+			StepTimings.time(Category.SCRIPT, () -> "script");
+			StepTimings.time(Category.WAIT, () -> "wait");
+		}
+	}
+
+	private static void perform(StepTimings.Monitor monitor, String step, Method method, Runnable body) {
+		monitor.beforePerforming(step, false, method);
+		try {
+			body.run();
+		} finally {
+			monitor.afterPerforming(step, false, method);
+		}
+	}
+
+	@Test
+	public void testBudgets() throws Exception {
+		final BudgetSteps budget = new BudgetSteps();
+		final TestSteps steps = new TestSteps();
+		final StepTimings.Monitor monitor = new StepTimings.Monitor();
+		final Method select = TestSteps.class.getMethod("selectQueue");
+		final Method commands = BudgetSteps.class.getMethod("checkCommandBudget", Long.class);
+		final String check = "Then the previous step used at most $count browser commands";
+		Assertions.assertThrows(IllegalStateException.class, () -> budget.checkCommandBudget(10L));
+
+		StepTimings.setEnabled(true);
+		try {
+			// The steps can't be told apart without the monitor
+			steps.selectQueue();
+			Assertions.assertThrows(IllegalStateException.class, () -> budget.checkCommandBudget(10L));
+
+			BudgetStepsTest.perform(monitor, "When selecting a queue", select, steps::selectQueue);
+
+			// The checks can be chained, since they don't count as steps
+			BudgetStepsTest.perform(monitor, check, commands, () -> budget.checkCommandBudget(6L));
+			BudgetStepsTest.perform(monitor, check, commands, () -> budget.checkScriptBudget(1L));
+			BudgetStepsTest.perform(monitor, check, commands, () -> budget.checkWaitCountBudget(1L));
+			BudgetStepsTest.perform(monitor, check, commands, () -> budget.checkWaitBudget(1000L));
+			BudgetStepsTest.perform(monitor, check, commands, () -> budget.checkBrowserTimeBudget(1000L));
+			BudgetStepsTest.perform(monitor, check, commands, () -> budget.checkTimeBudget(1000L));
+
+			IllegalStateException e = Assertions.assertThrows(IllegalStateException.class,
+				() -> BudgetStepsTest.perform(monitor, check, commands, () -> budget.checkCommandBudget(5L)));
+			Assertions.assertTrue(e.getMessage().contains("selecting a queue"), e.getMessage());
+			Assertions.assertThrows(IllegalStateException.class,
+				() -> BudgetStepsTest.perform(monitor, check, commands, () -> budget.checkScriptBudget(0L)));
+			Assertions.assertThrows(IllegalStateException.class,
+				() -> BudgetStepsTest.perform(monitor, check, commands, () -> budget.checkWaitCountBudget(0L)));
+
+			// A step which doesn't use the browser is checked on its own, not against an older one
+			BudgetStepsTest.perform(monitor, "When selecting a queue", select, () -> {
+			});
+			BudgetStepsTest.perform(monitor, check, commands, () -> budget.checkCommandBudget(0L));
+
+			// A step that wasn't recorded can't be checked
+			StepTimings.setEnabled(false);
+			BudgetStepsTest.perform(monitor, "When selecting a queue", select, steps::selectQueue);
+			StepTimings.setEnabled(true);
+			Assertions.assertThrows(IllegalStateException.class,
+				() -> BudgetStepsTest.perform(monitor, check, commands, () -> budget.checkCommandBudget(10L)));
+		} finally {
+			StepTimings.setEnabled(false);
+		}
+	}
+}
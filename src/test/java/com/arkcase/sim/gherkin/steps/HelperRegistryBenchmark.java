@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.gherkin.steps;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openqa.selenium.WebDriver;
+
+import com.arkcase.sim.components.AngularHelper;
+import com.arkcase.sim.tools.BrowserPool;
+import com.armedia.commons.jmeter.gherkin.GherkinContext;
+
+/**
+ * Compares resolving (and building) helpers the way {@link WebDriverClient} used to - a lookup by
+ * canonical class name in the context's environment on every call, and reflective construction -
+ * against the current path, which looks the browser up but only builds its helpers once. The old
+ * path's environment is simulated with a map, while the new path runs the real
+ * {@link WebDriverClient#getHelper(HelperRegistry.Key)} against a pooled (dummy) browser. This isn't
+ * run as part of the build, run it with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.arkcase.sim.gherkin.steps.HelperRegistryBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HelperRegistryBenchmark {
+
+	private static final Function<WebDriver, AngularHelper> FACTORY = AngularHelper::new;
+	private static final HelperRegistry.Key<AngularHelper> KEY = HelperRegistry.register(AngularHelper.class,
+		HelperRegistryBenchmark.FACTORY);
+
+	private WebDriver browser;
+	private Map<String, Object> env;
+	private WebDriverClient client;
+
+	@Setup
+	public void setup() {
+		this.browser = WebDriver.class.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {
+			WebDriver.class
+		}, (p, m, a) -> null));
+		this.env = new HashMap<>();
+		// Simulate a reasonably populated environment
+		for (int i = 0; i < 32; i++) {
+			this.env.put("key-" + i, i);
+		}
+		this.env.put("browser", this.browser);
+		this.env.put(AngularHelper.class.getCanonicalName(), new AngularHelper(this.browser));
+
+		BrowserPool.setDefault(new BrowserPool(() -> this.browser));
+		WebDriverClient.drawPooledBrowser();
+		this.client = new WebDriverClient();
+		this.client.getHelper(HelperRegistryBenchmark.KEY);
+	}
+
+	@TearDown
+	public void tearDown() {
+		BrowserPool.setDefault(null);
+	}
+
+	private static <T> T getAs(Map<String, Object> env, String key, Class<T> klazz) {
+		Object o = env.get(key);
+		return (klazz.isInstance(o) ? klazz.cast(o) : null);
+	}
+
+	@Benchmark
+	public WebDriver getBrowserOld() {
+		GherkinContext.get();
+		return HelperRegistryBenchmark.getAs(this.env, "browser", WebDriver.class);
+	}
+
+	@Benchmark
+	public WebDriver getBrowserNew() {
+		return this.client.getBrowser();
+	}
+
+	@Benchmark
+	public AngularHelper getHelperOld() {
+		GherkinContext.get();
+		return HelperRegistryBenchmark.getAs(this.env, AngularHelper.class.getCanonicalName(), AngularHelper.class);
+	}
+
+	@Benchmark
+	public AngularHelper getHelperNew() {
+		return this.client.getHelper(HelperRegistryBenchmark.KEY);
+	}
+
+	@Benchmark
+	public AngularHelper createReflectively() throws InstantiationException, IllegalAccessException,
+		InvocationTargetException, NoSuchMethodException {
+		return AngularHelper.class.getConstructor(WebDriver.class).newInstance(this.browser);
+	}
+
+	@Benchmark
+	public AngularHelper createWithFactory() {
+		return HelperRegistryBenchmark.FACTORY.apply(this.browser);
+	}
+
+	public static void main(String... args) throws RunnerException {
+		new Runner(new OptionsBuilder() //
+			.include(HelperRegistryBenchmark.class.getSimpleName()) //
+			.build() //
+		).run();
+	}
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.gherkin.steps;
+
+import java.lang.reflect.Proxy;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.WebDriver;
+
+import com.arkcase.sim.components.AngularHelper;
+import com.arkcase.sim.components.html.ButtonHelper;
+
+public class HelperRegistryTest {
+
+	private static WebDriver newBrowser() {
+		return WebDriver.class.cast(Proxy.newProxyInstance(HelperRegistryTest.class.getClassLoader(),
+			new Class<?>[] {
+				WebDriver.class
+			}, (p, m, a) -> null));
+	}
+
+	@Test
+	public void testRegistry() {
+		HelperRegistry.Key<AngularHelper> key = HelperRegistry.register(AngularHelper.class, AngularHelper::new);
+		Assertions.assertSame(key, HelperRegistry.register(AngularHelper.class, (d) -> null));
+		Assertions.assertSame(key, HelperRegistry.getKey(AngularHelper.class));
+		Assertions.assertSame(AngularHelper.class, key.getType());
+
+		// Unregistered types get a reflective factory
+		HelperRegistry.Key<ButtonHelper> buttons = HelperRegistry.getKey(ButtonHelper.class);
+		Assertions.assertSame(buttons, HelperRegistry.getKey(ButtonHelper.class));
+		Assertions.assertThrows(RuntimeException.class, () -> HelperRegistry.getKey(String.class));
+
+		WebDriver browser = HelperRegistryTest.newBrowser();
+		HelperRegistry.Helpers helpers = new HelperRegistry.Helpers(browser);
+		Assertions.assertSame(browser, helpers.getBrowser());
+		AngularHelper angular = helpers.get(key);
+		Assertions.assertNotNull(angular);
+		Assertions.assertSame(browser, angular.getBrowser());
+		Assertions.assertSame(angular, helpers.get(key));
+		ButtonHelper button = helpers.get(buttons);
+		Assertions.assertSame(browser, button.getBrowser());
+		Assertions.assertSame(button, helpers.get(buttons));
+
+		// Keys registered after the cache was created are handled too
+		HelperRegistry.Key<StringBuilder> late = HelperRegistry.register(StringBuilder.class,
+			(d) -> new StringBuilder());
+		Assertions.assertSame(helpers.get(late), helpers.get(late));
+
+		Assertions.assertNotSame(angular, new HelperRegistry.Helpers(HelperRegistryTest.newBrowser()).get(key));
+	}
+}
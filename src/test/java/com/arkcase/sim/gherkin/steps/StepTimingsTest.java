@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.gherkin.steps;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jbehave.core.annotations.Alias;
+import org.jbehave.core.annotations.Given;
+import org.jbehave.core.annotations.Then;
+import org.jbehave.core.annotations.When;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.arkcase.sim.tools.StepTimings;
+import com.arkcase.sim.tools.StepTimings.Category;
+
+public class StepTimingsTest {
+
+	public static class TestSteps {
+		@When("doing the first thing")
+		public void first() {
+			// The nested script is accounted to the wait
+			StepTimings.time(Category.WAIT, () -> {
+				StepTimingsTest.sleep(20);
+				StepTimings.time(Category.SCRIPT, () -> StepTimingsTest.sleep(10));
+			});
+			StepTimings.time(Category.SCRIPT, () -> StepTimingsTest.sleep(5));
+		}
+
+		@Then("do the second thing")
+		public void second() {
+			StepTimings.time(Category.COMMAND, () -> StepTimingsTest.sleep(5));
+		}
+
+		@Then("do the second thing to [$target]")
+		public void second(String target) {
+			second();
+		}
+
+		@Given("the user is logged in")
+		@When("the user logs in")
+		@Alias("logging in as [$user]")
+		public void login(String user) {
+			StepTimings.time(Category.COMMAND, () -> {
+			});
+		}
+	}
+
+	private static void sleep(long ms) {
+		try {
+			Thread.sleep(ms);
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Test
+	public void testTimings() {
+		TestSteps steps = new TestSteps();
+
+		// Nothing is recorded while disabled
+		steps.first();
+		Assertions.assertTrue(StepTimings.drain().isEmpty());
+
+		StepTimings.setEnabled(true);
+		try {
+			steps.first();
+			steps.second("x");
+			// Outside of any step
+			Assertions.assertEquals("ok", StepTimings.time(Category.SCRIPT, () -> "ok"));
+			StepTimings.markFailed();
+
+			List<StepTimings.Record> records = StepTimings.drain();
+			Assertions.assertEquals(2, records.size());
+
+			StepTimings.Record first = records.get(0);
+			Assertions.assertEquals("doing the first thing", first.name);
+			Assertions.assertEquals(1, first.getCount(Category.WAIT));
+			Assertions.assertEquals(1, first.getCount(Category.SCRIPT));
+			Assertions.assertEquals(0, first.getCount(Category.COMMAND));
+			Assertions.assertTrue(first.getNanos(Category.WAIT) >= 30_000_000L);
+			Assertions.assertTrue(first.elapsedNanos >= (first.getNanos(Category.WAIT) + first.getNanos(Category.SCRIPT)));
+			Assertions.assertFalse(first.isFailed());
+
+			// Overloaded steps are told apart by their line numbers
+			StepTimings.Record second = records.get(1);
+			Assertions.assertEquals("do the second thing to [$target]", second.name);
+			Assertions.assertEquals(1, second.getCount(Category.COMMAND));
+			Assertions.assertTrue(second.isFailed());
+
+			Assertions.assertTrue(StepTimings.drain().isEmpty());
+		} finally {
+			StepTimings.setEnabled(false);
+		}
+	}
+
+	@Test
+	public void testGetStepName() throws Exception {
+		Method login = TestSteps.class.getMethod("login", String.class);
+		Assertions.assertEquals("the user is logged in", StepTimings.getStepName(login, null));
+		Assertions.assertEquals("the user is logged in", StepTimings.getStepName(login, "Given the user is logged in"));
+		Assertions.assertEquals("the user logs in", StepTimings.getStepName(login, "And the user logs in"));
+		Assertions.assertEquals("logging in as [$user]", StepTimings.getStepName(login, "When logging in as [bob]"));
+		Assertions.assertEquals("the user is logged in", StepTimings.getStepName(login, "When something else"));
+		Assertions.assertNull(StepTimings.getStepName(StepTimingsTest.class.getMethod("testGetStepName"), null));
+	}
+
+	@Test
+	public void testStepEndAction() throws Exception {
+		final Method login = TestSteps.class.getMethod("login", String.class);
+		final StepTimings.Monitor monitor = new StepTimings.Monitor();
+		final List<String> ended = new ArrayList<>();
+		StepTimings.setStepEndAction((step) -> {
+			// It runs once the step is over
+			Assertions.assertFalse(StepTimings.isMonitored());
+			ended.add(step);
+		});
+		try {
+			monitor.beforePerforming("When the user logs in", false, login);
+			Assertions.assertTrue(StepTimings.isMonitored());
+			monitor.afterPerforming("When the user logs in", false, login);
+			monitor.beforePerforming("When the user logs in", true, login);
+			monitor.afterPerforming("When the user logs in", true, login);
+			Assertions.assertEquals(Arrays.asList("the user logs in"), ended);
+		} finally {
+			StepTimings.setStepEndAction(null);
+		}
+	}
+
+	@Test
+	public void testMonitor() throws Exception {
+		final TestSteps steps = new TestSteps();
+		final Method login = TestSteps.class.getMethod("login", String.class);
+		final StepTimings.Monitor monitor = new StepTimings.Monitor();
+		StepTimings.setEnabled(true);
+		try {
+			// The same step twice in a row, each with its own record
+			for (int i = 0; i < 2; i++) {
+				final String step = "When logging in as [user" + i + "]";
+				monitor.beforePerforming(step, false, login);
+				Assertions.assertEquals("logging in as [$user]", StepTimings.getCurrentStep());
+				steps.login("user" + i);
+				steps.login("user" + i);
+				monitor.afterPerforming(step, false, login);
+			}
+			Assertions.assertNull(StepTimings.getCurrentStep());
+
+			// Dry runs don't count
+			monitor.beforePerforming("When the user logs in", true, login);
+			steps.second();
+			monitor.afterPerforming("When the user logs in", true, login);
+
+			// Steps get their own records even if they do nothing timed, and the records span the
+			// whole step
+			final Method second = TestSteps.class.getMethod("second");
+			monitor.beforePerforming("Then do the second thing", false, second);
+			StepTimingsTest.sleep(20);
+			monitor.afterPerforming("Then do the second thing", false, second);
+
+			List<StepTimings.Record> records = StepTimings.drain();
+			Assertions.assertEquals(4, records.size());
+			for (StepTimings.Record r : records.subList(0, 2)) {
+				Assertions.assertEquals("logging in as [$user]", r.name);
+				Assertions.assertEquals(2, r.getCount(Category.COMMAND));
+			}
+			Assertions.assertEquals("do the second thing", records.get(2).name);
+			Assertions.assertEquals("do the second thing", records.get(3).name);
+			Assertions.assertEquals(0, records.get(3).getCount(Category.COMMAND));
+			Assertions.assertTrue(records.get(3).getJvmNanos() >= 20_000_000L, records.get(3).toString());
+		} finally {
+			StepTimings.setEnabled(false);
+		}
+	}
+}
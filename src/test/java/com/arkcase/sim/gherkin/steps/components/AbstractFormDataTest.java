@@ -26,8 +26,16 @@
  */
 package com.arkcase.sim.gherkin.steps.components;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.UUID;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -41,5 +49,61 @@ public class AbstractFormDataTest {
 		Map<String, FormData.Persistent.Tab> map = FormData.loadTabs(AbstractFormDataTest.TEST_FORMS);
 		Assertions.assertNotNull(map);
 		Assertions.assertFalse(map.isEmpty());
+		// The parsed definitions are shared through the ResourceCache
+		Assertions.assertSame(map, FormData.loadTabs(AbstractFormDataTest.TEST_FORMS));
+	}
+
+	@Test
+	public void testLazyTabs() throws IOException {
+		final ClassLoader cl = Thread.currentThread().getContextClassLoader();
+		final Map<String, FormData.Persistent.Tab> eager;
+		try (Reader r = new InputStreamReader(cl.getResourceAsStream(AbstractFormDataTest.TEST_FORMS),
+			StandardCharsets.UTF_8)) {
+			eager = FormData.loadTabs(r);
+		}
+		final Map<String, FormData.Persistent.Tab> lazy;
+		try (InputStream in = cl.getResourceAsStream(AbstractFormDataTest.TEST_FORMS)) {
+			lazy = FormData.loadLazyTabs(in, StandardCharsets.UTF_8);
+		}
+		Assertions.assertEquals(new ArrayList<>(eager.keySet()), new ArrayList<>(lazy.keySet()));
+		for (String name : eager.keySet()) {
+			FormData.Persistent.Tab tab = lazy.get(name);
+			Assertions.assertNotNull(tab, name);
+			Assertions.assertSame(tab, lazy.get(name));
+			Assertions.assertEquals(eager.get(name).name, tab.name);
+			Assertions.assertEquals(eager.get(name).body, tab.body);
+		}
+		Assertions.assertNull(lazy.get(UUID.randomUUID().toString()));
+
+		// Binding errors are deferred until the tab is requested
+		String json = "{ \"good\" : { \"name\" : \"good\", \"body\" : \"div\", \"title\" : \"h1\" }, "
+			+ "\"bad\" : { \"name\" : \"bad\", \"unknown\" : true } }";
+		final Map<String, FormData.Persistent.Tab> partial = FormData
+			.loadLazyTabs(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+		Assertions.assertEquals(2, partial.size());
+		Assertions.assertNotNull(partial.get("good"));
+		Assertions.assertThrows(RuntimeException.class, () -> partial.get("bad"));
+
+		// ... and so are those within a section, until that section is requested
+		json = "{ \"tab\" : { \"name\" : \"tab\", \"body\" : \"div\", \"title\" : \"h1\", \"sections\" : { "
+			+ "\"good\" : { \"name\" : \"good\", \"body\" : \"div\", \"title\" : \"h2\", \"fields\" : { } }, "
+			+ "\"bad\" : { \"name\" : \"bad\", \"unknown\" : true } } } }";
+		final FormData.Persistent.Tab tab = FormData
+			.loadLazyTabs(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8)
+			.get("tab");
+		Assertions.assertNotNull(tab);
+		Assertions.assertEquals("tab", tab.name);
+		Assertions.assertEquals(Arrays.asList("good", "bad"), new ArrayList<>(tab.getSections().keySet()));
+		Assertions.assertNotNull(tab.getSections().get("good"));
+		Assertions.assertThrows(RuntimeException.class, () -> tab.getSections().get("bad"));
+
+		// Syntax errors are not
+		String[] invalid = {
+			"{ \"tab\" : { ", "[ ]", "{ \"tab\" : 1 }", "{ \"tab\" : { } } { }",
+		};
+		for (String s : invalid) {
+			Assertions.assertThrows(IOException.class,
+				() -> FormData.loadLazyTabs(new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8)), null), s);
+		}
 	}
 }
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.gherkin.steps.components;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.arkcase.sim.tools.JSON;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares parsing the form definitions with a new {@link ObjectMapper} per call (as
+ * {@link JSON} used to) against the cached readers. This isn't run as part of the build, run it
+ * with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.arkcase.sim.gherkin.steps.components.FormDataBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormDataBenchmark {
+
+	@Param({
+		"testForms.json", "createNewOrderForm.json"
+	})
+	public String resource;
+
+	private String json;
+
+	@Setup
+	public void setup() throws IOException {
+		try (InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(this.resource)) {
+			this.json = IOUtils.toString(in, StandardCharsets.UTF_8);
+		}
+	}
+
+	@Benchmark
+	public Map<String, FormData.Persistent.Tab> newMapper() throws IOException {
+		ObjectMapper mapper = new ObjectMapper();
+		return mapper.readValue(new StringReader(this.json), mapper.getTypeFactory()
+			.constructMapType(LinkedHashMap.class, String.class, FormData.Persistent.Tab.class));
+	}
+
+	@Benchmark
+	public Map<String, FormData.Persistent.Tab> cachedReader() throws IOException {
+		return FormData.loadTabs(new StringReader(this.json));
+	}
+
+	public static void main(String... args) throws RunnerException {
+		new Runner(new OptionsBuilder() //
+			.include(FormDataBenchmark.class.getSimpleName()) //
+			.build() //
+		).run();
+	}
+}
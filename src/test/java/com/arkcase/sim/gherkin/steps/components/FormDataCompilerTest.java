@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.gherkin.steps.components;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openqa.selenium.By;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+
+public class FormDataCompilerTest {
+
+	private static final String TEST_FORMS = "testForms.json";
+
+	@Test
+	public void testGetClassName() {
+		Assertions.assertNull(FormDataCompiler.getClassName(null));
+		Assertions.assertNull(FormDataCompiler.getClassName(""));
+		Assertions.assertEquals("CreateNewOrderForm", FormDataCompiler.getClassName("createNewOrderForm.json"));
+		Assertions.assertEquals("TestForms", FormDataCompiler.getClassName("some/path/testForms.json"));
+		Assertions.assertEquals("MyFormData", FormDataCompiler.getClassName("my-form.data.json"));
+		Assertions.assertEquals("_1stForm", FormDataCompiler.getClassName("1st form.json"));
+		Assertions.assertEquals(FormDataCompiler.PACKAGE + ".TestForms",
+			FormDataCompiler.getQualifiedClassName(FormDataCompilerTest.TEST_FORMS));
+	}
+
+	private static JsonNode toTree(Map<String, FormData.Persistent.Tab> tabs) {
+		// The definitions don't implement equals(), so compare their complete serialized state instead
+		final ObjectMapper mapper = new ObjectMapper() //
+			.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE) //
+			.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY) //
+			.registerModule(new SimpleModule().addSerializer(By.class, ToStringSerializer.instance)) //
+		;
+		return mapper.valueToTree(tabs);
+	}
+
+	@Test
+	public void testCompile(@TempDir Path dir) throws Exception {
+		final ClassLoader cl = Thread.currentThread().getContextClassLoader();
+		final Map<String, FormData.Persistent.Tab> tabs;
+		try (Reader r = new InputStreamReader(cl.getResourceAsStream(FormDataCompilerTest.TEST_FORMS),
+			StandardCharsets.UTF_8)) {
+			tabs = FormData.loadTabs(r);
+		}
+		Assertions.assertFalse(tabs.isEmpty());
+
+		final File source = FormDataCompiler.compile(FormDataCompilerTest.TEST_FORMS, dir.toFile());
+		Assertions.assertTrue(source.isFile());
+
+		final JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+		Assertions.assertNotNull(javac, "No Java compiler is available");
+		final ByteArrayOutputStream errors = new ByteArrayOutputStream();
+		final int rc = javac.run(null, null, errors, "-nowarn", "-d", dir.toString(), //
+			"-cp", System.getProperty("java.class.path"), source.getPath());
+		Assertions.assertEquals(0, rc, () -> new String(errors.toByteArray(), StandardCharsets.UTF_8));
+
+		final Thread thread = Thread.currentThread();
+		try (URLClassLoader loader = new URLClassLoader(new URL[] {
+			dir.toUri().toURL()
+		}, cl)) {
+			thread.setContextClassLoader(loader);
+			final Map<String, FormData.Persistent.Tab> compiled = FormData
+				.loadCompiledTabs(FormDataCompilerTest.TEST_FORMS);
+			Assertions.assertNotNull(compiled);
+			Assertions.assertEquals(new ArrayList<>(tabs.keySet()), new ArrayList<>(compiled.keySet()));
+			for (String name : tabs.keySet()) {
+				// Tabs are built on first use, and only once
+				Assertions.assertSame(compiled.get(name), compiled.get(name), name);
+			}
+			Assertions.assertEquals(FormDataCompilerTest.toTree(tabs), FormDataCompilerTest.toTree(compiled));
+		} finally {
+			thread.setContextClassLoader(cl);
+		}
+	}
+
+	@Test
+	public void testCompileInvalid() {
+		String[] invalid = {
+			"{ \"Tab\" : ", //
+			"[ ]", //
+			"{ \"Tab\" : { \"name\" : \"Tab\", \"body\" : \"div\", \"title\" : \"div\", \"sections\" : { " + //
+				"\"Section\" : { \"name\" : \"Section\", \"body\" : \"div\", \"title\" : \"div\", \"fields\" : { " + //
+				"\"Field\" : { \"name\" : \"Field\", \"type\" : \"unknown\", \"locator\" : \"input\", " + //
+				"\"locatorType\" : \"css\" } } } } } }", //
+			"{ \"Tab\" : { \"name\" : \"Tab\", \"body\" : \"div\", \"title\" : \"div\", \"sections\" : { " + //
+				"\"Section\" : { \"name\" : \"Section\", \"body\" : \"div\", \"title\" : \"div\", \"fields\" : { " + //
+				"\"Field\" : { \"name\" : \"Field\", \"type\" : \"text\", \"locator\" : \"input\", " + //
+				"\"locatorType\" : \"css\", \"effects\" : [ { \"type\" : \"enable\", \"target\" : \"Other\" } ] } } } } } }", //
+		};
+		for (String json : invalid) {
+			Assertions.assertThrows(IOException.class,
+				() -> FormDataCompiler.compile("invalid.json", new StringReader(json), new StringWriter()), json);
+		}
+	}
+}
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.gherkin.steps.components;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriver;
+
+import com.arkcase.sim.components.html.WaitHelper;
+
+public class FormFillPlanTest {
+
+	private static final String TEST_FORMS = "testForms.json";
+
+	private static class RecordingFiller implements FormFillPlan.Filler<String> {
+		private final List<String> calls = new ArrayList<>();
+
+		@Override
+		public void selectTab(String tab) {
+			this.calls.add("tab:" + tab);
+		}
+
+		@Override
+		public String expandSection(String tab, String section) {
+			this.calls.add("section:" + tab + "/" + section);
+			return tab + "/" + section;
+		}
+
+		@Override
+		public void setValue(String section, FormFillPlan.Entry entry) {
+			Assertions.assertEquals(entry.tab + "/" + entry.section, section);
+			this.calls.add("field:" + entry.field + "=" + entry.value);
+		}
+	}
+
+	private static FormData newForm() throws IOException {
+		WebDriver browser = EasyMock.createMock(WebDriver.class);
+		EasyMock.replay(browser);
+		return new FormData(new WaitHelper(browser), null, FormData.loadTabs(FormFillPlanTest.TEST_FORMS));
+	}
+
+	@Test
+	public void testApply() throws IOException {
+		final FormData form = FormFillPlanTest.newForm();
+		final RecordingFiller filler = new RecordingFiller();
+		Assertions.assertNull(new FormFillPlan().apply(form, filler));
+		Assertions.assertTrue(filler.calls.isEmpty());
+
+		// Given out of order, with tabs and sections interleaved
+		FormFillPlan plan = new FormFillPlan() //
+			.add("Details", "QC Validation", "Verify", "yes") //
+			.add("Create", "Request Specifics", "Priority", "High") //
+			.add("Create", "Patient Specifics", "Last Name", "Doe") //
+			.add("Details", "Authorization Specifics", "Due Date", "today") //
+			.add("Create", "Patient Specifics", "First Name", "John") //
+			.add("Create", "Request Specifics", "Override Status", "no") //
+		;
+		Assertions.assertEquals(6, plan.size());
+		Assertions.assertEquals("Details/QC Validation", plan.apply(form, filler));
+		Assertions.assertEquals(Arrays.asList( //
+			"tab:Create", //
+			"section:Create/Patient Specifics", //
+			"field:Last Name=Doe", //
+			"field:First Name=John", //
+			"section:Create/Request Specifics", //
+			"field:Priority=High", //
+			"field:Override Status=no", //
+			"tab:Details", //
+			"section:Details/Authorization Specifics", //
+			"field:Due Date=today", //
+			"section:Details/QC Validation", //
+			"field:Verify=yes" //
+		), filler.calls);
+
+		// Each tab is selected, and each section expanded, exactly once
+		Assertions.assertEquals(2, filler.calls.stream().filter((c) -> c.startsWith("tab:")).count());
+		Assertions.assertEquals(4, filler.calls.stream().filter((c) -> c.startsWith("section:")).distinct().count());
+		Assertions.assertEquals(4, filler.calls.stream().filter((c) -> c.startsWith("section:")).count());
+	}
+
+	@Test
+	public void testValidate() throws IOException {
+		final FormData form = FormFillPlanTest.newForm();
+		final String[][] invalid = {
+			{
+				"Nowhere", "Patient Specifics", "Last Name"
+			}, {
+				"Information", "Nowhere", "Project ID"
+			}, {
+				"Information", "Project Specifics", "Nowhere"
+			},
+		};
+		for (String[] bad : invalid) {
+			// The bad entry comes last, in the form's last tab, so nothing may be filled before it's caught
+			FormFillPlan plan = new FormFillPlan() //
+				.add("Create", "Patient Specifics", "Last Name", "Doe") //
+				.add("Details", "QC Validation", "Verify", "yes") //
+				.add(bad[0], bad[1], bad[2], "value") //
+			;
+			RecordingFiller filler = new RecordingFiller();
+			Assertions.assertThrows(NoSuchElementException.class, () -> plan.apply(form, filler),
+				Arrays.toString(bad));
+			Assertions.assertEquals(new ArrayList<>(), filler.calls, Arrays.toString(bad));
+		}
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new FormFillPlan().add("Create", "", "x", "y"));
+	}
+}
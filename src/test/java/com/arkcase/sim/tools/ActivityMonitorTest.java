@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ActivityMonitorTest {
+
+	@Test
+	public void testLocators() {
+		ActivityMonitor m = new ActivityMonitor(Duration.ofMinutes(1));
+		m.record("fast", TimeUnit.MILLISECONDS.toNanos(10));
+		m.record("slow", TimeUnit.MILLISECONDS.toNanos(500));
+		m.record("slow", TimeUnit.MILLISECONDS.toNanos(300));
+		m.record("medium", TimeUnit.MILLISECONDS.toNanos(200));
+		m.setTopLocators(2);
+
+		List<ActivityMonitorMXBean.LocatorStats> top = m.getSlowestLocators();
+		Assertions.assertEquals(2, top.size());
+		Assertions.assertEquals("slow", top.get(0).getLocator());
+		Assertions.assertEquals(2, top.get(0).getCount());
+		Assertions.assertEquals(800, top.get(0).getTotalMillis());
+		Assertions.assertEquals(500, top.get(0).getMaxMillis());
+		Assertions.assertEquals("medium", top.get(1).getLocator());
+		Assertions.assertEquals(60, m.getWindowSeconds());
+
+		m.resetLocators();
+		Assertions.assertTrue(m.getSlowestLocators().isEmpty());
+	}
+
+	@Test
+	public void testMBeans() throws JMException {
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		final ObjectName name = new ObjectName(ActivityMonitor.OBJECT_NAME);
+		ActivityMonitor.start();
+		try {
+			Assertions.assertTrue(ActivityMonitor.isActive());
+			ActivityMonitor.stepStarted("the user logs in");
+			ActivityMonitor.waitStarted("element to be clickable");
+
+			Assertions.assertEquals(1, server.getAttribute(name, "WaitingThreads"));
+			CompositeData[] threads = (CompositeData[]) server.getAttribute(name, "Threads");
+			Assertions.assertEquals(1, threads.length);
+			Assertions.assertEquals(Thread.currentThread().getName(), threads[0].get("threadName"));
+			Assertions.assertEquals("the user logs in", threads[0].get("step"));
+			Assertions.assertEquals("element to be clickable", threads[0].get("wait"));
+
+			ActivityMonitor.waitEnded("By.id: login", TimeUnit.SECONDS.toNanos(2));
+			Assertions.assertEquals(0, server.getAttribute(name, "WaitingThreads"));
+			CompositeData[] locators = (CompositeData[]) server.getAttribute(name, "SlowestLocators");
+			Assertions.assertEquals("By.id: login", locators[0].get("locator"));
+			Assertions.assertEquals(2000L, locators[0].get("totalMillis"));
+
+			// Idle threads aren't reported at all
+			ActivityMonitor.stepEnded();
+			Assertions.assertEquals(0, ((CompositeData[]) server.getAttribute(name, "Threads")).length);
+
+			ObjectName writer = new ObjectName(ActivityMonitor.ARTIFACT_WRITER_OBJECT_NAME
+				+ ObjectName.quote(ArtifactWriter.getDefault().getName()));
+			Assertions.assertEquals(0, server.getAttribute(writer, "QueueDepth"));
+		} finally {
+			ActivityMonitor.stop();
+		}
+		Assertions.assertFalse(ActivityMonitor.isActive());
+		Assertions.assertFalse(server.isRegistered(name));
+	}
+}
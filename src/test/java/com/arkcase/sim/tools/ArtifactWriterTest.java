@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ArtifactWriterTest {
+
+	@Test
+	public void testWrite(@TempDir Path dir) throws Exception {
+		ArtifactWriter w = new ArtifactWriter("test-writer", 2, 16, ArtifactWriter.OverflowPolicy.BLOCK);
+		byte[] data = {
+			1, 2, 3, 4
+		};
+		Path bytes = dir.resolve("a/b/c/data.bin");
+		Path text = dir.resolve("x/y/text.html");
+		Assertions.assertTrue(w.write(bytes, data));
+		Assertions.assertTrue(w.write(text, "<html>áéí</html>", StandardCharsets.UTF_8));
+		// Files can't be used as directories
+		Path file = Files.write(dir.resolve("file"), data);
+		Assertions.assertTrue(w.write(file.resolve("child"), data));
+		Assertions.assertTrue(w.flush(Duration.ofSeconds(10)));
+		Assertions.assertArrayEquals(data, Files.readAllBytes(bytes));
+		Assertions.assertEquals("<html>áéí</html>",
+			new String(Files.readAllBytes(text), StandardCharsets.UTF_8));
+		Assertions.assertEquals(3, w.getSubmitted());
+		Assertions.assertEquals(2, w.getWritten());
+		Assertions.assertEquals(1, w.getFailed());
+		Assertions.assertEquals(0, w.getDropped());
+		Assertions.assertEquals(0, w.getPending());
+	}
+
+	@Test
+	public void testDrop() throws Exception {
+		ArtifactWriter w = new ArtifactWriter("test-writer", 1, 2, ArtifactWriter.OverflowPolicy.DROP);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		Assertions.assertTrue(w.submit("blocker", () -> {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			}
+		}));
+		started.await();
+		// The single thread is busy, so only 2 more fit in the queue
+		Assertions.assertTrue(w.submit("q1", () -> {
+		}));
+		Assertions.assertTrue(w.submit("q2", () -> {
+		}));
+		Assertions.assertFalse(w.submit("dropped", () -> {
+		}));
+		Assertions.assertEquals(1, w.getDropped());
+		Assertions.assertEquals(2, w.getQueueDepth());
+		Assertions.assertFalse(w.flush(Duration.ofMillis(50)));
+		release.countDown();
+		Assertions.assertTrue(w.flush(Duration.ofSeconds(10)));
+		Assertions.assertEquals(3, w.getWritten());
+		Assertions.assertEquals(0, w.getPending());
+	}
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+public class BrowserPoolTest {
+
+	private static final String APP_URL = "https://arkcase.example.com/arkcase/";
+
+	private static WebDriver newBrowser(AtomicBoolean healthy, boolean keepsCookies) {
+		return BrowserPoolTest.newBrowser(healthy, keepsCookies, new ArrayList<>());
+	}
+
+	private static WebDriver newBrowser(AtomicBoolean healthy, boolean keepsCookies, List<String> visited) {
+		final AtomicReference<String> url = new AtomicReference<>(BrowserPoolTest.APP_URL + "home");
+		final WebDriver browser = EasyMock.createNiceMock(WebDriver.class);
+		final WebDriver.Options options = EasyMock.createNiceMock(WebDriver.Options.class);
+		final WebDriver.Navigation navigation = EasyMock.createNiceMock(WebDriver.Navigation.class);
+		final WebDriver.TargetLocator locator = EasyMock.createNiceMock(WebDriver.TargetLocator.class);
+		EasyMock.expect(browser.getWindowHandles()).andAnswer(() -> {
+			if (!healthy.get()) { throw new WebDriverException("The browser is gone"); }
+			return Collections.singleton("main");
+		}).anyTimes();
+		EasyMock.expect(browser.getCurrentUrl()).andAnswer(url::get).anyTimes();
+		EasyMock.expect(browser.manage()).andReturn(options).anyTimes();
+		EasyMock.expect(browser.navigate()).andReturn(navigation).anyTimes();
+		EasyMock.expect(browser.switchTo()).andReturn(locator).anyTimes();
+		EasyMock.expect(options.getCookies())
+			.andReturn(keepsCookies ? Collections.singleton(new Cookie("JSESSIONID", "abc")) : Collections.emptySet())
+			.anyTimes();
+		navigation.to(EasyMock.anyString());
+		EasyMock.expectLastCall().andAnswer(() -> {
+			url.set(String.class.cast(EasyMock.getCurrentArguments()[0]));
+			visited.add(url.get());
+			return null;
+		}).anyTimes();
+		EasyMock.replay(browser, options, navigation, locator);
+		return browser;
+	}
+
+	@Test
+	public void testPool() {
+		final AtomicBoolean healthy = new AtomicBoolean(true);
+		final List<WebDriver> created = new ArrayList<>();
+		BrowserPool pool = new BrowserPool(() -> {
+			WebDriver b = BrowserPoolTest.newBrowser(healthy, false);
+			created.add(b);
+			return b;
+		}, 3);
+
+		WebDriver first = pool.acquire();
+		Assertions.assertEquals(1, pool.getActive());
+		pool.release(first);
+		Assertions.assertEquals(1, pool.getIdle());
+
+		// Reused until it's been used 3 times, then recycled
+		Assertions.assertSame(first, pool.acquire());
+		pool.release(first);
+		Assertions.assertSame(first, pool.acquire());
+		pool.release(first);
+		Assertions.assertEquals(1, pool.getRecycled());
+		Assertions.assertEquals(0, pool.getIdle());
+		WebDriver second = pool.acquire();
+		Assertions.assertNotSame(first, second);
+		Assertions.assertEquals(2, pool.getCreated());
+		Assertions.assertEquals(2, pool.getReused());
+		pool.release(second);
+
+		// Unresponsive browsers are replaced
+		healthy.set(false);
+		WebDriver third = pool.acquire();
+		Assertions.assertNotSame(second, third);
+		Assertions.assertEquals(1, pool.getDiscarded());
+		Assertions.assertThrows(IllegalArgumentException.class,
+			() -> pool.release(BrowserPoolTest.newBrowser(healthy, false)));
+
+		pool.shutdown();
+		Assertions.assertEquals(0, pool.getActive());
+		Assertions.assertThrows(IllegalStateException.class, pool::acquire);
+	}
+
+	@Test
+	public void testResetUrls() {
+		final List<String> visited = new ArrayList<>();
+		BrowserPool pool = new BrowserPool(() -> BrowserPoolTest.newBrowser(new AtomicBoolean(true), false, visited),
+			10, 1, Collections.singleton(BrowserPoolTest.APP_URL));
+		WebDriver browser = pool.acquire();
+
+		// The application's URL is cleared too (without loading the application itself), before
+		// leaving for the blank page
+		final String clearUrl = BrowserPoolTest.APP_URL + BrowserPool.CLEAR_PATH;
+		pool.release(browser);
+		Assertions.assertEquals(Arrays.asList(clearUrl, BrowserPool.BLANK_URL), visited);
+		Assertions.assertEquals(1, pool.getIdle());
+
+		// There's nothing to clear on the blank page itself
+		visited.clear();
+		Assertions.assertTrue(pool.reset(pool.acquire()));
+		Assertions.assertEquals(Arrays.asList(clearUrl, BrowserPool.BLANK_URL), visited);
+		pool.shutdown();
+	}
+
+	@Test
+	public void testClearUrl() {
+		Assertions.assertEquals("https://arkcase.example.com/arkcase/" + BrowserPool.CLEAR_PATH,
+			BrowserPool.toClearUrl("https://arkcase.example.com/arkcase/#!/dashboard"));
+		Assertions.assertEquals("https://arkcase.example.com/arkcase/" + BrowserPool.CLEAR_PATH,
+			BrowserPool.toClearUrl("https://arkcase.example.com/arkcase/home.html?lang=en"));
+		Assertions.assertEquals("http://localhost:8080/" + BrowserPool.CLEAR_PATH,
+			BrowserPool.toClearUrl("http://localhost:8080"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> BrowserPool.toClearUrl("arkcase/"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> BrowserPool.toClearUrl("about:blank"));
+	}
+
+	@Test
+	public void testFailedReset() {
+		final AtomicBoolean healthy = new AtomicBoolean(true);
+		BrowserPool pool = new BrowserPool(() -> BrowserPoolTest.newBrowser(healthy, true), 10);
+		WebDriver browser = pool.acquire();
+		Assertions.assertFalse(pool.reset(browser));
+
+		// The cookies couldn't be deleted, so it mustn't be reused
+		pool.release(browser);
+		Assertions.assertEquals(0, pool.getIdle());
+		Assertions.assertEquals(1, pool.getDiscarded());
+		Assertions.assertNotSame(browser, pool.acquire());
+		pool.shutdown();
+	}
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+
+public class InstrumentedWebDriverTest {
+
+	private static interface ScriptDriver extends WebDriver, JavascriptExecutor {
+	}
+
+	@Test
+	public void testInstrumentation() {
+		final ScriptDriver raw = EasyMock.createMock(ScriptDriver.class);
+		final WebElement element = EasyMock.createMock(WebElement.class);
+		final WebDriver.Navigation navigation = EasyMock.createMock(WebDriver.Navigation.class);
+		final By by = By.id("button");
+
+		EasyMock.expect(raw.findElement(by)).andReturn(element);
+		EasyMock.expect(raw.findElement(By.id("missing"))).andThrow(new NoSuchElementException("missing"));
+		element.click();
+		EasyMock.expectLastCall();
+		// The script must receive the original element
+		EasyMock.expect(raw.executeScript("return arguments[0];", element)).andReturn(Arrays.asList(element));
+		EasyMock.expect(raw.navigate()).andReturn(navigation);
+		navigation.to("http://localhost/");
+		EasyMock.expectLastCall();
+		EasyMock.replay(raw, element, navigation);
+
+		final CommandStats stats = CommandStats.get();
+		stats.reset();
+		final WebDriver browser = InstrumentedWebDriver.instrument(raw);
+		Assertions.assertSame(browser, InstrumentedWebDriver.instrument(browser));
+		Assertions.assertTrue(InstrumentedWebDriver.isInstrumented(browser));
+		Assertions.assertTrue(JavascriptExecutor.class.isInstance(browser));
+		Assertions.assertSame(raw, Wrapper.unwrap(browser));
+		Assertions.assertSame(raw, InstrumentedWebDriver.unwrap(browser));
+
+		CommandStats.Snapshot start = stats.snapshot();
+		WebElement e = browser.findElement(by);
+		Assertions.assertTrue(InstrumentedWebDriver.isInstrumented(e));
+		Assertions.assertSame(element, WrapsElement.class.cast(e).getWrappedElement());
+		Assertions.assertSame(element, Wrapper.unwrap(e));
+		Assertions.assertEquals(element, InstrumentedWebDriver.unwrap(e));
+		e.click();
+		Assertions.assertThrows(NoSuchElementException.class, () -> browser.findElement(By.id("missing")));
+
+		Object result = JavascriptExecutor.class.cast(browser).executeScript("return arguments[0];", e);
+		Assertions.assertTrue(InstrumentedWebDriver.isInstrumented(List.class.cast(result).get(0)));
+
+		// navigate() is local, but the navigation itself isn't
+		browser.navigate().to("http://localhost/");
+		EasyMock.verify(raw, element, navigation);
+
+		CommandStats.Snapshot delta = stats.snapshot().since(start);
+		Assertions.assertEquals(5, delta.count);
+		Assertions.assertEquals(2, delta.commands.get("WebDriver.findElement").count);
+		Assertions.assertEquals(1, delta.commands.get("WebElement.click").count);
+		Assertions.assertEquals(1, delta.commands.get("Navigation.to").count);
+		Assertions.assertEquals("return arguments[0];".length() + 16,
+			delta.commands.get("WebDriver.executeScript").bytes);
+		Assertions.assertNull(delta.commands.get("WebDriver.navigate"));
+	}
+}
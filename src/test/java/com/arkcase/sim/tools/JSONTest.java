@@ -29,6 +29,8 @@ package com.arkcase.sim.tools;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.apache.commons.io.IOUtils;
@@ -76,4 +78,34 @@ public class JSONTest {
 		}
 	}
 
+	@Test
+	public void testGetReader() throws IOException {
+		Assertions.assertSame(JSON.getReader(Map.class), JSON.getReader(Map.class));
+		Assertions.assertSame(JSON.getReader(Map.class),
+			JSON.getReader((m) -> m.getTypeFactory().constructType(Map.class)));
+		Assertions.assertNotSame(JSON.getReader(Map.class), JSON.getReader(List.class));
+		Map<?, ?> map = JSON.unmarshal(Map.class, JSONTest.TEST_FORMS);
+		Assertions.assertNotNull(map);
+		Assertions.assertFalse(map.isEmpty());
+	}
+
+	@Test
+	public void testUnmarshalCached() throws IOException {
+		ResourceCache.invalidate(JSONTest.TEST_FORMS);
+		Map<?, ?> a = JSON.unmarshal(Map.class, JSONTest.TEST_FORMS);
+		int size = ResourceCache.size();
+
+		// The parsed tree is cached, but each caller gets its own value
+		Map<?, ?> b = JSON.unmarshal(Map.class, JSONTest.TEST_FORMS);
+		Assertions.assertEquals(size, ResourceCache.size());
+		Assertions.assertEquals(a, b);
+		Assertions.assertNotSame(a, b);
+		a.clear();
+		Assertions.assertFalse(JSON.unmarshal(Map.class, JSONTest.TEST_FORMS).isEmpty());
+
+		Assertions.assertNull(JSON.unmarshal(Map.class, UUID.randomUUID().toString()));
+		Assertions.assertEquals(b,
+			JSON.unmarshal(Map.class, Thread.currentThread().getContextClassLoader().getResource(JSONTest.TEST_FORMS)));
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class JfrEventsTest {
+
+	@Test
+	public void testEvents(@TempDir Path dir) throws Exception {
+		// Nothing to do unless recording
+		Assertions.assertFalse(JfrEvents.isActive());
+		Assertions.assertNull(JfrEvents.beginCommand());
+		JfrEvents.endCommand(null, "ignored", 0, false);
+
+		Path file = dir.resolve("events.jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("com.arkcase.sim.Command").withoutThreshold();
+			recording.enable("com.arkcase.sim.Wait").withoutThreshold();
+			recording.enable("com.arkcase.sim.Step").withoutThreshold();
+			recording.disable("com.arkcase.sim.ArtifactWrite");
+			recording.start();
+			Assertions.assertTrue(JfrEvents.isActive());
+
+			JfrEvents.endCommand(JfrEvents.beginCommand(), "WebDriver.findElement", 123, false);
+			JfrEvents.endWait(JfrEvents.beginWait(), "AngularJS to be stable", null, 5000, 3, true);
+			Object step = JfrEvents.beginStep("click the [$button] button");
+			JfrEvents.continueStep(step);
+			JfrEvents.endStep(step);
+			// Not enabled in the recording
+			Assertions.assertNull(JfrEvents.beginArtifactWrite());
+
+			recording.stop();
+			recording.dump(file);
+		}
+		Assertions.assertFalse(JfrEvents.isActive());
+
+		Map<String, RecordedEvent> events = new TreeMap<>();
+		List<RecordedEvent> all = RecordingFile.readAllEvents(file);
+		for (RecordedEvent e : all) {
+			if (e.getEventType().getName().startsWith("com.arkcase.sim.")) {
+				events.put(e.getEventType().getName(), e);
+			}
+		}
+		Assertions.assertEquals(3, events.size(), events.keySet().toString());
+
+		RecordedEvent command = events.get("com.arkcase.sim.Command");
+		Assertions.assertEquals("WebDriver.findElement", command.getString("command"));
+		Assertions.assertEquals(123, command.getLong("bytes"));
+		Assertions.assertFalse(command.getBoolean("failed"));
+
+		RecordedEvent wait = events.get("com.arkcase.sim.Wait");
+		Assertions.assertEquals("AngularJS to be stable", wait.getString("condition"));
+		Assertions.assertEquals(3, wait.getInt("polls"));
+		Assertions.assertTrue(wait.getBoolean("satisfied"));
+
+		Assertions.assertEquals("click the [$button] button", events.get("com.arkcase.sim.Step").getString("step"));
+	}
+}
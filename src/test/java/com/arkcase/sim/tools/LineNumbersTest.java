@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class LineNumbersTest {
+
+	private static int line() {
+		return new Throwable().getStackTrace()[1].getLineNumber();
+	}
+
+	public int overloaded() {
+		return LineNumbersTest.line();
+	}
+
+	public int overloaded(String a) {
+		return LineNumbersTest.line();
+	}
+
+	public int overloaded(String a, long[] b) {
+		return LineNumbersTest.line();
+	}
+
+	@Test
+	public void testGetDescriptor() throws Exception {
+		Assertions.assertEquals("overloaded(Ljava/lang/String;[J)I",
+			LineNumbers.getDescriptor(LineNumbersTest.class.getMethod("overloaded", String.class, long[].class)));
+		Assertions.assertEquals("testGetDescriptor()V",
+			LineNumbers.getDescriptor(LineNumbersTest.class.getMethod("testGetDescriptor")));
+	}
+
+	@Test
+	public void testFind() throws Exception {
+		final List<Method> overloads = Arrays.asList( //
+			LineNumbersTest.class.getMethod("overloaded", String.class, long[].class), //
+			LineNumbersTest.class.getMethod("overloaded", String.class), //
+			LineNumbersTest.class.getMethod("overloaded") //
+		);
+		Assertions.assertEquals(overloads.get(2), LineNumbers.find(LineNumbersTest.class, overloads, overloaded()));
+		Assertions.assertEquals(overloads.get(1),
+			LineNumbers.find(LineNumbersTest.class, overloads, overloaded(null)));
+		Assertions.assertEquals(overloads.get(0),
+			LineNumbers.find(LineNumbersTest.class, overloads, overloaded(null, null)));
+		Assertions.assertNull(LineNumbers.find(LineNumbersTest.class, overloads, LineNumbersTest.line()));
+		Assertions.assertNull(LineNumbers.find(LineNumbersTest.class, overloads, 0));
+	}
+}
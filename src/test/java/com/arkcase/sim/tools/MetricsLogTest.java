@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MetricsLogTest {
+
+	@Test
+	public void testTags() {
+		Assertions.assertEquals("step:the+user+logs+in%2C+twice", MetricsLog.toTag("step", "the user logs in, twice"));
+		Assertions.assertEquals("step:the user logs in, twice", MetricsLog.fromTag("step:the+user+logs+in%2C+twice"));
+		Assertions.assertEquals(MetricsLog.toTag("wait", "Foo$$Lambda$1"),
+			MetricsLog.toTag("wait", "Foo$$Lambda$17/0x0000000800c0b440@5e9f23b4"));
+		Assertions.assertEquals(MetricsLog.toTag("wait", "WebDriverHelper$3 on [user@host]"),
+			MetricsLog.toTag("wait", "WebDriverHelper$3@1b2c3d on [user@host]"));
+	}
+
+	@Test
+	public void testMerge(@TempDir Path dir) throws IOException {
+		final String step = MetricsLog.toTag(MetricsLog.STEP, "the user logs in");
+		final String wait = MetricsLog.toTag(MetricsLog.WAIT, "element to be clickable");
+
+		// Two nodes, each with their own log and several intervals
+		MetricsLog a = new MetricsLog(dir.resolve("a.hlog"));
+		MetricsLog b = new MetricsLog(dir.resolve("b.hlog"));
+		for (int i = 1; i <= 100; i++) {
+			a.record(step, TimeUnit.MILLISECONDS.toNanos(i));
+			if ((i % 10) == 0) {
+				a.flush();
+			}
+		}
+		for (int i = 901; i <= 1000; i++) {
+			b.record(step, TimeUnit.MILLISECONDS.toNanos(i));
+		}
+		b.record(wait, TimeUnit.MILLISECONDS.toNanos(5));
+		a.close();
+		b.close();
+
+		Map<String, Histogram> merged = MetricsAggregator.merge(Collections.singleton(dir));
+		Assertions.assertEquals(2, merged.size());
+		Histogram h = merged.get(step);
+		Assertions.assertEquals(200, h.getTotalCount());
+		Assertions.assertEquals(1.0, h.getMinValue() / 1000.0, 0.01);
+		Assertions.assertEquals(1000.0, h.getMaxValue() / 1000.0, 1.0);
+		// Half the samples are at most 100ms, so the median can't be an average of both nodes
+		Assertions.assertEquals(100.0, h.getValueAtPercentile(50.0) / 1000.0, 0.5);
+		Assertions.assertEquals(1, merged.get(wait).getTotalCount());
+
+		// The merged log can be merged again
+		Path out = dir.resolve("merged.out");
+		MetricsAggregator.write(merged, out);
+		Assertions.assertEquals(200, MetricsAggregator.merge(Arrays.asList(out)).get(step).getTotalCount());
+
+		ByteArrayOutputStream report = new ByteArrayOutputStream();
+		MetricsAggregator.report(merged, new PrintStream(report, true, "UTF-8"));
+		String[] lines = new String(report.toByteArray(), StandardCharsets.UTF_8).split("\\R");
+		Assertions.assertEquals(3, lines.length);
+		Assertions.assertTrue(lines[0].startsWith("key\tcount\tmin\tp50\tp90\tp95\tp99\tp99.9\tmax"), lines[0]);
+		Assertions.assertTrue(lines[1].startsWith("step:the user logs in\t200\t"), lines[1]);
+	}
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PageSourceArchiveTest {
+
+	private static String page(int rows, String marker) {
+		StringBuilder b = new StringBuilder("<html>\n<body>\n<div class=\"marker\">").append(marker).append("</div>\n");
+		for (int i = 0; i < rows; i++) {
+			b.append("<div class=\"row\" id=\"row-").append(i).append("\">Row number ").append(i).append("</div>\n");
+		}
+		return b.append("</body>\n</html>").toString();
+	}
+
+	@Test
+	public void testArchive(@TempDir Path dir) throws IOException {
+		final PageSourceArchive archive = PageSourceArchive.get(dir);
+		Assertions.assertSame(archive, PageSourceArchive.get(dir.resolve("x/..")));
+
+		final List<String> expected = new ArrayList<>();
+		final List<PageSourceArchive.Entry> entries = new ArrayList<>();
+		String a = PageSourceArchiveTest.page(500, "first");
+		String b = PageSourceArchiveTest.page(500, "second");
+		String other = UUID.randomUUID().toString();
+
+		entries.add(archive.append(1, "a", Instant.now(), a));
+		expected.add(a);
+		entries.add(archive.append(1, "b", Instant.now(), b));
+		expected.add(b);
+		entries.add(archive.append(2, "a-again", Instant.now(), a));
+		expected.add(a);
+		entries.add(archive.append(2, "other", Instant.now(), other));
+		expected.add(other);
+
+		Assertions.assertEquals(PageSourceArchive.Kind.FULL, entries.get(0).kind);
+		Assertions.assertEquals(PageSourceArchive.Kind.DELTA, entries.get(1).kind);
+		Assertions.assertEquals(entries.get(0).id, entries.get(1).base);
+		Assertions.assertEquals(PageSourceArchive.Kind.DUPLICATE, entries.get(2).kind);
+		Assertions.assertEquals(entries.get(0).id, entries.get(2).base);
+		// Nothing in common with the thread's previous page
+		Assertions.assertEquals(PageSourceArchive.Kind.FULL, entries.get(3).kind);
+
+		// Delta chains are bounded
+		for (int i = 0; i <= PageSourceArchive.MAX_DELTA_CHAIN; i++) {
+			String s = PageSourceArchiveTest.page(500 + i, "chain-" + i);
+			entries.add(archive.append(1, "chain", null, s));
+			expected.add(s);
+		}
+		Assertions.assertTrue(entries.subList(4, entries.size()).stream()
+			.anyMatch((e) -> e.kind == PageSourceArchive.Kind.FULL));
+
+		// ... even when another thread's deltas build on a duplicate of a deep entry
+		String deep = expected.get(expected.size() - 1);
+		entries.add(archive.append(4, "deep-again", null, deep));
+		expected.add(deep);
+		Assertions.assertEquals(PageSourceArchive.Kind.DUPLICATE, entries.get(entries.size() - 1).kind);
+		for (int i = 0; i <= PageSourceArchive.MAX_DELTA_CHAIN; i++) {
+			String s = deep + "\n<div>more-" + i + "</div>";
+			entries.add(archive.append(4, "more", null, s));
+			expected.add(s);
+		}
+		final Map<Long, Integer> depths = new HashMap<>();
+		for (PageSourceArchive.Entry e : entries) {
+			final int depth;
+			switch (e.kind) {
+				case DELTA:
+					depth = depths.get(e.base) + 1;
+					break;
+				case DUPLICATE:
+					depth = depths.get(e.base);
+					break;
+				default:
+					depth = 0;
+					break;
+			}
+			Assertions.assertTrue(depth <= PageSourceArchive.MAX_DELTA_CHAIN, e.toString());
+			depths.put(e.id, depth);
+		}
+
+		archive.close();
+
+		// Appending after closing starts a new segment, and carries on with the IDs
+		String last = PageSourceArchiveTest.page(10, "last");
+		entries.add(archive.append(3, "last", null, last));
+		expected.add(last);
+		Assertions.assertEquals(entries.get(entries.size() - 2).id + 1, entries.get(entries.size() - 1).id);
+		archive.close();
+
+		long totalSize = 0;
+		for (PageSourceArchive.Entry e : entries) {
+			totalSize += e.size;
+		}
+		long archiveSize = 0;
+		for (Path p : (Iterable<Path>) Files.list(dir)::iterator) {
+			archiveSize += Files.size(p);
+		}
+		Assertions.assertTrue(archiveSize < (totalSize / 10), archiveSize + " vs " + totalSize);
+
+		try (PageSourceArchive.Reader r = new PageSourceArchive.Reader(dir)) {
+			Assertions.assertEquals(entries.size(), r.getEntries().size());
+			for (int i = 0; i < entries.size(); i++) {
+				Assertions.assertEquals(expected.get(i), r.read(entries.get(i).id), entries.get(i).toString());
+			}
+		}
+	}
+}
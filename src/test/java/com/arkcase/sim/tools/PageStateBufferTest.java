@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PageStateBufferTest {
+
+	@Test
+	public void testBounds() {
+		PageStateBuffer b = new PageStateBuffer(3);
+		for (int i = 0; i < 5; i++) {
+			b.add("s" + i, "http://localhost/" + i, "<html>" + i + "</html>", null);
+		}
+		Assertions.assertEquals(3, b.size());
+		Assertions.assertEquals("s2", b.getStates().get(0).label);
+		Assertions.assertEquals("s4", b.getStates().get(2).label);
+
+		// The size limit evicts the oldest states, but always keeps the newest one
+		b = new PageStateBuffer(10, 100);
+		b.add("a", "u", null, new byte[60]);
+		b.add("b", "u", null, new byte[60]);
+		Assertions.assertEquals(1, b.size());
+		Assertions.assertEquals("b", b.getStates().get(0).label);
+		b.add("c", "u", null, new byte[200]);
+		Assertions.assertEquals(1, b.size());
+		Assertions.assertEquals(200, b.getBytes());
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new PageStateBuffer(0));
+	}
+
+	@Test
+	public void testFlush(@TempDir Path dir) throws IOException, InterruptedException {
+		PageStateBuffer b = new PageStateBuffer(4);
+		String source = "<html><body>áéíóú</body></html>";
+		b.add("first page", "http://localhost/1", source, null);
+		b.add(null, "http://localhost/2", source, new byte[] {
+			1, 2, 3
+		});
+		ArtifactWriter w = new ArtifactWriter("test-writer", 1, 16, ArtifactWriter.OverflowPolicy.BLOCK);
+		Assertions.assertEquals(2, b.flush(dir, w));
+		Assertions.assertTrue(b.isEmpty());
+		Assertions.assertEquals(0, b.getBytes());
+		Assertions.assertTrue(w.flush(Duration.ofSeconds(10)));
+
+		Assertions.assertTrue(Files.readAllLines(dir.resolve("000.first_page.url.txt")).contains("http://localhost/1"));
+		try (InputStream in = new GZIPInputStream(Files.newInputStream(dir.resolve("001.state.html.gz")))) {
+			Assertions.assertEquals(source, IOUtils.toString(in, StandardCharsets.UTF_8));
+		}
+		Assertions.assertFalse(Files.exists(dir.resolve("000.first_page.png")));
+		Assertions.assertEquals(3, Files.size(dir.resolve("001.state.png")));
+	}
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ResourceCacheTest {
+
+	private static final String TEST_FORMS = "testForms.json";
+	private static final String TEST_SCRIPT = "removeUnloadListener.js";
+
+	private static Map<?, ?> load(Charset charset, Object type) throws IOException {
+		return ResourceCache.get(null, ResourceCacheTest.TEST_FORMS, charset, type,
+			(in, c) -> Collections.unmodifiableMap(JSON.unmarshal(Map.class, in, c)));
+	}
+
+	@Test
+	public void testGet() throws IOException {
+		Map<?, ?> a = ResourceCacheTest.load(null, Map.class);
+		Assertions.assertNotNull(a);
+		Assertions.assertSame(a, ResourceCacheTest.load(null, Map.class));
+		Assertions.assertEquals(a, JSON.unmarshal(Map.class, ResourceCacheTest.TEST_FORMS));
+
+		// Different charsets or types are different entries
+		Assertions.assertNotSame(a, ResourceCacheTest.load(StandardCharsets.UTF_8, Map.class));
+		Assertions.assertNotSame(a, ResourceCacheTest.load(null, Object.class));
+
+		Assertions.assertTrue(ResourceCache.invalidate(ResourceCacheTest.TEST_FORMS) >= 3);
+		Map<?, ?> b = ResourceCacheTest.load(null, Map.class);
+		Assertions.assertNotSame(a, b);
+		Assertions.assertEquals(a, b);
+
+		Assertions.assertNull(ResourceCache.get(null, UUID.randomUUID().toString(), null, Map.class,
+			(in, c) -> JSON.unmarshal(Map.class, in, c)));
+	}
+
+	@Test
+	public void testLoadScript() throws IOException {
+		String a = ScriptTools.loadScript(ResourceCacheTest.TEST_SCRIPT);
+		Assertions.assertEquals(IOUtils.toString(
+			Thread.currentThread().getContextClassLoader().getResource(ResourceCacheTest.TEST_SCRIPT),
+			ScriptTools.DEFAULT_CHARSET), a);
+		Assertions.assertSame(a, ScriptTools.loadScript(ResourceCacheTest.TEST_SCRIPT));
+		Assertions.assertTrue(ResourceCache.invalidate(Thread.currentThread().getContextClassLoader()) >= 1);
+		Assertions.assertNotSame(a, ScriptTools.loadScript(ResourceCacheTest.TEST_SCRIPT));
+		Assertions.assertThrows(FileNotFoundException.class,
+			() -> ScriptTools.loadScript(UUID.randomUUID().toString()));
+	}
+
+	@Test
+	public void testMaxSize() throws IOException {
+		final int max = ResourceCache.getMaxSize();
+		try {
+			Assertions.assertThrows(IllegalArgumentException.class, () -> ResourceCache.setMaxSize(0));
+			ResourceCache.setMaxSize(1);
+			Assertions.assertTrue(ResourceCache.size() <= 1);
+			String a = ScriptTools.loadScript(ResourceCacheTest.TEST_SCRIPT);
+			ResourceCacheTest.load(null, Map.class);
+			Assertions.assertEquals(1, ResourceCache.size());
+			// The script was evicted
+			Assertions.assertNotSame(a, ScriptTools.loadScript(ResourceCacheTest.TEST_SCRIPT));
+		} finally {
+			ResourceCache.setMaxSize(max);
+		}
+	}
+}
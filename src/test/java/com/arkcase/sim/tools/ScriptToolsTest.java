@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+public class ScriptToolsTest {
+
+	private static interface ScriptDriver extends WebDriver, JavascriptExecutor {
+	}
+
+	@Test
+	public void testLibrary() {
+		Assertions.assertThrows(IllegalArgumentException.class,
+			() -> new ScriptTools.Library("bad name", Collections.singletonMap("f", "return 1;")));
+		Assertions.assertThrows(IllegalArgumentException.class,
+			() -> new ScriptTools.Library("lib", Collections.singletonMap("bad-name", "return 1;")));
+		Assertions.assertThrows(IllegalArgumentException.class,
+			() -> new ScriptTools.Library("lib", Collections.emptyMap()));
+
+		Map<String, String> functions = new LinkedHashMap<>();
+		functions.put("add", "return arguments[0] + arguments[1];");
+		functions.put("ping", "return 'pong';");
+		final ScriptTools.Library lib = new ScriptTools.Library("testLibrary", functions);
+		Assertions.assertTrue(lib.hasFunction("add"));
+		Assertions.assertFalse(lib.hasFunction("subtract"));
+
+		final ScriptDriver driver = EasyMock.createStrictMock(ScriptDriver.class);
+		final Capture<String> stub = EasyMock.newCapture();
+		final Capture<String> install = EasyMock.newCapture();
+
+		// First call: the library is missing, so it gets installed along with the call
+		EasyMock.expect(driver.executeScript(EasyMock.capture(stub), EasyMock.eq(1L), EasyMock.eq(2L)))
+			.andAnswer(() -> {
+				// Simulate what the stub would return if the library was missing
+				String s = stub.getValue();
+				return s.substring(s.lastIndexOf(":'") + 2, s.lastIndexOf('\''));
+			});
+		EasyMock.expect(driver.executeScript(EasyMock.capture(install), EasyMock.eq(1L), EasyMock.eq(2L)))
+			.andReturn(3L);
+		// Second call: the library is present, so only the stub is sent
+		EasyMock.expect(driver.executeScript(EasyMock.anyString(), EasyMock.eq(3L), EasyMock.eq(4L)))
+			.andReturn(7L);
+		EasyMock.replay(driver);
+
+		Assertions.assertEquals(3L, lib.call(driver, "add", 1L, 2L));
+		Assertions.assertEquals(7L, lib.call(driver, "add", 3L, 4L));
+		Assertions.assertThrows(NoSuchElementException.class, () -> lib.call(driver, "subtract", 1L, 2L));
+		EasyMock.verify(driver);
+
+		Assertions.assertFalse(stub.getValue().contains(functions.get("add")));
+		Assertions.assertTrue(stub.getValue().contains(lib.getVersion()));
+		Assertions.assertTrue(install.getValue().contains(functions.get("add")));
+		Assertions.assertTrue(install.getValue().contains(functions.get("ping")));
+		Assertions.assertTrue(install.getValue().contains(lib.getVersion()));
+	}
+}
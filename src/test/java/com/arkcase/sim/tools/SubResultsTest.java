@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SubResultsTest {
+
+	@Test
+	public void testKeepAndDrain() {
+		final Deque<Integer> backlog = new ArrayDeque<>();
+		Assertions.assertTrue(SubResults.drain(backlog).isEmpty());
+
+		Assertions.assertEquals(0, SubResults.keep(backlog, 1, 3));
+		Assertions.assertEquals(0, SubResults.keep(backlog, 2, 3));
+		Assertions.assertEquals(0, SubResults.keep(backlog, 3, 3));
+		// The oldest are discarded first
+		Assertions.assertEquals(1, SubResults.keep(backlog, 4, 3));
+		Assertions.assertEquals(3, SubResults.keep(backlog, 5, 1));
+
+		Assertions.assertEquals(Arrays.asList(5), SubResults.drain(backlog));
+		Assertions.assertTrue(backlog.isEmpty());
+	}
+}
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * #%L
+ * Armedia ArkCase
+ * %%
+ * Copyright (C) 2020 Armedia, LLC
+ * %%
+ * This file is part of the ArkCase software.
+ *
+ * If the software was purchased under a paid ArkCase license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * ArkCase is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ArkCase is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ArkCase. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ *******************************************************************************/
+package com.arkcase.sim.tools;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ValueGeneratorTest {
+
+	@Test
+	public void testLiteral() {
+		Assertions.assertNull(ValueGenerator.render(null));
+		String[] literals = {
+			"", "abc", "$gen", "gen(firstName)", "some $ text (with) parens",
+		};
+		for (String s : literals) {
+			Assertions.assertSame(s, ValueGenerator.render(s));
+			Assertions.assertTrue(ValueGenerator.compile(s).isLiteral());
+		}
+	}
+
+	@Test
+	public void testCache() {
+		String s = "$gen(firstName) $gen(lastName)";
+		ValueGenerator.Template t = ValueGenerator.getTemplate(s);
+		Assertions.assertFalse(t.isLiteral());
+		Assertions.assertSame(t, ValueGenerator.getTemplate(s));
+		Assertions.assertNotSame(t, ValueGenerator.compile(s));
+		Assertions.assertTrue(t.render().matches("^[A-Z][a-z]+ [A-Z][a-z]+$"));
+	}
+
+	@Test
+	public void testGenerators() {
+		for (int i = 0; i < 100; i++) {
+			Assertions.assertTrue(ValueGenerator.render("tel: $gen(phone)").matches("^tel: \\d{3}-\\d{3}-\\d{4}$"));
+			Assertions.assertTrue(
+				ValueGenerator.render("$gen(phone,(###) ###-####)").matches("^\\(\\d{3}\\) \\d{3}-\\d{4}$"));
+			Assertions.assertTrue(ValueGenerator.render("$gen(pattern, ??-##)").matches("^[A-Z]{2}-\\d{2}$"));
+			Assertions.assertTrue(ValueGenerator.render("$gen(zip)").matches("^\\d{5}$"));
+			Assertions.assertTrue(ValueGenerator.render("$gen(digits,7)").matches("^\\d{7}$"));
+			Assertions.assertTrue(ValueGenerator.render("$gen(letters,3)").matches("^[A-Z]{3}$"));
+			Assertions.assertTrue(ValueGenerator.render("$gen(street)").matches("^\\d+ [A-Za-z]+ [A-Za-z]+$"));
+			Assertions.assertTrue(ValueGenerator.render("$gen(pick,a,b,c)").matches("^[abc]$"));
+			long n = Long.parseLong(ValueGenerator.render("$gen(number,10,20)"));
+			Assertions.assertTrue((n >= 10) && (n < 20), String.valueOf(n));
+		}
+
+		DateTimeFormatter f = DateTimeFormatter.ofPattern("yyyyMMdd");
+		LocalDate today = LocalDate.now();
+		for (int i = 0; i < 100; i++) {
+			LocalDate d = LocalDate.parse(ValueGenerator.render("$gen(date,yyyyMMdd,-5,5)"), f);
+			Assertions.assertFalse(d.isBefore(today.minusDays(6)), d.toString());
+			Assertions.assertFalse(d.isAfter(today.plusDays(6)), d.toString());
+		}
+	}
+
+	@Test
+	public void testSequence() {
+		ValueGenerator.Template a = ValueGenerator.compile("A-$gen(seq,testSequence,100)");
+		ValueGenerator.Template b = ValueGenerator.compile("B-$gen(seq,testSequence)");
+		Assertions.assertEquals("A-100", a.render());
+		Assertions.assertEquals("B-101", b.render());
+		Assertions.assertEquals("A-102", a.render());
+
+		// The same start is fine, a different one is an error
+		Assertions.assertEquals("C-103", ValueGenerator.compile("C-$gen(seq,testSequence,100)").render());
+		Assertions.assertThrows(IllegalArgumentException.class,
+			() -> ValueGenerator.compile("D-$gen(seq,testSequence,5)"));
+	}
+
+	@Test
+	public void testCacheBounds() {
+		String literal = "no expressions here";
+		Assertions.assertNotSame(ValueGenerator.getTemplate(literal), ValueGenerator.getTemplate(literal));
+
+		String s = "$gen(seq,testCacheBounds)";
+		ValueGenerator.Template t = ValueGenerator.getTemplate(s);
+		for (int i = 0; i < ValueGenerator.MAX_TEMPLATES; i++) {
+			ValueGenerator.getTemplate("$gen(digits," + (i + 1) + ")");
+		}
+		Assertions.assertNotSame(t, ValueGenerator.getTemplate(s));
+	}
+
+	@Test
+	public void testInvalid() {
+		String[] invalid = {
+			"$gen(", "$gen(firstName", "$gen()", "$gen(unknownType)", "$gen(digits)", "$gen(number,5,5)",
+			"$gen(date,yyyy,5,1)", "$gen(pick)", "$gen(digits,abc)",
+		};
+		for (String s : invalid) {
+			Assertions.assertThrows(IllegalArgumentException.class, () -> ValueGenerator.compile(s), s);
+		}
+	}
+}